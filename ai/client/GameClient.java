@@ -40,6 +40,10 @@ public class GameClient {
     private Game game = null;
     private AI ai = null;
     private int aiLevel = 0;
+    private long moveTime;     // How long the AI may think per move (ms)
+    private int threads;       // How many threads the AI may search with
+    private int endgameEmpties; // The AI solves the game exactly at this many empty squares
+    private boolean ponder;    // The AI thinks while the opponent does
     private boolean done = false;
     private int verbose;
     private FutureTask<Integer> player;  // The Player Thread (so we can kill if needed)
@@ -53,6 +57,10 @@ public class GameClient {
      * @param tid The id of the tournament to join or -1 if just the first tourn available.
      * @param aiFlag Whether or not to create an AI for this client.
      * @param aiLevel If AI is true, level determines what version of AI to use.
+     * @param moveTime How long (in milliseconds) the AI may think about each move.
+     * @param threads How many threads the AI may search with.
+     * @param endgameEmpties The AI solves the game exactly at this many empty squares (or fewer).
+     * @param ponder Whether the AI keeps thinking while waiting for the opponent's move.
      * @param verbose - how much to output [0 = quite, >0 = noisier]
      *
      * In general, the port, pid, and tid can just be -1.
@@ -60,13 +68,18 @@ public class GameClient {
      * The pid can be used to connect back to the same player in the tournament.
      **/
     public GameClient(String hostname, int port, String pname, int pid, int tid,
-		      boolean aiFlag, int aiLevel, int verbose) {
+		      boolean aiFlag, int aiLevel, long moveTime, int threads, int endgameEmpties, boolean ponder,
+		      int verbose) {
 	this.hostname = hostname;
 	if (port >= 0) this.port = port;
 	this.pname = pname;
 	this.pid = pid;
 	this.tid = tid;
 	this.aiLevel = aiLevel;
+	this.moveTime = moveTime;
+	this.threads = threads;
+	this.endgameEmpties = endgameEmpties;
+	this.ponder = ponder;
 	this.verbose = verbose;
 	this.player = null;
 	userIn = new BufferedReader(new InputStreamReader(System.in));
@@ -115,8 +128,12 @@ public class GameClient {
     public synchronized void createAI() {
 	if (aiLevel <= 0) 
 	    ai = null;   // To play Manually
-	else
-	    ai = new OthelloAI();
+	else {
+	    OthelloAI o = new OthelloAI(moveTime, threads);
+	    o.setEndgameEmpties(endgameEmpties);
+	    o.setPonder(ponder);
+	    ai = o;
+	}
     }
 
     public synchronized void setDone(boolean flag) { done = flag; }
@@ -537,6 +554,10 @@ public class GameClient {
 	int tid = -1;
 	boolean ai = true;
 	int aiLevel = 1;
+	long moveTime = OthelloAI.DEFAULT_MOVE_TIME;
+	int threads = OthelloAI.DEFAULT_THREADS;
+	int endgameEmpties = OthelloAI.DEFAULT_ENDGAME_EMPTIES;
+	boolean ponder = false;
 	int verbose = 1;  // How "noisy" to be
 	
 	// Parse the arguments
@@ -558,6 +579,14 @@ public class GameClient {
 		    else printUsage("AI setting must be true or false");
 		    break;
 		case "--level": aiLevel = Integer.parseInt(params[1]); break;
+		case "--time": moveTime = Long.parseLong(params[1]); break;
+		case "--threads": threads = Integer.parseInt(params[1]); break;
+		case "--endgame": endgameEmpties = Integer.parseInt(params[1]); break;
+		case "--ponder":
+		    if (params[1].equals("on")) ponder=true;
+		    else if (params[1].equals("off")) ponder=false;
+		    else printUsage("Ponder setting must be on or off");
+		    break;
 		case "--verbose":
 		    verbose = Integer.parseInt(params[1]); break;
 		default:
@@ -569,7 +598,7 @@ public class GameClient {
 	}	    
 
 	GameClient c = new GameClient(hostname, port, name, pid, tid,
-				      ai, aiLevel, verbose);
+				      ai, aiLevel, moveTime, threads, endgameEmpties, ponder, verbose);
 	c.run();
     }
 
@@ -588,6 +617,12 @@ public class GameClient {
 	System.err.println("         --ai=true/false [default=true]");
 	System.err.println("         [+/-]ai  -- Use or don't use AI");
 	System.err.println("         --level=X   The level of AI to use 0, 1, ...  (0=NimAi, 1=TTTAI) [default=1]");
+	System.err.println("         --time=X    Milliseconds the AI may think per move [default=" + OthelloAI.DEFAULT_MOVE_TIME + "]");
+	System.err.println("         --threads=X Number of threads the AI searches with [default=" + OthelloAI.DEFAULT_THREADS + "]");
+	System.err.println("         --endgame=X Solve exactly with X or fewer empty squares, 0=off [default=" + OthelloAI.DEFAULT_ENDGAME_EMPTIES + "]");
+	System.err.println("         --ponder=on/off Think while the opponent does [default=off]");
+	System.err.println("         The Othello AI uses the opening book " + OthelloBook.DEFAULT_FILE + " in the current directory");
+	System.err.println("         if there is one (a small seed book comes with the project; see OthelloBookMaker).");
 	System.err.println("         --verbose=X           -- 0=quiet, >0=Output more stuff.");
 	if (message != null) System.err.println("       " + message);
 	System.exit(1);
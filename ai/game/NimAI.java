@@ -18,20 +18,50 @@ import java.util.Random;
  *   Most of the game control is handled by the Server but
  *   the move selection is made here - either via user or an attached
  *   AI system.
+ *
+ *   Nim is solved, so no search is needed: in normal play the player to
+ *   move loses exactly when the XOR of the rows' Grundy values (NimGrundy;
+ *   for plain Nim, just the rows) is 0, and otherwise wins by moving so
+ *   it becomes 0.  This covers the NimRule variants too.
+ *   Misere plain Nim (taking the last stick loses, see NimGame.isMisere)
+ *   is the same until at most one row has more than one stick left; then
+ *   the winning move leaves an odd number of single-stick rows.  (Misere
+ *   variants are played as if normal - their theory has no such shortcut.)
+ *   Either way a move takes one or two passes over the rows and
+ *   allocates nothing (but its String) once the Grundy values for the
+ *   game's rule are known.  From a lost position any legal move is as
+ *   good as another, so a random one is played (hoping the opponent slips).
  ***********************************************************/
 public class NimAI extends AbstractAI {
     protected NimGame game;  // The game that this AI system is playing
     protected Random ran;
-    
-    public NimAI() {
+    protected boolean misere;  // Does taking the last stick lose?
+    protected NimGrundy grundy = new NimGrundy(NimRule.ANY);  // Values for the rule of the game being played
+    protected int bestRow, bestTake;  // The move chosen by chooseMove
+
+    public NimAI() { this(false); }
+
+    /**
+     * An AI playing misere (or normal) Nim - until it is attached to a
+     * game, whose play computeMove follows.
+     **/
+    public NimAI(boolean misere) {
 	game = null;
 	ran = new Random();
+	this.misere = misere;
+    }
+
+    /**
+     * Play Nim under this rule (computeMove switches to the rule of the attached game)
+     **/
+    public void setRule(NimRule rule) {
+	if (!rule.equals(grundy.getRule())) grundy = new NimGrundy(rule);
     }
 
     public void attachGame(Game g) {
 	game = (NimGame) g;
     }
-    
+
     /**
      * Returns the Move as a String "R,S"
      *    R=Row
@@ -42,14 +72,64 @@ public class NimAI extends AbstractAI {
 	    System.err.println("CODE ERROR: AI is not attached to a game.");
 	    return "0,0";
 	}
-	
+
 	int[] rows = (int[]) game.getStateAsObject();
+	setRule(game.getRule());
+	misere = game.isMisere();
+	if (!chooseMove(rows)) return "0,0";  // No sticks left
+	return bestRow + "," + bestTake;
+    }
+
+    /**
+     * Choose a move (left in bestRow and bestTake) under the rule of the
+     * current NimGrundy.
+     * @return false if there is nothing left to take
+     **/
+    public boolean chooseMove(int[] rows) {
+	NimRule rule = grundy.getRule();
+	int big = 0, ones = 0, bigRow = -1, movable = 0;
+	for (int i = 0; i < rows.length; i++) {
+	    if (rows[i] > 1) { big++; bigRow = i; }
+	    else if (rows[i] == 1) ones++;
+	    if (rule.canMove(rows[i])) movable++;
+	}
+	if (movable == 0) return false;
 
-	// Just pick a random amount from a random row (that isn't zero)
-	int r = ran.nextInt(rows.length);                // Pick a starting place
-	while (rows[r] == 0) r = (r + 1) % rows.length;  // Find next row that is not zero (while loop if all 0s!)
+	if (misere && rule.isAny() && big <= 1) {
+	    if (big == 1) {
+		// Leave an odd number of single-stick rows (empty the big row, or leave it one stick)
+		bestRow = bigRow;
+		bestTake = (ones % 2 == 1) ? rows[bigRow] : rows[bigRow] - 1;
+		return true;
+	    }
+	    if (ones % 2 == 0) {
+		// Take a single stick so the opponent is left with an odd number of them
+		for (bestRow = 0; rows[bestRow] == 0; bestRow++) ;
+		bestTake = 1;
+		return true;
+	    }
+	} else {
+	    // Make the XOR of the Grundy values 0
+	    int move = grundy.winningMove(rows);
+	    if (move != NimGrundy.NO_MOVE) {
+		bestRow = NimGrundy.row(move, rows.length);
+		bestTake = NimGrundy.take(move, rows.length);
+		return true;
+	    }
+	}
 
-	int take = ran.nextInt(rows[r]) + 1;
-	return r + "," + take;
-    }	
+	randomMove(rows, movable);
+	return true;
+    }
+
+    /**
+     * Any legal move: a random amount from a random row that has a move
+     * (of which there are movable)
+     **/
+    protected void randomMove(int[] rows, int movable) {
+	NimRule rule = grundy.getRule();
+	int k = ran.nextInt(movable);
+	for (bestRow = 0; !rule.canMove(rows[bestRow]) || k-- > 0; bestRow++) ;
+	bestTake = rule.take(ran.nextInt(rule.moves(rows[bestRow])));
+    }
 }
@@ -17,8 +17,10 @@ import java.io.IOException;
 
 /***********************************************************
  * A Nim game.
- *   Two players take turns removing as many sticks as they want from any row.
- *   The player removing the last stick wins.
+ *   Two players take turns removing as many sticks as they want from any row
+ *   (or, in a variant, as many as its NimRule allows).
+ *   The player removing the last stick wins (or, in misere play, loses);
+ *   in a variant, the player left without a move loses (or wins).
  *   The number of rows will vary from MIN_ROW to MAX_ROW (inclusive of both)
  *   The number of sticks per row will vary from MIN_STICK to MAX_STICK (inclusive of both)
  ***********************************************************/
@@ -26,9 +28,11 @@ public class NimGame implements Game {
     private static final int MIN_ROW = 3;
     private static final int MAX_ROW = 10;
     private static final int MIN_STICK = 5;
-    private static final int MAX_STICK = 100;
+    public static final int MAX_STICK = 100;
     
     private int[] sticks;  // Amount of sticks per row...
+    private NimRule rule;  // How many sticks a move may take
+    private boolean misere;  // Does taking the last stick lose?  (NimAI plays whichever)
     private int turn;    // Whose turn is it 0 or 1.
     private int player; // Which "turn" the player is (from Client side)
     private boolean changed;   // Has the state changed (since last transmission)
@@ -41,8 +45,12 @@ public class NimGame implements Game {
     public NimGame() { this(-1, null, null); }
     public NimGame(int player, BufferedReader in) { this(player, in, null); }
     public NimGame(int player, BufferedReader in, AI ai) { this(player, in, ai, player == -1); }
-    public NimGame(int player, BufferedReader in, AI ai, boolean createFlag) {
+    public NimGame(int player, BufferedReader in, AI ai, boolean createFlag) { this(player, in, ai, createFlag, NimRule.ANY); }
+    public NimGame(int player, BufferedReader in, AI ai, boolean createFlag, NimRule rule) { this(player, in, ai, createFlag, rule, false); }
+    public NimGame(int player, BufferedReader in, AI ai, boolean createFlag, NimRule rule, boolean misere) {
 	this.player = player;
+	this.rule = rule;
+	this.misere = misere;
 	this.in = in;
 	this.ai = (NimAI) ai;
 	this.changed = true;
@@ -57,6 +65,7 @@ public class NimGame implements Game {
 	    for (int i = 0; i < rows; i++)
 		this.sticks[i] = ran.nextInt(MAX_STICK - MIN_STICK + 1) + MIN_STICK;
 	    this.turn = 0;
+	    if (isDoneCheck()) winner = misere ? turn : (turn^1);  // A variant may leave nothing to take
 	} else {
 	    // This is a client version, attached to a game from the server
 	    this.turn = -1;       // Don't know whose turn it is yet...
@@ -78,11 +87,21 @@ public class NimGame implements Game {
     private boolean isDoneCheck() {
 	done = false;
 	for (int i = 0; i < sticks.length; i++)
-	    if (sticks[i] > 0) return false;  // A row without 0 sticks, not done yet.
+	    if (rule.canMove(sticks[i])) return false;  // A row with sticks to take, not done yet.
 	done = true;
-	return true;  // All rows have 0 sticks
+	return true;  // No row has (enough) sticks left
     }
 
+    /**
+     * How many sticks a move may take
+     **/
+    public NimRule getRule() { return rule; }
+
+    /**
+     * Does taking the last stick lose?
+     **/
+    public boolean isMisere() { return misere; }
+
     /**
      * Current state of game (in some string format - game dependent)
      * If force is false then a null is returned if nothing has changed since last getState --- 
@@ -91,9 +110,11 @@ public class NimGame implements Game {
     public String getState(boolean force) {
 	if (!force && !changed) return null;
 	changed = false;
-	String result = turn + "," + sticks.length;
+	String result = (done ? -1 : turn) + "," + sticks.length;  // Nobody's turn once the game is over
 	for (int i = 0; i < sticks.length; i++)
 	    result += "," + sticks[i];
+	if (!rule.isAny()) result += "," + rule;  // Only variants send their rule
+	if (misere) result += ",MISERE";
 	return result;
     }	
 
@@ -121,9 +142,14 @@ public class NimGame implements Game {
 	    // How many sticks left in each row
 	    for (int i = 0; i < numRows; i++)
 		this.sticks[i] = Integer.parseInt(pieces[i+2]);
+	    // Then the rule (variants only) and MISERE (misere play only)
+	    for (int i = numRows + 2; i < pieces.length; i++) {
+		if (pieces[i].equalsIgnoreCase("MISERE")) this.misere = true;
+		else this.rule = NimRule.parse(pieces[i]);
+	    }
 	    
 	    displayState();
-	} catch (NumberFormatException e) {
+	} catch (IllegalArgumentException e) {
 	    System.err.println("There was an error in the state that was sent. " + state);
 	}
     }
@@ -202,11 +228,13 @@ public class NimGame implements Game {
 		    return "ERROR:You must take a positive number of sticks.";
 		if (sticks[row] < take)
 		    return "ERROR:That row does not have that many sticks.";
+		if (!rule.allows(take))
+		    return "ERROR:You may only take " + rule.toString().replace("_", ", ") + " sticks.";
 		sticks[row] -= take;
 		turn ^= 1;  // Switch turn from 0 to 1 or 1 to 0
 		changed = true;
-		if (sticks[row] == 0 && isDoneCheck()) {
-		    winner = (turn^1);
+		if (!rule.canMove(sticks[row]) && isDoneCheck()) {
+		    winner = misere ? turn : (turn^1);  // The player who took the last stick is turn^1
 		    return "MESSAGE:" + (winner == 0 ? "Home" : "Away") + " won!";
 		} else
 		    return "MESSAGE:Took " + take + " sticks from row " + row + ".";
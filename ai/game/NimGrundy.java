@@ -0,0 +1,122 @@
+/*******************
+ * Christian A. Duncan
+ * CSC350: Intelligent Systems
+ * Spring 2017
+ *
+ * AI Game Client
+ * This project is designed to link to a basic Game Server to test
+ * AI-based solutions.
+ * See README file for more details.
+ ********************/
+
+package cad.ai.game;
+
+/***********************************************************
+ * Sprague-Grundy values of Nim played under a NimRule (normal play:
+ * whoever cannot move loses).
+ *   The Grundy value of a row is the smallest value (mex) not among the
+ *   values of the rows it can be turned into; a position is lost for the
+ *   player to move exactly when the XOR of its rows' values is 0.  For
+ *   plain Nim the value of a row is its number of sticks.
+ *
+ *   Values are kept in a dense array for every row size up to a limit
+ *   (NimGame.MAX_STICK to start with, doubled if a bigger row shows
+ *   up), along with a table giving, for each row size and each value,
+ *   an amount to take that reaches that value.  After that a winning
+ *   move costs two passes over the rows and allocates nothing.
+ *
+ *   Moves are encoded as take * rows + row (see row and take).
+ ***********************************************************/
+public class NimGrundy {
+    public static final int NO_MOVE = -1;   // Lost (or no moves at all)
+
+    private final NimRule rule;
+    private int[] grundy;   // grundy[s] = value of a row of s sticks
+    private int width;      // 1 + the largest value
+    private int[] reach;    // reach[s * width + v] = sticks to take from s to reach value v (0 = can't)
+
+    public NimGrundy(NimRule rule) { this(rule, NimGame.MAX_STICK); }
+
+    public NimGrundy(NimRule rule, int maxSticks) {
+	this.rule = rule;
+	build(maxSticks);
+    }
+
+    public NimRule getRule() { return rule; }
+
+    /** The Grundy value of a row of sticks **/
+    public int grundy(int sticks) {
+	if (sticks >= grundy.length) build(Math.max(2 * (grundy.length - 1), sticks));
+	return grundy[sticks];
+    }
+
+    /** The Grundy value of a position (0 = lost for the player to move) **/
+    public int value(int[] rows) {
+	int x = 0;
+	for (int r = 0; r < rows.length; r++) x ^= grundy(rows[r]);
+	return x;
+    }
+
+    /**
+     * A winning move: one leaving a position of value 0.
+     * @return The move (take * rows.length + row), or NO_MOVE if the position is lost
+     **/
+    public int winningMove(int[] rows) {
+	int x = value(rows);
+	if (x == 0) return NO_MOVE;
+	for (int r = 0; r < rows.length; r++) {
+	    int target = grundy[rows[r]] ^ x;
+	    if (target < width && reach[rows[r] * width + target] != 0)
+		return reach[rows[r] * width + target] * rows.length + r;
+	}
+	return NO_MOVE;  // Not reached: some row's value has the top bit of x set
+    }
+
+    /** The most moves a position can have **/
+    public int maxMoves(int[] rows) {
+	int n = 0;
+	for (int r = 0; r < rows.length; r++) n += rule.moves(rows[r]);
+	return n;
+    }
+
+    /**
+     * Put every legal move in moves[offset...]
+     * @return The number of moves
+     **/
+    public int generateMoves(int[] rows, int[] moves, int offset) {
+	int n = 0;
+	for (int r = 0; r < rows.length; r++)
+	    for (int i = rule.moves(rows[r]) - 1; i >= 0; i--)
+		moves[offset + n++] = rule.take(i) * rows.length + r;
+	return n;
+    }
+
+    /** The row a move takes from **/
+    public static int row(int move, int rows) { return move % rows; }
+
+    /** The number of sticks a move takes **/
+    public static int take(int move, int rows) { return move / rows; }
+
+    /**
+     * Compute the values (and reaching moves) of rows of up to maxSticks sticks
+     **/
+    private void build(int maxSticks) {
+	grundy = new int[maxSticks + 1];
+	boolean[] seen = new boolean[maxSticks + 2];
+	width = 1;
+	for (int s = 0; s <= maxSticks; s++) {
+	    int moves = rule.moves(s);
+	    for (int i = 0; i < moves; i++) seen[grundy[s - rule.take(i)]] = true;
+	    int g = 0;
+	    while (seen[g]) g++;
+	    grundy[s] = g;
+	    width = Math.max(width, g + 1);
+	    for (int i = 0; i < moves; i++) seen[grundy[s - rule.take(i)]] = false;
+	}
+
+	reach = new int[(maxSticks + 1) * width];
+	for (int s = 0; s <= maxSticks; s++)
+	    for (int i = rule.moves(s) - 1; i >= 0; i--)
+		reach[s * width + grundy[s - rule.take(i)]] = rule.take(i);  // The smallest take wins ties
+    }
+}
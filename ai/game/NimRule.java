@@ -0,0 +1,114 @@
+/*******************
+ * Christian A. Duncan
+ * CSC350: Intelligent Systems
+ * Spring 2017
+ *
+ * AI Game Server Project
+ * This project is designed to support multiple game platforms to test
+ * AI-based solutions.
+ * See README file for more details.
+ ********************/
+
+package cad.ai.game;
+
+import java.util.Arrays;
+
+/***********************************************************
+ * How many sticks a Nim move may take from a row.
+ *   ANY is plain Nim (any number from 1 up to the whole row).  Otherwise
+ *   the rule is a subtraction set: a move takes exactly one of the
+ *   listed amounts, so a row can be left with sticks nobody can take.
+ *   Moves that split a row into several (e.g. Lasker's Nim) are not
+ *   rules of this kind and are not supported - a move only takes sticks.
+ *
+ *   Written (toString/parse) as "ANY" or the amounts joined by '_',
+ *   e.g. "1_2_3", so it fits in a tournament type (NIM_1_2_3) and in
+ *   the comma-separated NimGame state.
+ ***********************************************************/
+public final class NimRule {
+    public static final NimRule ANY = new NimRule(null);
+
+    private final int[] takes;        // Sorted amounts allowed (null = any)
+    private final boolean[] allowed;  // allowed[t]: may t sticks be taken? (null = any)
+
+    private NimRule(int[] takes) {
+	this.takes = takes;
+	if (takes == null) allowed = null;
+	else {
+	    allowed = new boolean[takes[takes.length - 1] + 1];
+	    for (int t: takes) allowed[t] = true;
+	}
+    }
+
+    /**
+     * The subtraction set rule taking exactly one of the given amounts
+     **/
+    public static NimRule of(int... takes) {
+	int[] t = takes.clone();
+	Arrays.sort(t);
+	int n = 0;
+	for (int i = 0; i < t.length; i++) {
+	    if (t[i] <= 0) throw new IllegalArgumentException("A move must take a positive number of sticks: " + t[i]);
+	    if (n == 0 || t[n - 1] != t[i]) t[n++] = t[i];
+	}
+	if (n == 0) throw new IllegalArgumentException("No amounts to take");
+	return new NimRule(Arrays.copyOf(t, n));
+    }
+
+    /**
+     * The rule written as "ANY" or "1_2_3"
+     **/
+    public static NimRule parse(String s) {
+	if (s.equalsIgnoreCase("ANY")) return ANY;
+	String[] pieces = s.split("_");
+	int[] t = new int[pieces.length];
+	try {
+	    for (int i = 0; i < t.length; i++) t[i] = Integer.parseInt(pieces[i]);
+	} catch (NumberFormatException e) {
+	    throw new IllegalArgumentException("Not a Nim rule: " + s);
+	}
+	return of(t);
+    }
+
+    /** Is this plain Nim? **/
+    public boolean isAny() { return takes == null; }
+
+    /** May take sticks be taken (from a row with enough of them)? **/
+    public boolean allows(int take) {
+	if (takes == null) return take > 0;
+	return take > 0 && take < allowed.length && allowed[take];
+    }
+
+    /** The fewest sticks a move takes **/
+    public int minTake() { return (takes == null) ? 1 : takes[0]; }
+
+    /** Can anything be taken from a row of this many sticks? **/
+    public boolean canMove(int sticks) { return sticks >= minTake(); }
+
+    /** The number of different moves from a row of this many sticks **/
+    public int moves(int sticks) {
+	if (takes == null) return Math.max(sticks, 0);
+	int n = 0;
+	while (n < takes.length && takes[n] <= sticks) n++;
+	return n;
+    }
+
+    /** The i-th smallest amount that can be taken (0 <= i < moves(sticks)) **/
+    public int take(int i) { return (takes == null) ? i + 1 : takes[i]; }
+
+    @Override
+    public boolean equals(Object o) {
+	return (o instanceof NimRule) && Arrays.equals(takes, ((NimRule) o).takes);
+    }
+
+    @Override
+    public int hashCode() { return Arrays.hashCode(takes); }
+
+    @Override
+    public String toString() {
+	if (takes == null) return "ANY";
+	StringBuilder s = new StringBuilder();
+	for (int i = 0; i < takes.length; i++) s.append(i == 0 ? "" : "_").append(takes[i]);
+	return s.toString();
+    }
+}
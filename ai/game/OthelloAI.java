@@ -13,9 +13,15 @@
 package cad.ai.game;
 
 import java.util.Random;
-import java.util.concurrent.ThreadLocalRandom;
-import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import cad.ai.game.*;
+import cad.ai.search.Position;
+import cad.ai.search.SearchEngine;
+import cad.ai.search.TranspositionTable;
 
 /***********************************************************
  * The AI system for a OthelloGame.
@@ -26,27 +32,215 @@ import cad.ai.game.*;
 public class OthelloAI extends AbstractAI
  {
     public OthelloGame game;  // The game that this AI system is playing
-    public OthelloGame practiceGame; 
-    public boolean DEBUG = false; 
     protected Random ran;
     int currentPlayer; 
-    private int movesMade;  
-    private int maxDepth = 7; 
+    public static final int DEFAULT_TABLE_BITS = 20;  // 2^20 transposition table slots (16MB)
+    private TranspositionTable table;  // Kept between moves of a game so earlier searches help later ones
+
+    // Iterative deepening on one or more threads
+    public static final long DEFAULT_MOVE_TIME = 1000;  // Milliseconds to think per move
+    public static final int DEFAULT_THREADS = Runtime.getRuntime().availableProcessors();
+    private long moveTime;            // Time budget per move (ms)
+    private SearchEngine[] searches;  // searches[0] runs on the AI's thread, the rest are helpers
+    private OthelloBitPosition[] positions;  // Each search's board (up to 8x8)
+    private OthelloPosition[] largeBoards;   // ... or for boards too big for a bitboard
+    private ExecutorService helpers;  // Threads for the helper searches (null if just one thread)
+    private int moveOrdering = SearchEngine.ALL;  // Move ordering heuristics the searches use
+    private SearchEngine.Algorithm algorithm = SearchEngine.Algorithm.PVS;
+    private int searchDepth = 0;      // Deepest iteration (0 = as deep as time allows)
+    private OthelloEvaluator evaluator = new OthelloPatternEvaluator();  // Each search gets its own copy
+    private OthelloProbCut probCut = OthelloProbCut.getDefault();  // Selective search (null = exact)
+
+    // Exact endgame solving once few enough squares are left
+    public static final int DEFAULT_ENDGAME_EMPTIES = 18;
+    private int endgameEmpties = DEFAULT_ENDGAME_EMPTIES;  // Solve exactly at this many empties or fewer
+    private OthelloEndgame endgame = new OthelloEndgame();
+
+    // Opening book (shared, read-only) - consulted before any searching
+    private OthelloBook book = OthelloBook.getDefault();
+    private OthelloBoard bookPosition = new OthelloBoard(OthelloBoard.MAX_DIM, OthelloBoard.MAX_DIM);
+
+    // Pondering: searching the predicted reply while the opponent thinks
+    public static final int PONDER_LIMIT = 10;   // A ponder search gives up after this many move times
+    private boolean ponder = false;
+    private ExecutorService ponderer;            // Runs the ponder search (null if not pondering)
+    private Future<SearchEngine> ponderTask;    // The running ponder search (null if none)
+    private OthelloBoard ponderPosition;         // The position it is searching
     
     public OthelloAI()
+     {
+        this(DEFAULT_MOVE_TIME);
+    }
+
+    /**
+     * moveTime - How long (in milliseconds) to think about each move
+     **/
+    public OthelloAI(long moveTime)
+     {
+        this(moveTime, DEFAULT_THREADS);
+    }
+
+    /**
+     * moveTime - How long (in milliseconds) to think about each move
+     * threads  - How many threads to search with
+     **/
+    public OthelloAI(long moveTime, int threads)
      {
         System.out.println("DEBUG: Creating AI.");
     	game = null;
     	ran = new Random();
-        practiceGame = new OthelloGame(-1, null, null, false, 0);
+        table = new TranspositionTable(DEFAULT_TABLE_BITS, TranspositionTable.Replacement.DEPTH_AND_AGE);
+        this.moveTime = moveTime;
+        setThreads(threads);
+    }
+
+    public synchronized void setMoveTime(long moveTime) { this.moveTime = moveTime; }
+    public long getMoveTime() { return moveTime; }
+
+    /**
+     * Search with this many threads (Lazy SMP - helpers share the transposition table)
+     **/
+    public synchronized void setThreads(int threads)
+    {
+        stopPondering();
+        if (threads < 1) threads = 1;
+        if (helpers != null) helpers.shutdownNow();
+        searches = new SearchEngine[threads];
+        positions = new OthelloBitPosition[threads];
+        largeBoards = new OthelloPosition[threads];
+        for (int i = 0; i < threads; i++)
+        {
+            searches[i] = new SearchEngine(table, i);
+            searches[i].setMoveOrdering(moveOrdering);
+            searches[i].setAlgorithm(algorithm);
+            searches[i].setProbCut(probCut);
+            positions[i] = new OthelloBitPosition();
+            positions[i].setEvaluator(evaluator);
+            largeBoards[i] = new OthelloPosition();
+        }
+        helpers = (threads == 1) ? null : Executors.newFixedThreadPool(threads - 1, new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "OthelloAI helper");
+                    t.setDaemon(true);  // Don't keep the program alive just for these
+                    return t;
+                }
+            });
+    }
+    public int getThreads() { return searches.length; }
+
+    /**
+     * Which move ordering heuristics to search with, e.g. SearchEngine.ALL
+     * or 0 for none (to compare the first-move cutoff rates)
+     **/
+    public synchronized void setMoveOrdering(int heuristics)
+    {
+        stopPondering();
+        moveOrdering = heuristics;
+        for (SearchEngine s: searches) s.setMoveOrdering(heuristics);
+    }
+    public int getMoveOrdering() { return moveOrdering; }
+
+    /**
+     * Search with PVS (default) or the plain alpha-beta (to compare node counts)
+     **/
+    public synchronized void setAlgorithm(SearchEngine.Algorithm algorithm)
+    {
+        stopPondering();
+        this.algorithm = algorithm;
+        for (SearchEngine s: searches) s.setAlgorithm(algorithm);
+    }
+    public SearchEngine.Algorithm getAlgorithm() { return algorithm; }
+
+    /**
+     * Stop deepening at this depth even if there is time left (0 = no limit).
+     * Useful to compare searches on the same positions.
+     **/
+    public synchronized void setSearchDepth(int depth)
+    {
+        stopPondering();
+        this.searchDepth = depth;
+    }
+    public int getSearchDepth() { return searchDepth; }
+
+    /**
+     * Evaluate positions with this kind of evaluator (each search thread gets its own)
+     **/
+    public synchronized void setEvaluator(OthelloEvaluator evaluator)
+    {
+        stopPondering();
+        this.evaluator = evaluator;
+        for (OthelloBitPosition p: positions) p.setEvaluator(evaluator);
+    }
+    public OthelloEvaluator getEvaluator() { return evaluator; }
+
+    /**
+     * Prune the PVS search with Multi-ProbCut using these parameters
+     * (null for an exact search)
+     **/
+    public synchronized void setProbCut(OthelloProbCut probCut)
+    {
+        stopPondering();
+        this.probCut = probCut;
+        for (SearchEngine s: searches) s.setProbCut(probCut);
+    }
+    public OthelloProbCut getProbCut() { return probCut; }
+
+    /**
+     * Solve the game exactly (instead of searching with the heuristic) once
+     * there are this many empty squares or fewer.  0 turns the solver off.
+     **/
+    public synchronized void setEndgameEmpties(int empties) { this.endgameEmpties = empties; }
+    public int getEndgameEmpties() { return endgameEmpties; }
+
+    /**
+     * Use this opening book (an empty OthelloBook turns the book off)
+     **/
+    public synchronized void setBook(OthelloBook book) { this.book = book; }
+    public OthelloBook getBook() { return book; }
+
+    /**
+     * Ponder: after each move keep searching (on another thread) the position
+     * after the opponent's most likely reply.  If the opponent plays it the
+     * search carries on as this AI's next search, otherwise it is stopped.
+     * The transposition table keeps what was found either way.
+     **/
+    public synchronized void setPonder(boolean ponder)
+    {
+        stopPondering();
+        this.ponder = ponder;
+        if (ponder && ponderer == null)
+            ponderer = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                    public Thread newThread(Runnable r) {
+                        Thread t = new Thread(r, "OthelloAI ponder");
+                        t.setDaemon(true);  // Don't keep the program alive just for this
+                        return t;
+                    }
+                });
+        else if (!ponder && ponderer != null)
+        {
+            ponderer.shutdownNow();
+            ponderer = null;
+        }
+    }
+    public boolean getPonder() { return ponder; }
+
+    /**
+     * Use a transposition table with 2^bits slots and the given replacement policy
+     **/
+    public synchronized void setTranspositionTable(int bits, TranspositionTable.Replacement replacement)
+    {
+        stopPondering();
+        table = new TranspositionTable(bits, replacement);
+        for (SearchEngine s: searches) s.setTable(table);
     }
 
     public synchronized void attachGame(Game g) 
     {
         System.out.println("DEBUG: Attaching game.");
+        stopPondering();
     	game = (OthelloGame) g;
-        movesMade = 2; 
         currentPlayer = game.getPlayer();
+        table.clear();  // A new game (maybe a new board size) - old positions won't come up again
     }
     
     /**
@@ -65,51 +259,44 @@ public class OthelloAI extends AbstractAI
         // Determine Maximum score among all opponent's options (max of min)
         OthelloGame.Action bestAction = null;
 
-        // Possible actions the AI is able to make, based upon whether it's home or away 
-        ArrayList<OthelloGame.Action> actions = game.getActions(currentPlayer);
-
         // Lowest Integer Value 
         int bestScore = Integer.MIN_VALUE;  
 
-        System.out.println("AI: Moves made=" + movesMade);
-        if(movesMade != 0 )
+        // Boards up to 8x8 are searched on bitboards (with the book, endgame solver and pondering)
+        long start = System.nanoTime();
+        if (OthelloBoard.fits(board.length, board[0].length))
         {
-            int randomNum = ThreadLocalRandom.current().nextInt(0, actions.size());
-            
-            bestAction = actions.get(randomNum); 
-            bestScore = -1; 
-
-            movesMade--; 
+            SearchEngine pondered = finishPondering(board, start);
+            int sq;
+            if (pondered != null)
+            {
+                sq = pondered.getBestMove();
+                bestScore = pondered.getBestScore();
+            }
+            else if ((sq = bookMove(board)) != OthelloBook.NO_MOVE)
+            {
+                bestScore = book.score(bookPosition, currentPlayer);
+            }
+            else if ((sq = solveEndgame(board, start)) != OthelloEndgame.NO_MOVE)
+            {
+                bestScore = endgame.getScore();
+            }
+            else
+            {
+                SearchEngine best = searchParallel(board, start);
+                sq = best.getBestMove();
+                bestScore = best.getBestScore();
+            }
+            bestAction = new OthelloGame.Action(OthelloBoard.row(sq), OthelloBoard.col(sq));
+            if (ponder) startPondering(board, sq);
         }
         else
         {
-            // Alpha-Beta Pruning Variables
-            int alpha = Integer.MIN_VALUE;
-            int beta = Integer.MAX_VALUE;
-
-            // For every actions
-            for (OthelloGame.Action a: actions)
-            {
-                // MiniMax 
-                //int score = (currentPlayer == 0) ? minValue(board, a) : -maxValue(board, a); 
-
-                // MiniMax - Alpha-Beta Pruning
-                //int score = (currentPlayer == 0) ? minValue(board,a,alpha,beta) : -maxValue(board,a,-beta,-alpha);
-
-                // MiniMax - Depth
-                //int score = (currentPlayer == 0) ? minValue(board, a, maxDepth) : -maxValue(board, a, maxDepth);
-
-                // MiniMax - Alpha-Beta Pruning - Depth
-                int score = (currentPlayer == 0) ? minValue(board, a, alpha, beta, maxDepth) : -maxValue(board, a, alpha, beta, maxDepth); 
-                
-                if (score > bestScore) 
-                {
-                    bestAction = a;
-                    bestScore = score;
-
-                    if(bestScore > alpha) alpha = bestScore;
-                }
-            }
+            // Too big for a bitboard - the same search on the char[][] board
+            SearchEngine best = searchParallel(board, start);
+            int sq = best.getBestMove();
+            bestScore = best.getBestScore();
+            bestAction = new OthelloGame.Action(sq / board[0].length, sq % board[0].length);
         }
 
         // First get the list of possible moves
@@ -118,346 +305,209 @@ public class OthelloAI extends AbstractAI
         return bestAction.toString();
     }	
 
-    /*********************************************************************************
-     *                              MIN VALUE FUNCTIONS                              *
-     *********************************************************************************/
-
     /******************************************************
-    * board  - The current board state
-    * action - the action the other player wants to make
+    * Look the position up in the opening book.
+    * board - The current board
+    * Returns the book square, or OthelloBook.NO_MOVE if not in the book
     *******************************************************/
-    private int minValue(char[][] board, OthelloGame.Action action) 
-    { 
-        //if(DEBUG) System.out.println("Action is NULL? " + (action == null));
-
-        // Determine if the board is a terminal board, in addition to updating the working board to reflect our clone 
-        practiceGame.updateState(1, board);
-        if(action != null)
-        {
-            boolean res = practiceGame.processMove(0,action.row,action.col);
-            if (practiceGame.computeWinner()) return practiceGame.getHomeScore() - practiceGame.getAwayScore();
-        }
-
-        char[][] newBoard = (char[][]) practiceGame.getStateAsObject();
-
-        // Once again determine the possible actions based upon the other player 
-        ArrayList<OthelloGame.Action> actions = practiceGame.getActions(1);
-        if(actions.size() == 0) return maxValue(newBoard, null);
-
-
-        // Determine Maximum value among all possible actions
-        int bestScore = Integer.MAX_VALUE; // Positive "Infinity"
-        for (OthelloGame.Action a: actions)
-        {
-            int score = maxValue(newBoard, a);
-            if (score < bestScore) bestScore = score;
-        }
-
-        return bestScore;
+    private int bookMove(char[][] board)
+    {
+        if (bookPosition.rows != board.length || bookPosition.cols != board[0].length)
+            bookPosition = new OthelloBoard(board.length, board[0].length);
+        bookPosition.set(currentPlayer, board);
+        int sq = book.lookup(bookPosition, currentPlayer);
+        if (sq != OthelloBook.NO_MOVE && !bookPosition.isValidMove(currentPlayer, sq)) sq = OthelloBook.NO_MOVE;  // A bad book
+        if (sq != OthelloBook.NO_MOVE)
+            System.out.println("AI: Book move, Score=" + book.score(bookPosition, currentPlayer));
+        return sq;
     }
 
     /******************************************************
-    * board  - The current board state
-    * action - The action the other player wants to make
-    * _depth - The current searchs' instance depth level 
+    * Try to solve the game exactly (if few enough squares are left).
+    * The solver gets half of the move time - if it can't finish
+    * the normal search gets what is left.
+    * board - The current board
+    * start - System.nanoTime() when we started thinking
+    * Returns the best square, or OthelloEndgame.NO_MOVE if not solved
     *******************************************************/
-    private int minValue(char[][] board, OthelloGame.Action action, int _depth) 
+    private int solveEndgame(char[][] board, long start)
     {
-        int currentDepth = _depth; 
-        if(DEBUG) {System.out.println("MIN Value Depth: " + currentDepth); System.out.println("Action is NULL? " + (action == null));}
-
-        // Determine if the board is a terminal board, in addition to updating the working board to reflect our clone 
-        practiceGame.updateState(1, board);
-        if(action != null)
-        {
-            boolean res = practiceGame.processMove(0,action.row,action.col);
-            if (practiceGame.computeWinner() || currentDepth <= 0) 
-            {
-                if(_depth == 0 && DEBUG) System.out.println("Ending via depth");
-                return practiceGame.getHomeScore() - practiceGame.getAwayScore();
-            }
-        }
-
-        // Copy the working state of the board for further evaluation 
-        char[][] newBoard = (char[][]) practiceGame.getStateAsObject();
-
-        // Once again determine the possible actions based upon the other player 
-        ArrayList<OthelloGame.Action> actions = practiceGame.getActions(1);
-        if(actions.size() == 0) return maxValue(newBoard, null, currentDepth - 1);
-
-
-        // Determine Maximum value among all possible actions
-        int bestScore = Integer.MAX_VALUE;
-        for (OthelloGame.Action a: actions)
-        {
-            int score = maxValue(newBoard, a, currentDepth); 
-            if (score < bestScore) bestScore = score;
-        }
-
-        return bestScore;
+        OthelloBoard position = new OthelloBoard(board.length, board[0].length);
+        position.set(currentPlayer, board);
+        if (Long.bitCount(position.empty()) > endgameEmpties) return OthelloEndgame.NO_MOVE;
+
+        long budget = moveTime * 1000000L;
+        int sq = endgame.solve(position, currentPlayer, start + budget / 2);
+        long ms = (System.nanoTime() - start) / 1000000;
+        if (sq == OthelloEndgame.NO_MOVE)
+            System.out.println("AI: Endgame not solved, Nodes=" + endgame.getNodes() + " Time=" + ms + "ms");
+        else
+            System.out.println("AI: Endgame solved, Discs=" + endgame.getScore() + " Nodes=" + endgame.getNodes() + " Time=" + ms + "ms");
+        return sq;
     }
 
     /******************************************************
-    * board  - The current board state
-    * action - The action the other player wants to make
-    * _depth - The current searchs' instance depth level 
+    * Run the searches: the helpers on their own threads and the main
+    * search on this one.  When the main search is done (it watches the
+    * clock) the helpers are stopped.  The result is from whichever search
+    * finished the deepest iteration (the main one if tied).
+    * board - The current board
+    * start - System.nanoTime() when we started thinking
     *******************************************************/
-    private int minValue(char[][] board, OthelloGame.Action action, int _alpha, int _beta) 
+    private SearchEngine searchParallel(char[][] board, long start)
     {
-        //if(DEBUG) {System.out.println("Alpha: " + _alpha + " Beta: " + _beta);}
-
-        // Determine if the board is a terminal board, in addition to updating the working board to reflect our clone 
-        practiceGame.updateState(1, board);
-        if(action != null)
-        {
-            boolean res = practiceGame.processMove(0,action.row,action.col);
-            if (practiceGame.computeWinner()) 
-            {
-                return practiceGame.getHomeScore() - practiceGame.getAwayScore();
-            }
-        }
-
-        // Copy the working state of the board for further evaluation 
-        char[][] newBoard = (char[][]) practiceGame.getStateAsObject();
-
-        // Once again determine the possible actions based upon the other player 
-        ArrayList<OthelloGame.Action> actions = practiceGame.getActions(1);
-        if(actions.size() == 0) return maxValue(newBoard, null, _alpha, _beta);
-
-
-        // Determine Maximum value among all possible actions
-        int bestScore = Integer.MAX_VALUE;
-        for (OthelloGame.Action a: actions)
-        {
-            int score = maxValue(newBoard, a, _alpha, _beta); 
-            if (score < bestScore) 
-            {
-                bestScore = score;
-
-                if(bestScore <= _alpha) return bestScore; 
-
-                if(bestScore < _beta) _beta = bestScore;
-            }
-        }
-
-        return bestScore;
+        table.newSearch();
+        setup(board, start, moveTime * 1000000L);
+        return runSearches(start);
     }
 
     /******************************************************
-    * board  - The current board state
-    * action - the action the other player wants to make
-    * _alpha - Reference to the aplha integer value
-    * _beta  - Reference to the beta integer value 
-    * _depth - The current searchs' instance depth level 
+    * Set every search up on its own copy of the board (a bitboard
+    * one if it fits), to search no deeper than the squares left.
+    * board  - The board (currentPlayer to move)
+    * start  - System.nanoTime() when we started thinking
+    * budget - How long the searches may take (ns)
     *******************************************************/
-    private int minValue(char[][] board, OthelloGame.Action action, int _alpha, int _beta, int _depth) 
+    private void setup(char[][] board, long start, long budget)
     {
-        int currentDepth = _depth; 
-        //if(DEBUG) {System.out.println("MIN Value Depth: " + currentDepth); System.out.println("Action is NULL? " + (action == null)); }
-
-        // Determine if the board is a terminal board, in addition to updating the working board to reflect our clone 
-        practiceGame.updateState(1, board);
-        if(action != null)
+        boolean bits = OthelloBoard.fits(board.length, board[0].length);
+        int empties = 0;
+        for (char[] row: board)
+            for (char c: row)
+                if (c != 'X' && c != 'O') empties++;
+        int lastDepth = (searchDepth > 0 && searchDepth < empties) ? searchDepth : empties;
+        for (int i = 0; i < searches.length; i++)
         {
-            boolean res = practiceGame.processMove(0,action.row,action.col);
-            if (practiceGame.computeWinner() || currentDepth <= 0) 
+            Position position;
+            if (bits)
             {
-                //if(_depth == 0 && DEBUG) System.out.println("Ending via depth");
-                return practiceGame.getHomeScore() - practiceGame.getAwayScore();
+                positions[i].set(board, currentPlayer);
+                position = positions[i];
             }
-        }
-
-        // Copy the working state of the board for further evaluation 
-        char[][] newBoard = (char[][]) practiceGame.getStateAsObject();
-
-        // Once again determine the possible actions based upon the other player 
-        ArrayList<OthelloGame.Action> actions = practiceGame.getActions(1);
-        if(actions.size() == 0) return maxValue(newBoard, null, _alpha, _beta, currentDepth - 1);
-
-        // Determine Maximum value among all possible actions
-        int bestScore = Integer.MAX_VALUE; // Positive "Infinity"
-        for (OthelloGame.Action a: actions)
-        {
-            int score = maxValue(newBoard, a, _alpha, _beta, currentDepth - 1); 
-            if (score < bestScore) 
+            else
             {
-                bestScore = score;
-
-                if(bestScore <= _alpha) return bestScore; 
-
-                if(bestScore < _beta) _beta = bestScore;
+                largeBoards[i].set(board, currentPlayer);
+                position = largeBoards[i];
             }
+            searches[i].setup(position, lastDepth, start, budget);
         }
-
-        return bestScore;
     }
 
-
-    /*********************************************************************************
-     *                              MAX VALUE FUNCTIONS                              *
-     *********************************************************************************/
-
-    private int maxValue(char[][] board, OthelloGame.Action action, int _alpha, int _beta, int _depth) 
+    /******************************************************
+    * Run searches that have been set up (see searchParallel).
+    * start - System.nanoTime() when we started thinking
+    *******************************************************/
+    private SearchEngine runSearches(long start)
     {
-        int currentDepth = _depth; 
-        //if(DEBUG) {System.out.println("MAX Value Depth: " + currentDepth); System.out.println("Action is NULL? " + (action == null)); }
-
-         // Determine if the board is a terminal board, in addition to updating the working board to reflect our clone 
-        practiceGame.updateState(0, board);
-        if(action != null)
-        {
-            boolean res = practiceGame.processMove(1,action.row,action.col);
-            if (practiceGame.computeWinner() || currentDepth <= 0) 
-            {
-                //if(_depth == 0 && DEBUG) System.out.println("Ending via depth");
-                return practiceGame.getHomeScore() - practiceGame.getAwayScore();
-            }
-        }
-
-        // Copy the working state of the board for further evaluation 
-        char[][] newBoard = (char[][]) practiceGame.getStateAsObject();
-
-        // Once again determine the possible actions based upon the player, and behind the scenes, our working baord aka clone 
-        ArrayList<OthelloGame.Action> actions = practiceGame.getActions(0);
-        if(actions.size() == 0) return minValue(newBoard, null, _alpha, _beta, currentDepth - 1);
-
-        // Determine Maximum value among all possible actions
-        int bestScore = Integer.MIN_VALUE; // Positive "Infinity"
-        for (OthelloGame.Action a: actions)
+        Future<?>[] running = new Future<?>[searches.length];
+        for (int i = 1; i < searches.length; i++) running[i] = helpers.submit(searches[i]);
+        searches[0].call();
+        for (int i = 1; i < searches.length; i++) searches[i].stop();
+
+        SearchEngine best = searches[0];
+        long nodes = searches[0].getNodes();
+        long cuts = searches[0].getCutNodes();
+        long firstCuts = searches[0].getFirstMoveCuts();
+        for (int i = 1; i < searches.length; i++)
         {
-            int score = minValue(newBoard, a, _alpha, _beta, currentDepth - 1); // Here
-            if (score > bestScore)
-            {
-                bestScore = score;
-
-                if(bestScore >= _beta) return bestScore; 
-
-                if(bestScore > _alpha) _alpha = bestScore;
-            }
+            try { running[i].get(); } catch (Exception e) { continue; }  // Treat a failed helper as if it never ran
+            nodes += searches[i].getNodes();
+            cuts += searches[i].getCutNodes();
+            firstCuts += searches[i].getFirstMoveCuts();
+            if (searches[i].getBestDepth() > best.getBestDepth()) best = searches[i];
         }
 
-        return bestScore;
+        long ms = (System.nanoTime() - start) / 1000000;
+        System.out.println("AI: Depth=" + best.getBestDepth() + " Nodes=" + nodes + " Time=" + ms + "ms" +
+                           " Threads=" + searches.length + " Search=" + algorithm +
+                           " FirstMoveCuts=" + (cuts == 0 ? 0 : 100 * firstCuts / cuts) + "%");
+        return best;
     }
 
-        /******************************************************
-    * board  - The current board state
-    * action - The action the other player wants to make
-    * _depth - The current searchs' instance depth level 
+    /******************************************************
+    * Start pondering once our move is chosen: predict the opponent's
+    * reply (the best move the table has for them) and search the
+    * position after it on the ponder thread, with no time limit
+    * (but see PONDER_LIMIT).  Positions the book or the endgame
+    * solver will take care of are not pondered.
+    * board - The board before our move
+    * sq    - Our move
     *******************************************************/
-    private int maxValue(char[][] board, OthelloGame.Action action, int _alpha, int _beta) 
+    private void startPondering(char[][] board, int sq)
     {
-        if(DEBUG) { System.out.println("Alpha:  " + _alpha + " Beta: " + _beta); }
-
-         // Determine if the board is a terminal board, in addition to updating the working board to reflect our clone 
-        practiceGame.updateState(0, board);
-        if(action != null)
+        OthelloBoard position = new OthelloBoard(board.length, board[0].length);
+        position.set(currentPlayer, board);
+        position.play(currentPlayer, sq);
+        int opponent = currentPlayer ^ 1;
+        position.setTurn(opponent);
+        if (position.moves(opponent) != 0)
         {
-            boolean res = practiceGame.processMove(1,action.row,action.col);
-            if (practiceGame.computeWinner()) 
-            {
-                return practiceGame.getHomeScore() - practiceGame.getAwayScore();
-            }
+            long entry = table.probe(position.hash);
+            int reply = (entry == 0) ? TranspositionTable.NO_MOVE : TranspositionTable.move(entry);
+            if (reply == TranspositionTable.NO_MOVE || !position.isValidMove(opponent, reply)) return;  // No idea what they will do
+            position.play(opponent, reply);
         }
-
-        // Copy the working state of the board for further evaluation 
-        char[][] newBoard = (char[][]) practiceGame.getStateAsObject();
-
-        // Once again determine the possible actions based upon the player, and behind the scenes, our working baord aka clone 
-        ArrayList<OthelloGame.Action> actions = practiceGame.getActions(0);
-        if(actions.size() == 0) return minValue(newBoard, null, _alpha, _beta);
-
-        // Determine Maximum value among all possible actions
-        int bestScore = Integer.MIN_VALUE; // Positive "Infinity"
-        for (OthelloGame.Action a: actions)
-        {
-            int score = minValue(newBoard, a, _alpha, _beta); // Here
-            if (score > bestScore)
-            {
-                bestScore = score;
-
-                if(bestScore >= _beta) return bestScore; 
-
-                if(bestScore > _alpha) _alpha = bestScore;
-            }
-        }
-
-        return bestScore;
+        position.setTurn(currentPlayer);
+        if (position.moves(currentPlayer) == 0) return;
+        if (Long.bitCount(position.empty()) <= endgameEmpties) return;
+        if (book.lookup(position, currentPlayer) != OthelloBook.NO_MOVE) return;
+
+        char[][] next = new char[board.length][board[0].length];
+        position.fill(next);
+
+        table.newSearch();
+        final long start = System.nanoTime();
+        setup(next, start, PONDER_LIMIT * moveTime * 1000000L);
+        ponderPosition = position;
+        ponderTask = ponderer.submit(new Callable<SearchEngine>() {
+                public SearchEngine call() { return runSearches(start); }
+            });
     }
 
     /******************************************************
-    * board  - The current board state
-    * action - The action the other player wants to make
-    * _depth - The current searchs' instance depth level 
+    * Our turn has come: if the ponder search is on this position
+    * (the prediction was right) it becomes this move's search,
+    * with the usual time limit counted from now.  Otherwise it
+    * is stopped.  Either way it has finished on return.
+    * board - The current board
+    * start - System.nanoTime() when we started thinking
+    * Returns the finished ponder search if it was on this position, else null
     *******************************************************/
-    private int maxValue(char[][] board, OthelloGame.Action action, int _depth) 
+    private SearchEngine finishPondering(char[][] board, long start)
     {
-        int currentDepth = _depth; 
-        if(DEBUG) { System.out.println("MAX Value Depth: " + currentDepth);System.out.println("Action is NULL? " + (action == null)); }
-
-         // Determine if the board is a terminal board, in addition to updating the working board to reflect our clone 
-        practiceGame.updateState(0, board);
-        if(action != null)
-        {
-            boolean res = practiceGame.processMove(1,action.row,action.col);
-            if (practiceGame.computeWinner() || currentDepth <= 0) 
-            {
-                if(_depth == 0 && DEBUG) System.out.println("Ending via depth");
-                return practiceGame.getHomeScore() - practiceGame.getAwayScore();
-            }
-        }
-
-        // Copy the working state of the board for further evaluation 
-        char[][] newBoard = (char[][]) practiceGame.getStateAsObject();
-
-        // Once again determine the possible actions based upon the player, and behind the scenes, our working baord aka clone 
-        ArrayList<OthelloGame.Action> actions = practiceGame.getActions(0);
-        if(actions.size() == 0) return minValue(newBoard, null, currentDepth - 1);
-
-        // Determine Maximum value among all possible actions
-        int bestScore = Integer.MIN_VALUE; // Positive "Infinity"
-        for (OthelloGame.Action a: actions)
-        {
-            int score = minValue(newBoard, a, currentDepth - 1); // Here
-            if (score > bestScore) bestScore = score;
-        }
-
-        return bestScore;
+        if (ponderTask == null) return null;
+        OthelloBoard position = new OthelloBoard(board.length, board[0].length);
+        position.set(currentPlayer, board);
+        boolean hit = position.rows == ponderPosition.rows && position.cols == ponderPosition.cols &&
+                      position.home == ponderPosition.home && position.away == ponderPosition.away;
+        if (hit)
+            for (SearchEngine s: searches) s.setTimeLimit(start, moveTime * 1000000L);
+        SearchEngine result = stopPondering(!hit);
+        System.out.println("AI: Ponder " + (hit ? "hit" : "miss"));
+        return hit ? result : null;
     }
 
     /******************************************************
-    * board  - The current board state
-    * action - the action the other player wants to make
+    * Stop pondering (if we are) and wait for the search to end
     *******************************************************/
-    private int maxValue(char[][] board, OthelloGame.Action action) 
+    private void stopPondering()
     {
-        // Determine if the board is a terminal board, in addition to updating the working board to reflect our clone 
-        practiceGame.updateState(0, board);
-        if(action != null)
-        {
-            boolean res = practiceGame.processMove(1,action.row,action.col);
-            if (practiceGame.computeWinner()) 
-            {
-                // We have a winner - return its Utility
-                return practiceGame.getHomeScore() - practiceGame.getAwayScore();
-            }
-        }
-
-        // Copy the working state of the board for further evaluation 
-        char[][] newBoard = (char[][]) practiceGame.getStateAsObject();
-
-        // Once again determine the possible actions based upon the player, and behind the scenes, our working baord aka clone 
-        ArrayList<OthelloGame.Action> actions = practiceGame.getActions(0);
-        if(actions.size() == 0) return minValue(newBoard, null);
-
-        // Determine Maximum value among all possible actions
-        int bestScore = Integer.MIN_VALUE;
-        for (OthelloGame.Action a: actions)
-        {
-            int score = minValue(newBoard, a); // Here
-            if (score > bestScore) bestScore = score;
-        }
+        stopPondering(true);
+    }
 
-        return bestScore;
+    /******************************************************
+    * Wait for the ponder search to end (stopping it first if asked to).
+    * Returns the ponder search, or null if there was none (or it failed)
+    *******************************************************/
+    private SearchEngine stopPondering(boolean stop)
+    {
+        if (ponderTask == null) return null;
+        if (stop) searches[0].stop();  // The helpers are stopped when the main search ends
+        SearchEngine result;
+        try { result = ponderTask.get(); } catch (Exception e) { result = null; }
+        ponderTask = null;
+        ponderPosition = null;
+        return result;
     }
 
     /**
@@ -468,6 +518,7 @@ public class OthelloAI extends AbstractAI
     public synchronized void postWinner(char result) {
 	// This AI probably wants to store what it has learned
 	// about this particular game.
+	stopPondering();
 	game = null;  // No longer playing a game though.
     }
 
@@ -478,5 +529,8 @@ public class OthelloAI extends AbstractAI
     public synchronized void end() {
 	// This AI probably wants to store (in a file) what
 	// it has learned from playing all the games so far...
+	stopPondering();
+	if (ponderer != null) ponderer.shutdownNow();
+	if (helpers != null) helpers.shutdownNow();
     }
 }
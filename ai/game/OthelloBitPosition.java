@@ -0,0 +1,125 @@
+/*******************
+ * Christian A. Duncan
+ * Edited: Diego Holguin
+ * CSC350: Intelligent Systems
+ * Spring 2017
+ *
+ * AI Game Client
+ * This project is designed to support multiple game platforms to test
+ * AI-based solutions.
+ * See README file for more details.
+ ********************/
+
+package cad.ai.game;
+
+import cad.ai.search.Position;
+
+/***********************************************************
+ * An Othello board that fits a bitboard (up to 8x8) for the
+ * SearchEngine.  Moves are made and undone on a practice OthelloGame,
+ * which keeps its evaluator up to date as it goes.
+ *   Moves are squares (see OthelloBoard.square) and a pass is PASS.
+ *   The heuristic score is the evaluator's; a finished game scores
+ *   FINAL_SCALE per disc of difference, so any win is worth more than
+ *   any heuristic score.
+ *   The static prior is the square class: corners, then edges, then
+ *   the middle, and the squares next to corners (C then X) last.
+ ***********************************************************/
+public class OthelloBitPosition implements Position {
+    public static final int PASS = 64;           // The move used for a pass (OthelloBoard.PASS is negative)
+    public static final int FINAL_SCALE = 1000;  // Score per disc of a finished game
+    private static final int MAX_MOVES = 34;     // More than the moves possible in any position
+
+    // Square classes of the static prior (higher goes first)
+    private static final int X_SQUARE = 0, C_SQUARE = 1, INTERIOR = 2, EDGE = 3, CORNER = 4;
+
+    private final OthelloGame practiceGame = new OthelloGame(-1, null, null, false, 0);
+    private long boardMask;                      // The board the square classes were made for
+    private final int[] squareClass = new int[64];
+
+    public OthelloBitPosition() {
+	practiceGame.setEvaluator(new OthelloPatternEvaluator());
+    }
+
+    /** Evaluate positions with (a copy of) this evaluator **/
+    public void setEvaluator(OthelloEvaluator evaluator) { practiceGame.setEvaluator(evaluator.newEvaluator()); }
+
+    /**
+     * Set the position to a copy of the board (which must fit a
+     * bitboard) with the given player to move
+     **/
+    public void set(char[][] board, int turn) {
+	practiceGame.updateState(turn, board);
+	OthelloBoard b = practiceGame.getBits();
+	if (b.mask != boardMask) setSquareClasses(b);
+    }
+
+    /** Set the position to a copy of the discs of a bitboard (its turn to move) **/
+    public void set(OthelloBoard board) {
+	char[][] c = new char[board.rows][board.cols];
+	board.fill(c);
+	set(c, board.turn);
+    }
+
+    /** The bitboard being searched (the live board - do not modify it) **/
+    public OthelloBoard getBits() { return practiceGame.getBits(); }
+
+    public int maxMoves() { return MAX_MOVES; }
+
+    public int generateMoves(int[] moves, int offset) {
+	int side = practiceGame.getTurn();
+	long m = practiceGame.getMoves(side);
+	if (m == 0) {
+	    // Pass if the other player can move, otherwise the game is over
+	    if (practiceGame.getMoves(side ^ 1) == 0) return 0;
+	    moves[offset] = PASS;
+	    return 1;
+	}
+	int n = 0;
+	for (; m != 0; m &= m - 1) moves[offset + n++] = Long.numberOfTrailingZeros(m);
+	return n;
+    }
+
+    public void makeMove(int move) { practiceGame.makeMove((move == PASS) ? OthelloBoard.PASS : move); }
+
+    public void undoMove() { practiceGame.undoMove(); }
+
+    public long hash() { return practiceGame.getHash(); }
+
+    public int evaluate() {
+	int side = practiceGame.getTurn();
+	int sign = (side == 0) ? 1 : -1;  // The evaluator scores from Home's point of view
+	if (practiceGame.getMoves(side) == 0 && practiceGame.getMoves(side ^ 1) == 0) {
+	    OthelloBoard b = practiceGame.getBits();
+	    return sign * FINAL_SCALE * (Long.bitCount(b.home) - Long.bitCount(b.away));
+	}
+	return sign * practiceGame.evaluate();
+    }
+
+    public int side() { return practiceGame.getTurn(); }
+
+    public int moveLimit() { return PASS + 1; }
+
+    public int priority(int move) { return (move == PASS) ? 0 : squareClass[move]; }
+
+    /** Work out the square classes for a board **/
+    private void setSquareClasses(OthelloBoard board) {
+	boardMask = board.mask;
+	for (int r = 0; r < board.rows; r++)
+	    for (int c = 0; c < board.cols; c++)
+		squareClass[OthelloBoard.square(r, c)] = squareClass(r, c, board.rows, board.cols);
+    }
+
+    /**
+     * The class of square (r, c) on a rows x cols board, from X_SQUARE
+     * (worst) to CORNER (best)
+     **/
+    public static int squareClass(int r, int c, int rows, int cols) {
+	int dr = Math.min(r, rows - 1 - r), dc = Math.min(c, cols - 1 - c);  // Distance to nearest edges
+	if (dr == 0 && dc == 0) return CORNER;
+	if (dr == 1 && dc == 1) return X_SQUARE;
+	if ((dr == 0 && dc == 1) || (dr == 1 && dc == 0)) return C_SQUARE;
+	if (dr == 0 || dc == 0) return EDGE;
+	return INTERIOR;
+    }
+}
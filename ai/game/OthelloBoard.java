@@ -0,0 +1,275 @@
+/*******************
+ * Christian A. Duncan
+ * Edited: Diego Holguin
+ * CSC350: Intelligent Systems
+ * Spring 2017
+ *
+ * AI Game Server Project
+ * This project is designed to support multiple game platforms to test
+ * AI-based solutions.
+ * See README file for more details.
+ ********************/
+
+package cad.ai.game;
+
+import java.util.Random;
+
+/***********************************************************
+ * A bitboard representation of an Othello position.
+ *   The discs of each player are kept in a 64-bit mask (one bit per
+ *   square, bit r*8+c for row r and column c) along with the player
+ *   to move.  Boards up to 8x8 (square or not) are supported; the
+ *   squares outside of the rows x cols region are simply never used.
+ *   Move generation and flipping are done with shifts and masks
+ *   so no square-by-square scanning is needed.
+ *   A 64-bit Zobrist key of the discs and turn is kept up to date
+ *   as moves are applied (for transposition tables).
+ ***********************************************************/
+public class OthelloBoard {
+    public static final int MAX_DIM = 8;   // Largest number of rows or cols supported
+    public static final int PASS = -1;     // The "square" used to represent a pass
+
+    private static final long NOT_FILE_A = 0xfefefefefefefefeL;  // Every column but the first
+    private static final long NOT_FILE_H = 0x7f7f7f7f7f7f7f7fL;  // Every column but the last
+
+    // The 8 directions (as bit shifts) and the masks to stop wrapping around the board
+    //                                     E   W   S   N  SE  SW  NE  NW
+    private static final int[] SHIFT =  {  1, -1,  8, -8,  9,  7, -7, -9 };
+    private static final long[] WRAP = { NOT_FILE_A, NOT_FILE_H, -1L, -1L,
+					 NOT_FILE_A, NOT_FILE_H, NOT_FILE_A, NOT_FILE_H };
+
+    // For each direction and square: the squares from there to the edge of the board (not
+    // including the square itself).  Directions 0, 2, 4, 5 go to higher bits, the rest to lower.
+    private static final long[][] RAY = new long[8][64];
+    static {
+	for (int d = 0; d < 8; d++)
+	    for (int sq = 0; sq < 64; sq++) {
+		long x = shift(1L << sq, SHIFT[d], WRAP[d]);
+		while (x != 0) {
+		    RAY[d][sq] |= x;
+		    x = shift(x, SHIFT[d], WRAP[d]);
+		}
+	    }
+    }
+
+    // Zobrist keys: one per player per square, one for a flipped disc, one for Away to move.
+    // A fixed seed so keys are the same from run to run.
+    private static final long[][] ZOBRIST = new long[2][64];
+    private static final long[] ZOBRIST_FLIP = new long[64];
+    private static final long ZOBRIST_TURN;
+    static {
+	Random ran = new Random(1350);
+	for (int sq = 0; sq < 64; sq++) {
+	    ZOBRIST[0][sq] = ran.nextLong();
+	    ZOBRIST[1][sq] = ran.nextLong();
+	    ZOBRIST_FLIP[sq] = ZOBRIST[0][sq] ^ ZOBRIST[1][sq];
+	}
+	ZOBRIST_TURN = ran.nextLong();
+    }
+
+    public final int rows;   // Number of rows in use
+    public final int cols;   // Number of columns in use
+    public final long mask;  // The squares that are actually on the board
+    public long home;        // Discs of Home (X)
+    public long away;        // Discs of Away (O)
+    public int turn;         // Whose turn is it 0 or 1.  Change it with setTurn (keeps hash right)
+    public long hash;        // Zobrist key of the discs and turn
+
+    /**
+     * Create an empty board of the given dimensions.
+     * Use fits() first to see if the dimensions are supported.
+     **/
+    public OthelloBoard(int rows, int cols) {
+	if (!fits(rows, cols))
+	    throw new IllegalArgumentException("Board dimensions too big for a bitboard: " + rows + "x" + cols);
+	this.rows = rows;
+	this.cols = cols;
+	long m = 0;
+	for (int r = 0; r < rows; r++)
+	    for (int c = 0; c < cols; c++)
+		m |= bit(r, c);
+	this.mask = m;
+    }
+
+    /** Copy constructor **/
+    public OthelloBoard(OthelloBoard other) {
+	this.rows = other.rows;
+	this.cols = other.cols;
+	this.mask = other.mask;
+	copyFrom(other);
+    }
+
+    /**
+     * Can a board of these dimensions be stored in a bitboard?
+     **/
+    public static boolean fits(int rows, int cols) {
+	return rows > 0 && cols > 0 && rows <= MAX_DIM && cols <= MAX_DIM;
+    }
+
+    /** Square index and bit of a given location **/
+    public static int square(int r, int c) { return (r << 3) | c; }
+    public static long bit(int r, int c) { return 1L << square(r, c); }
+    public static int row(int sq) { return sq >>> 3; }
+    public static int col(int sq) { return sq & 7; }
+
+    /** Copy the discs and turn of another (same sized) board **/
+    public void copyFrom(OthelloBoard other) {
+	this.home = other.home;
+	this.away = other.away;
+	this.turn = other.turn;
+	this.hash = other.hash;
+    }
+
+    /** Set the discs and turn directly **/
+    public void set(int turn, long home, long away) {
+	this.turn = turn;
+	this.home = home;
+	this.away = away;
+	this.hash = computeHash();
+    }
+
+    /**
+     * Change whose turn it is (updating the hash)
+     **/
+    public void setTurn(int turn) {
+	if ((turn == 1) != (this.turn == 1)) hash ^= ZOBRIST_TURN;
+	this.turn = turn;
+    }
+
+    /**
+     * Compute the Zobrist key from scratch (normally it is kept up to date incrementally)
+     **/
+    public long computeHash() {
+	long h = (turn == 1) ? ZOBRIST_TURN : 0;
+	for (long b = home; b != 0; b &= b - 1) h ^= ZOBRIST[0][Long.numberOfTrailingZeros(b)];
+	for (long b = away; b != 0; b &= b - 1) h ^= ZOBRIST[1][Long.numberOfTrailingZeros(b)];
+	return h;
+    }
+
+    /**
+     * Load the position from a grid of X's, O's and spaces.
+     **/
+    public void set(int turn, char[][] board) {
+	long h = 0, a = 0;
+	for (int r = 0; r < rows; r++)
+	    for (int c = 0; c < cols; c++) {
+		if (board[r][c] == 'X') h |= bit(r, c);
+		else if (board[r][c] == 'O') a |= bit(r, c);
+	    }
+	set(turn, h, a);
+    }
+
+    /**
+     * Write the position into a grid of X's, O's and spaces.
+     **/
+    public void fill(char[][] board) {
+	for (int r = 0; r < rows; r++)
+	    for (int c = 0; c < cols; c++) {
+		long b = bit(r, c);
+		board[r][c] = (home & b) != 0 ? 'X' : (away & b) != 0 ? 'O' : ' ';
+	    }
+    }
+
+    /** The discs of the given player (0=Home, 1=Away) **/
+    public long discs(int player) { return player == 0 ? home : away; }
+    public long empty() { return ~(home | away) & mask; }
+    public int count(int player) { return Long.bitCount(discs(player)); }
+
+    /**
+     * All the legal moves of the given player as a bit mask.
+     **/
+    public long moves(int player) {
+	return player == 0 ? moves(home, away, mask) : moves(away, home, mask);
+    }
+
+    /**
+     * Is placing a disc for player at square sq legal?
+     **/
+    public boolean isValidMove(int player, int sq) {
+	return (moves(player) & (1L << sq)) != 0;
+    }
+
+    /**
+     * Place a disc for player at square sq, flipping the captured discs.
+     * Nothing is changed if the move is not legal.
+     * @return The discs that were flipped (0 if the move was illegal).
+     **/
+    public long play(int player, int sq) {
+	long own = discs(player), opp = discs(player ^ 1);
+	if (((own | opp) & (1L << sq)) != 0) return 0;  // Spot not available
+	long f = flips(sq, own, opp);
+	if (f != 0) apply(player, sq, f);
+	return f;
+    }
+
+    /**
+     * Apply an already computed move (sq and its flips) for player.
+     **/
+    public void apply(int player, int sq, long f) {
+	long b = 1L << sq;
+	if (player == 0) { home |= b | f; away &= ~f; }
+	else             { away |= b | f; home &= ~f; }
+	long h = hash ^ ZOBRIST[player][sq];
+	for (; f != 0; f &= f - 1) h ^= ZOBRIST_FLIP[Long.numberOfTrailingZeros(f)];
+	hash = h;
+    }
+
+    /**
+     * Legal moves for the player owning own against opp.
+     * Uses a directional fill along each of the 8 directions.
+     **/
+    public static long moves(long own, long opp, long mask) {
+	long empty = ~(own | opp) & mask;
+	long result = 0;
+	for (int d = 0; d < 8; d++) {
+	    int s = SHIFT[d];
+	    long w = WRAP[d];
+	    long t = shift(own, s, w) & opp;
+	    t |= shift(t, s, w) & opp;
+	    t |= shift(t, s, w) & opp;
+	    t |= shift(t, s, w) & opp;
+	    t |= shift(t, s, w) & opp;
+	    t |= shift(t, s, w) & opp;
+	    result |= shift(t, s, w) & empty;
+	}
+	return result;
+    }
+
+    /**
+     * The opposing discs that would be flipped by own placing at sq.
+     * Returns 0 if the move does not capture anything (so is illegal).
+     * Along each direction find the nearest own disc; the move flips
+     * the squares in between if they are all opponent discs.
+     **/
+    public static long flips(int sq, long own, long opp) {
+	long result = 0;
+	for (int d = 0; d < 8; d++) {
+	    long ray = RAY[d][sq];
+	    long blockers = own & ray;
+	    if (blockers == 0) continue;
+	    long between;
+	    if (SHIFT[d] > 0) {
+		between = ray & (Long.lowestOneBit(blockers) - 1);
+	    } else {
+		between = ray & -(Long.highestOneBit(blockers) << 1);
+	    }
+	    if (between != 0 && (between & ~opp) == 0) result |= between;
+	}
+	return result;
+    }
+
+    /**
+     * The squares next to (in any of the 8 directions) the given discs, not
+     * including the discs themselves.  Squares off the board may be included
+     * so mask the result (e.g. with empty()).
+     **/
+    public static long neighbours(long x) {
+	long row = x | ((x >>> 1) & NOT_FILE_H) | ((x << 1) & NOT_FILE_A);
+	return (row | (row << 8) | (row >>> 8)) & ~x;
+    }
+
+    /** Shift all discs one step in a direction (masking off the wrap-around) **/
+    private static long shift(long x, int s, long w) {
+	return (s > 0 ? x << s : x >>> -s) & w;
+    }
+}
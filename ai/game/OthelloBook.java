@@ -0,0 +1,307 @@
+/*******************
+ * Christian A. Duncan
+ * Edited: Diego Holguin
+ * CSC350: Intelligent Systems
+ * Spring 2017
+ *
+ * AI Game Client
+ * This project is designed to support multiple game platforms to test
+ * AI-based solutions.
+ * See README file for more details.
+ ********************/
+
+package cad.ai.game;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/***********************************************************
+ * An Othello opening book (bitboard boards only).
+ *   Each entry is a position with the best move found for the player
+ *   to move and its score (for that player).  Positions are stored as
+ *   the discs of the player to move and of the opponent, turned into
+ *   a canonical form: the smallest of the board's symmetric versions
+ *   (8 on a square board, 4 otherwise).  So one entry covers every
+ *   rotation and reflection of a position and works for either colour.
+ *
+ *   Lookups are constant time: the entries are kept in an open
+ *   addressing hash table of primitive arrays (one per board size).
+ *   Adding and loading lock the book but lookups do not, so a book may
+ *   be read by many threads only while nobody is adding to it (the
+ *   default book is never changed once loaded).
+ *
+ *   File format (big-endian, see DataOutputStream):
+ *     int   MAGIC
+ *     int   number of sections
+ *     per section (one board size):
+ *       byte rows, byte cols, int number of entries
+ *       per entry: long own, long opp, byte move, short score
+ *   The move is a square (OthelloBoard.square) of the canonical position.
+ *
+ *   DEFAULT_FILE (in the directory the program runs in) is a small 8x8
+ *   seed book, made with OthelloBookMaker --plies=2 --lines=8 --depth=10.
+ *   Running OthelloBookMaker again extends it.
+ ***********************************************************/
+public class OthelloBook {
+    public static final String DEFAULT_FILE = "OthelloBook.bin";
+    public static final int NO_MOVE = -1;
+    private static final int MAGIC = 0x4f424b31;  // "OBK1"
+
+    private static OthelloBook defaultBook = null;  // Shared by all the AIs (read-only once loaded)
+    private static boolean defaultLoaded = false;
+
+    private Section[] sections = new Section[0];
+
+    /**
+     * The book in DEFAULT_FILE (loaded the first time it is asked for).
+     * Returns an empty book if there is no such file.
+     **/
+    public static synchronized OthelloBook getDefault() {
+	if (!defaultLoaded) {
+	    defaultLoaded = true;
+	    defaultBook = new OthelloBook();
+	    File f = new File(DEFAULT_FILE);
+	    if (f.exists()) {
+		try {
+		    defaultBook.load(f);
+		    System.out.println("DEBUG: Loaded opening book " + DEFAULT_FILE + " with " + defaultBook.size() + " positions.");
+		} catch (IOException e) {
+		    System.err.println("Error reading opening book " + DEFAULT_FILE + ": " + e.getMessage());
+		    defaultBook = new OthelloBook();
+		}
+	    }
+	}
+	return defaultBook;
+    }
+
+    /** Total number of positions in the book **/
+    public synchronized int size() {
+	int n = 0;
+	for (Section s: sections) n += s.size;
+	return n;
+    }
+
+    /**
+     * Look up the position for player (0=Home, 1=Away) to move.
+     * @return The square to play (on the real board) or NO_MOVE if not in the book.
+     **/
+    public int lookup(OthelloBoard board, int player) {
+	Section s = section(board.rows, board.cols, false);
+	if (s == null) return NO_MOVE;
+	long own = board.discs(player), opp = board.discs(player ^ 1);
+	int t = s.canonical(own, opp);
+	int i = s.find(s.transform(t, own), s.transform(t, opp));
+	if (i < 0) return NO_MOVE;
+	return s.perm[s.inverse[t]][s.moves[i]];
+    }
+
+    /**
+     * The score stored with the position (for player), only valid if lookup found it.
+     **/
+    public int score(OthelloBoard board, int player) {
+	Section s = section(board.rows, board.cols, false);
+	if (s == null) return 0;
+	int i = s.find(board, player);
+	return (i < 0) ? 0 : s.scores[i];
+    }
+
+    /**
+     * Add (or replace) a position: player to move, best square sq
+     * (on the given board) and its score for player.
+     **/
+    public synchronized void put(OthelloBoard board, int player, int sq, int score) {
+	Section s = section(board.rows, board.cols, true);
+	long own = board.discs(player), opp = board.discs(player ^ 1);
+	int t = s.canonical(own, opp);
+	s.put(s.transform(t, own), s.transform(t, opp), s.perm[t][sq], score);
+    }
+
+    /** Does the book contain the (canonical form of the) position? **/
+    public boolean contains(OthelloBoard board, int player) {
+	Section s = section(board.rows, board.cols, false);
+	if (s == null) return false;
+	return s.find(board, player) >= 0;
+    }
+
+    /** The section for a board size (making one if asked to) **/
+    private synchronized Section section(int rows, int cols, boolean create) {
+	for (Section s: sections)
+	    if (s.rows == rows && s.cols == cols) return s;
+	if (!create) return null;
+	Section[] more = new Section[sections.length + 1];
+	System.arraycopy(sections, 0, more, 0, sections.length);
+	more[sections.length] = new Section(rows, cols);
+	sections = more;
+	return more[sections.length - 1];
+    }
+
+    /**
+     * Read a book file (adding its positions to this book)
+     **/
+    public synchronized void load(File file) throws IOException {
+	DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+	try {
+	    if (in.readInt() != MAGIC) throw new IOException("Not an opening book file");
+	    int n = in.readInt();
+	    for (int k = 0; k < n; k++) {
+		int rows = in.readByte(), cols = in.readByte();
+		int count = in.readInt();
+		if (!OthelloBoard.fits(rows, cols) || count < 0) throw new IOException("Bad section " + rows + "x" + cols);
+		Section s = section(rows, cols, true);
+		for (int i = 0; i < count; i++) {
+		    long own = in.readLong(), opp = in.readLong();
+		    int move = in.readByte();
+		    int score = in.readShort();
+		    s.put(own, opp, move, score);
+		}
+	    }
+	} finally {
+	    in.close();
+	}
+    }
+
+    /**
+     * Write the book to a file
+     **/
+    public synchronized void save(File file) throws IOException {
+	DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+	try {
+	    out.writeInt(MAGIC);
+	    out.writeInt(sections.length);
+	    for (Section s: sections) {
+		out.writeByte(s.rows);
+		out.writeByte(s.cols);
+		out.writeInt(s.size);
+		for (int i = 0; i < s.own.length; i++) {
+		    if (s.moves[i] == NO_MOVE) continue;
+		    out.writeLong(s.own[i]);
+		    out.writeLong(s.opp[i]);
+		    out.writeByte(s.moves[i]);
+		    out.writeShort(s.scores[i]);
+		}
+	    }
+	} finally {
+	    out.close();
+	}
+    }
+
+    /***********************************************************
+     * The positions of one board size, with the symmetries of that board.
+     ***********************************************************/
+    private static class Section {
+	final int rows, cols;
+	final int[][] perm;     // perm[t][sq] = where square sq goes under symmetry t
+	final int[] inverse;    // The symmetry undoing each symmetry
+	long[] own = new long[64], opp = new long[64];  // Open addressing (moves[i] == NO_MOVE is free)
+	byte[] moves = new byte[64];
+	short[] scores = new short[64];
+	int size = 0;
+
+	Section(int rows, int cols) {
+	    this.rows = rows;
+	    this.cols = cols;
+	    Arrays.fill(moves, (byte) NO_MOVE);
+
+	    // Rotations and reflections that keep the board's shape
+	    int n = (rows == cols) ? 8 : 4;
+	    perm = new int[n][64];
+	    for (int t = 0; t < n; t++)
+		for (int r = 0; r < rows; r++)
+		    for (int c = 0; c < cols; c++) {
+			int rr = r, cc = c;
+			if ((t & 4) != 0) { int x = rr; rr = cc; cc = x; }  // Transpose (square only)
+			if ((t & 1) != 0) rr = ((t & 4) != 0 ? cols : rows) - 1 - rr;
+			if ((t & 2) != 0) cc = ((t & 4) != 0 ? rows : cols) - 1 - cc;
+			perm[t][OthelloBoard.square(r, c)] = OthelloBoard.square(rr, cc);
+		    }
+	    inverse = new int[n];
+	    for (int t = 0; t < n; t++)
+		for (int u = 0; u < n; u++) {
+		    boolean undoes = true;
+		    for (int r = 0; r < rows; r++)
+			for (int c = 0; c < cols; c++)
+			    if (perm[u][perm[t][OthelloBoard.square(r, c)]] != OthelloBoard.square(r, c)) undoes = false;
+		    if (undoes) inverse[t] = u;
+		}
+	}
+
+	/** Move every disc of x under symmetry t **/
+	long transform(int t, long x) {
+	    long y = 0;
+	    int[] p = perm[t];
+	    for (; x != 0; x &= x - 1) y |= 1L << p[Long.numberOfTrailingZeros(x)];
+	    return y;
+	}
+
+	/**
+	 * The symmetry that turns (own, opp) into its canonical form
+	 * (the smallest own, then the smallest opp, as unsigned numbers)
+	 **/
+	int canonical(long own, long opp) {
+	    int best = 0;
+	    long bo = own, bp = opp;
+	    for (int t = 1; t < perm.length; t++) {
+		long o = transform(t, own), p = transform(t, opp);
+		if (Long.compareUnsigned(o, bo) < 0 || (o == bo && Long.compareUnsigned(p, bp) < 0)) {
+		    best = t;
+		    bo = o;
+		    bp = p;
+		}
+	    }
+	    return best;
+	}
+
+	/** Index of the entry for the position (player to move) or -1 **/
+	int find(OthelloBoard board, int player) {
+	    long own = board.discs(player), opp = board.discs(player ^ 1);
+	    int t = canonical(own, opp);
+	    return find(transform(t, own), transform(t, opp));
+	}
+
+	/** Where to start looking for (o, p) in the table **/
+	int slot(long o, long p) {
+	    long h = o * 0x9e3779b97f4a7c15L ^ Long.rotateLeft(p * 0xc2b2ae3d27d4eb4fL, 29);
+	    return (int) (h ^ (h >>> 32)) & (own.length - 1);
+	}
+
+	/** Index of the entry for (own, opp) or -1 **/
+	int find(long o, long p) {
+	    for (int i = slot(o, p); moves[i] != NO_MOVE; i = (i + 1) & (own.length - 1))
+		if (own[i] == o && opp[i] == p) return i;
+	    return -1;
+	}
+
+	void put(long o, long p, int move, int score) {
+	    if (2 * (size + 1) > own.length) grow();
+	    int i = slot(o, p);
+	    while (moves[i] != NO_MOVE && !(own[i] == o && opp[i] == p)) i = (i + 1) & (own.length - 1);
+	    if (moves[i] == NO_MOVE) size++;
+	    own[i] = o;
+	    opp[i] = p;
+	    moves[i] = (byte) move;
+	    scores[i] = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, score));
+	}
+
+	/** Double the table (keeping it at most half full) **/
+	private void grow() {
+	    long[] oldOwn = own, oldOpp = opp;
+	    byte[] oldMoves = moves;
+	    short[] oldScores = scores;
+	    own = new long[2 * oldOwn.length];
+	    opp = new long[2 * oldOwn.length];
+	    moves = new byte[2 * oldOwn.length];
+	    scores = new short[2 * oldOwn.length];
+	    Arrays.fill(moves, (byte) NO_MOVE);
+	    size = 0;
+	    for (int i = 0; i < oldOwn.length; i++)
+		if (oldMoves[i] != NO_MOVE) put(oldOwn[i], oldOpp[i], oldMoves[i], oldScores[i]);
+	}
+    }
+}
@@ -0,0 +1,213 @@
+/*******************
+ * Christian A. Duncan
+ * Edited: Diego Holguin
+ * CSC350: Intelligent Systems
+ * Spring 2017
+ *
+ * AI Game Client
+ * This project is designed to support multiple game platforms to test
+ * AI-based solutions.
+ * See README file for more details.
+ ********************/
+
+package cad.ai.game;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import cad.ai.search.SearchEngine;
+import cad.ai.search.TranspositionTable;
+
+/***********************************************************
+ * Builds an OthelloBook offline by searching opening positions deeply
+ * (several positions at once, one per thread).
+ *   The positions are generated ply by ply from the start:
+ *     - for the first "plies" plies every move is followed
+ *     - after that, up to "lines" plies, the player the book is
+ *       for only plays the book move while every reply of the
+ *       other player is followed
+ *   This is done twice (once for each colour), so either player can
+ *   stay in the book as long as the opponent plays anything.
+ *   An existing book file is extended (positions in it are not searched again).
+ ***********************************************************/
+public class OthelloBookMaker {
+    private final OthelloBook book;
+    private final int rows, cols;
+    private final int plies, lines, depth;
+    private final ExecutorService pool;
+    private final ThreadLocal<SearchEngine> searches = new ThreadLocal<SearchEngine>() {
+	    protected SearchEngine initialValue() { return new SearchEngine(OthelloAI.DEFAULT_TABLE_BITS); }
+	};
+    private final ThreadLocal<OthelloBitPosition> boards = new ThreadLocal<OthelloBitPosition>() {
+	    protected OthelloBitPosition initialValue() { return new OthelloBitPosition(); }
+	};
+
+    /** A position waiting to be put in the book **/
+    private static class Position {
+	final OthelloBoard board;
+	final int player;
+	Position(OthelloBoard board, int player) { this.board = board; this.player = player; }
+    }
+
+    public OthelloBookMaker(OthelloBook book, int rows, int cols, int plies, int lines, int depth, int threads) {
+	this.book = book;
+	this.rows = rows;
+	this.cols = cols;
+	this.plies = plies;
+	this.lines = lines;
+	this.depth = depth;
+	this.pool = Executors.newFixedThreadPool(threads);
+    }
+
+    /**
+     * Fill the book (for both colours)
+     **/
+    public void run() throws Exception {
+	for (int colour = 0; colour < 2; colour++) expand(colour);
+	pool.shutdown();
+    }
+
+    /**
+     * Generate the positions for the book owner (0=Home, 1=Away) ply by ply
+     **/
+    private void expand(int owner) throws Exception {
+	OthelloBoard start = new OthelloBoard(rows, cols);
+	int midR = rows / 2, midC = cols / 2;
+	start.set(0, OthelloBoard.bit(midR - 1, midC) | OthelloBoard.bit(midR, midC - 1),
+		  OthelloBoard.bit(midR, midC) | OthelloBoard.bit(midR - 1, midC - 1));
+	List<Position> level = new ArrayList<Position>();
+	level.add(new Position(start, 0));
+
+	for (int ply = 0; ply < lines && !level.isEmpty(); ply++) {
+	    long t = System.currentTimeMillis();
+	    searchAll(level);
+
+	    // The next ply: every move, or just the book move for the owner once past the full-width plies
+	    OthelloBook seen = new OthelloBook();
+	    List<Position> next = new ArrayList<Position>();
+	    for (Position p: level) {
+		long moves = p.board.moves(p.player);
+		if (ply >= plies && p.player == owner) {
+		    int sq = book.lookup(p.board, p.player);
+		    moves = (sq == OthelloBook.NO_MOVE) ? 0 : 1L << sq;
+		}
+		for (; moves != 0; moves &= moves - 1) {
+		    OthelloBoard b = new OthelloBoard(p.board);
+		    b.play(p.player, Long.numberOfTrailingZeros(moves));
+		    int player = p.player ^ 1;
+		    if (b.moves(player) == 0) player ^= 1;   // Pass
+		    if (b.moves(player) == 0) continue;      // Game over
+		    b.setTurn(player);
+		    if (seen.contains(b, player)) continue;
+		    seen.put(b, player, Long.numberOfTrailingZeros(b.moves(player)), 0);
+		    next.add(new Position(b, player));
+		}
+	    }
+	    System.out.println("Book " + rows + "x" + cols + " for " + (owner == 0 ? "Home" : "Away") + ": ply " + ply +
+			       " positions=" + level.size() + " book=" + book.size() +
+			       " time=" + (System.currentTimeMillis() - t) + "ms");
+	    level = next;
+	}
+    }
+
+    /**
+     * Search (in parallel) the positions not yet in the book and add them.
+     * The book is checked before any search starts: its lookups do not
+     * lock, so they must not run while the searches are adding to it.
+     **/
+    private void searchAll(List<Position> level) throws Exception {
+	List<Position> todo = new ArrayList<Position>();
+	for (Position p: level)
+	    if (!book.contains(p.board, p.player)) todo.add(p);
+
+	List<Future<?>> running = new ArrayList<Future<?>>();
+	for (final Position p: todo) {
+	    running.add(pool.submit(new Callable<Object>() {
+		    public Object call() {
+			search(p);
+			return null;
+		    }
+		}));
+	}
+	for (Future<?> f: running) f.get();
+    }
+
+    /**
+     * Search one position to the book depth and store the result
+     **/
+    private void search(Position p) {
+	char[][] board = new char[rows][cols];
+	p.board.fill(board);
+	OthelloBitPosition position = boards.get();
+	position.set(board, p.player);
+
+	SearchEngine s = searches.get();
+	s.search(position, Math.min(depth, Long.bitCount(p.board.empty())));
+	book.put(p.board, p.player, s.getBestMove(), s.getBestScore());
+    }
+
+    public static void main(String[] args) {
+	// Defaults to use
+	int dim = 8;
+	int plies = 4;    // Follow every move this far
+	int lines = 10;   // Make the book this deep
+	int depth = 10;   // How deep to search each position
+	int threads = OthelloAI.DEFAULT_THREADS;
+	String file = OthelloBook.DEFAULT_FILE;
+
+	// Parse the arguments
+	for (String arg: args) {
+	    try {
+		String[] params = arg.split("=",2);
+		switch (params[0]) {
+		case "--help": printUsage(null); break;
+		case "--dim": dim = Integer.parseInt(params[1]); break;
+		case "--plies": plies = Integer.parseInt(params[1]); break;
+		case "--lines": lines = Integer.parseInt(params[1]); break;
+		case "--depth": depth = Integer.parseInt(params[1]); break;
+		case "--threads": threads = Integer.parseInt(params[1]); break;
+		case "--file": file = params[1]; break;
+		default:
+		    printUsage("Unrecognized parameter: " + arg);
+		}
+	    } catch (Exception e) {
+		printUsage("Error processing parameter: " + arg);
+	    }
+	}
+	if (!OthelloBoard.fits(dim, dim) || dim < 4) printUsage("Dimension must be from 4 to " + OthelloBoard.MAX_DIM);
+
+	try {
+	    OthelloBook book = new OthelloBook();
+	    File f = new File(file);
+	    if (f.exists()) book.load(f);
+	    new OthelloBookMaker(book, dim, dim, plies, lines, depth, threads).run();
+	    book.save(f);
+	    System.out.println("Saved " + book.size() + " positions to " + file);
+	} catch (Exception e) {
+	    System.err.println("Error making the book: " + e);
+	    System.exit(1);
+	}
+    }
+
+    /**
+     * Print Usage message and exit
+     **/
+    public static void printUsage(String message) {
+	System.err.println("Usage: java cad.ai.game.OthelloBookMaker [params]");
+	System.err.println("       Where params are:");
+	System.err.println("         --help        -- Print this usage message");
+	System.err.println("         --dim=X       -- Board size (default 8).");
+	System.err.println("         --plies=X     -- Follow every move for the first X plies (default 4).");
+	System.err.println("         --lines=X     -- Make the book X plies deep (default 10).");
+	System.err.println("         --depth=X     -- Search each position X plies deep (default 10).");
+	System.err.println("         --threads=X   -- Search this many positions at once (default = number of cores).");
+	System.err.println("         --file=name   -- Book file to extend (default " + OthelloBook.DEFAULT_FILE + ").");
+	if (message != null)
+	    System.err.println("       " + message);
+	System.exit(1);
+    }
+}
@@ -0,0 +1,38 @@
+/*******************
+ * Christian A. Duncan
+ * Edited: Diego Holguin
+ * CSC350: Intelligent Systems
+ * Spring 2017
+ *
+ * AI Game Client
+ * This project is designed to support multiple game platforms to test
+ * AI-based solutions.
+ * See README file for more details.
+ ********************/
+
+package cad.ai.game;
+
+/***********************************************************
+ * The original Othello heuristic: the disc count plus a bonus for
+ * each corner held (like the DIEGOCALCULATION in OthelloGame.computeScore).
+ *   Corners are credited to whoever holds them here (computeScore
+ *   credits O's corners to Home as well).
+ *   It keeps no state, so make/undo are ignored.
+ ***********************************************************/
+public class OthelloDiscEvaluator implements OthelloEvaluator {
+    private static final int OUTER_RIM_VALUE = 10;
+
+    public OthelloEvaluator newEvaluator() { return new OthelloDiscEvaluator(); }
+    public void reset(OthelloBoard board) { }
+    public void makeMove(OthelloBoard board, int player, int sq, long flips) { }
+    public void undoMove(OthelloBoard board, int player, int sq, long flips) { }
+
+    public int evaluate(OthelloBoard board) {
+	long doubled = OthelloBoard.bit(0, 0) | OthelloBoard.bit(board.rows - 1, board.cols - 1);
+	long single = OthelloBoard.bit(0, board.cols - 1) | OthelloBoard.bit(board.rows - 1, 0);
+	int score = Long.bitCount(board.home) - Long.bitCount(board.away);
+	score += OUTER_RIM_VALUE * 2 * (Long.bitCount(board.home & doubled) - Long.bitCount(board.away & doubled));
+	score += OUTER_RIM_VALUE * (Long.bitCount(board.home & single) - Long.bitCount(board.away & single));
+	return score;
+    }
+}
@@ -0,0 +1,373 @@
+/*******************
+ * Christian A. Duncan
+ * Edited: Diego Holguin
+ * CSC350: Intelligent Systems
+ * Spring 2017
+ *
+ * AI Game Client
+ * This project is designed to link to a basic Game Server to test
+ * AI-based solutions.
+ * See README file for more details.
+ ********************/
+
+package cad.ai.game;
+
+import cad.ai.search.TranspositionTable;
+
+/***********************************************************
+ * A perfect-play endgame solver for Othello (bitboard boards only).
+ *   Near the end of the game the whole tree can be searched, so
+ *   instead of a heuristic we return the exact final disc differential.
+ *   The search is a negamax on the (own, opp) disc masks of the player
+ *   to move - no game object, no undo, nothing allocated per node:
+ *     - many empties: fastest-first ordering (fewest replies for the
+ *       opponent first, then fewest potential replies, then parity), null windows after the
+ *       first move, plus a small transposition table of its own
+ *     - few empties: just try the empty squares, those in regions
+ *       with an odd number of empties first (parity)
+ *     - last empty: counted directly
+ *   The opponent's stable discs (see OthelloStability) are theirs at
+ *   the end, which bounds how well we can do: if even that bound is no
+ *   better than alpha the node is cut without searching it.
+ *   The solver watches a deadline and gives up (returns NO_MOVE) if
+ *   it can't finish in time.
+ *   It is kept apart from the SearchEngine on purpose: the last plies
+ *   are most of the nodes, and making and undoing moves on a Position
+ *   (with an evaluator to keep up to date) costs several times the
+ *   mask arithmetic done here.
+ ***********************************************************/
+public class OthelloEndgame
+{
+    public static final int NO_MOVE = -1;
+    private static final int MAX_SCORE = 65;         // More than any disc differential
+    private static final int SHALLOW = 6;            // Parity-only ordering at this many empties or fewer
+    private static final int TABLE_MIN_EMPTIES = 8; // Only use the table this far from the end
+    private static final int TABLE_BITS = 18;
+    private static final int CHECK_INTERVAL = 1023;  // Look at the clock every 1024 nodes
+    private static final int MAX_PLY = 2 * 64 + 2;   // A move or a pass per ply
+    private static final int MAX_MOVES = 34;         // More than the moves possible in any position
+
+    private long mask;                // The squares on the board
+    private int rows, cols;           // ... its shape
+    private int squares;              // ... and the number of squares
+    private long[] quadrants = new long[4];  // Regions used for parity
+    private long corners;             // The corner squares
+    private final TranspositionTable table;
+    private final int[][] moveBuffer = new int[MAX_PLY][MAX_MOVES];   // Ordered moves at each ply
+    private final int[][] keyBuffer = new int[MAX_PLY][MAX_MOVES];    // ... their ordering keys
+    private final long[][] flipBuffer = new long[MAX_PLY][MAX_MOVES]; // ... and their flips
+    private long deadline;            // System.nanoTime() to give up at
+    private volatile boolean stopRequested;
+    private boolean aborted;
+    private long nodes;
+    private int score;                // Result of the last solve
+
+    public OthelloEndgame()
+    {
+        table = new TranspositionTable(TABLE_BITS, TranspositionTable.Replacement.DEPTH);
+    }
+
+    /** Ask the solver to give up (from another thread) **/
+    public void stop() { stopRequested = true; }
+
+    /** Exact final disc differential (for the player to move) of the last solve **/
+    public int getScore() { return score; }
+    public long getNodes() { return nodes; }
+
+    /**
+     * Solve a position exactly.
+     * board    - The position (board.turn is ignored, player moves)
+     * player   - Who is moving (0=Home, 1=Away)
+     * deadline - System.nanoTime() to give up at
+     * Returns the best square for player (and getScore() is the exact final
+     * disc differential for player) or NO_MOVE if out of time or player can't move.
+     **/
+    public int solve(OthelloBoard board, int player, long deadline)
+    {
+        setBoard(board);
+        this.deadline = deadline;
+        stopRequested = false;
+        aborted = false;
+        nodes = 0;
+        table.newSearch();
+
+        long own = board.discs(player), opp = board.discs(player ^ 1);
+        long empty = ~(own | opp) & mask;
+        int empties = Long.bitCount(empty);
+        int n = orderMoves(own, opp, OthelloBoard.moves(own, opp, mask), empty, NO_MOVE, 0);
+        if (n == 0) return NO_MOVE;
+
+        int alpha = -MAX_SCORE, beta = Long.bitCount(mask);  // Can't do better than owning every square
+        int best = NO_MOVE;
+        int[] moves = moveBuffer[0];
+        long[] flips = flipBuffer[0];
+        for (int i = 0; i < n; i++)
+        {
+            long f = flips[i];
+            long newOwn = own | f | (1L << moves[i]), newOpp = opp & ~f;
+            int v;
+            if (best == NO_MOVE) v = -solve(newOpp, newOwn, -beta, -alpha, empties - 1, 1);
+            else
+            {
+                // Just prove the move is no better, unless it turns out it is
+                v = -solve(newOpp, newOwn, -alpha - 1, -alpha, empties - 1, 1);
+                if (v > alpha && !aborted) v = -solve(newOpp, newOwn, -beta, -v, empties - 1, 1);
+            }
+            if (aborted) return NO_MOVE;
+            if (v > alpha || best == NO_MOVE)
+            {
+                best = moves[i];
+                if (v > alpha) alpha = v;
+            }
+        }
+        score = alpha;
+        return best;
+    }
+
+    /**
+     * Set up the board shape (mask and parity regions).  Clears the table
+     * if the shape changed since entries would no longer make sense.
+     **/
+    private void setBoard(OthelloBoard board)
+    {
+        if (board.mask == mask) return;
+        mask = board.mask;
+        rows = board.rows;
+        cols = board.cols;
+        squares = Long.bitCount(mask);
+        table.clear();
+        int midR = (board.rows + 1) / 2, midC = (board.cols + 1) / 2;
+        corners = OthelloBoard.bit(0, 0) | OthelloBoard.bit(0, board.cols - 1)
+            | OthelloBoard.bit(board.rows - 1, 0) | OthelloBoard.bit(board.rows - 1, board.cols - 1);
+        for (int q = 0; q < 4; q++) quadrants[q] = 0;
+        for (int r = 0; r < board.rows; r++)
+            for (int c = 0; c < board.cols; c++)
+                quadrants[(r < midR ? 0 : 2) + (c < midC ? 0 : 1)] |= OthelloBoard.bit(r, c);
+    }
+
+    /** Count a node and see if time has run out **/
+    private boolean outOfTime()
+    {
+        if((++nodes & CHECK_INTERVAL) == 0 && (stopRequested || System.nanoTime() > deadline)) aborted = true;
+        return aborted;
+    }
+
+    /** Final score when neither player can move **/
+    private static int finalScore(long own, long opp)
+    {
+        return Long.bitCount(own) - Long.bitCount(opp);
+    }
+
+    /** The empty squares lying in a region with an odd number of empties **/
+    private long oddRegions(long empty)
+    {
+        long odd = 0;
+        for (int q = 0; q < 4; q++)
+            if ((Long.bitCount(empty & quadrants[q]) & 1) != 0) odd |= quadrants[q];
+        return empty & odd;
+    }
+
+    /**
+     * Negamax value (final disc differential for the player owning own).
+     * empties - number of empty squares
+     * ply     - how deep we are (picks the move buffers to use)
+     **/
+    private int solve(long own, long opp, int alpha, int beta, int empties, int ply)
+    {
+        if (empties == 1) return lastMove(own, opp);
+        if (empties <= SHALLOW) return solveShallow(own, opp, alpha, beta, empties);
+        return solveDeep(own, opp, alpha, beta, empties, ply);
+    }
+
+    /**
+     * Only one empty square left - just count what it flips.
+     **/
+    private int lastMove(long own, long opp)
+    {
+        nodes++;
+        int sq = Long.numberOfTrailingZeros(~(own | opp) & mask);
+        int diff = finalScore(own, opp);
+        int n = Long.bitCount(OthelloBoard.flips(sq, own, opp));
+        if (n > 0) return diff + 2 * n + 1;
+        n = Long.bitCount(OthelloBoard.flips(sq, opp, own));
+        if (n > 0) return diff - 2 * n - 1;
+        return diff;  // Nobody can play there
+    }
+
+    /**
+     * A few empties left: try the empty squares directly, odd regions first.
+     **/
+    private int solveShallow(long own, long opp, int alpha, int beta, int empties)
+    {
+        if (outOfTime()) return 0;
+        long empty = ~(own | opp) & mask;
+        long odd = oddRegions(empty);
+        int best = -MAX_SCORE;
+        boolean moved = false;
+        for (int pass = 0; pass < 2; pass++)
+        {
+            for (long todo = (pass == 0) ? odd : empty & ~odd; todo != 0; todo &= todo - 1)
+            {
+                int sq = Long.numberOfTrailingZeros(todo);
+                long f = OthelloBoard.flips(sq, own, opp);
+                if (f == 0) continue;
+                moved = true;
+                int v = -solve(opp & ~f, own | f | (1L << sq), -beta, -alpha, empties - 1, 0);
+                if (aborted) return 0;
+                if (v > best)
+                {
+                    best = v;
+                    if (v > alpha) alpha = v;
+                    if (alpha >= beta) return best;
+                }
+            }
+        }
+        if (moved) return best;
+
+        // No move - pass if the opponent can move, otherwise the game is over
+        if (OthelloBoard.moves(opp, own, mask) == 0) return finalScore(own, opp);
+        return -solveShallow(opp, own, -beta, -alpha, empties);
+    }
+
+    /**
+     * Many empties left: fastest-first ordering and the transposition table.
+     **/
+    private int solveDeep(long own, long opp, int alpha, int beta, int empties, int ply)
+    {
+        if (outOfTime()) return 0;
+        long moves = OthelloBoard.moves(own, opp, mask);
+        if (moves == 0)
+        {
+            if (OthelloBoard.moves(opp, own, mask) == 0) return finalScore(own, opp);
+            return -solve(opp, own, -beta, -alpha, empties, ply + 1);
+        }
+
+        // We can't end with more than the squares the opponent's stable discs leave us
+        if (2 * Long.bitCount(opp) >= squares - alpha)
+        {
+            int upper = squares - 2 * Long.bitCount(OthelloStability.stable(opp, own, rows, cols));
+            if (upper <= alpha) return upper;
+            if (upper < beta) beta = upper;
+        }
+
+        // Maybe we have solved this position (or bounded it) already
+        long key = 0, entry = 0;
+        int ttMove = NO_MOVE;
+        if (empties >= TABLE_MIN_EMPTIES)
+        {
+            key = hash(own, opp);
+            entry = table.probe(key);
+            if (entry != 0)
+            {
+                int v = TranspositionTable.score(entry);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.EXACT) return v;
+                if (bound == TranspositionTable.LOWER && v > alpha) alpha = v;
+                if (bound == TranspositionTable.UPPER && v < beta) beta = v;
+                if (alpha >= beta) return v;
+                ttMove = TranspositionTable.move(entry);
+            }
+        }
+
+        int alpha0 = alpha;
+        long empty = ~(own | opp) & mask;
+        int n = orderMoves(own, opp, moves, empty, ttMove, ply);
+        int[] list = moveBuffer[ply];
+        long[] flips = flipBuffer[ply];
+        int best = -MAX_SCORE, bestMove = NO_MOVE;
+        for (int i = 0; i < n; i++)
+        {
+            long f = flips[i];
+            long newOwn = own | f | (1L << list[i]), newOpp = opp & ~f;
+            int v;
+            if (i == 0) v = -solve(newOpp, newOwn, -beta, -alpha, empties - 1, ply + 1);
+            else
+            {
+                // Principal variation search: a null window first, the full one if it fails high
+                v = -solve(newOpp, newOwn, -alpha - 1, -alpha, empties - 1, ply + 1);
+                if (v > alpha && v < beta && !aborted) v = -solve(newOpp, newOwn, -beta, -v, empties - 1, ply + 1);
+            }
+            if (aborted) return 0;
+            if (v > best)
+            {
+                best = v;
+                bestMove = list[i];
+                if (v > alpha) alpha = v;
+                if (alpha >= beta) break;
+            }
+        }
+
+        if (empties >= TABLE_MIN_EMPTIES)
+        {
+            int bound = (best >= beta) ? TranspositionTable.LOWER : (best <= alpha0) ? TranspositionTable.UPPER : TranspositionTable.EXACT;
+            table.store(key, empties, bound, best, bestMove);
+        }
+        return best;
+    }
+
+    /**
+     * Fill the move buffers of the given ply with the moves in order:
+     * the table's move first, then by how few replies the opponent has
+     * (fastest-first), preferring odd regions on ties.
+     * Returns the number of moves.
+     **/
+    private int orderMoves(long own, long opp, long moves, long empty, int ttMove, int ply)
+    {
+        int[] list = moveBuffer[ply];
+        int[] keys = keyBuffer[ply];
+        long[] flips = flipBuffer[ply];
+        long odd = oddRegions(empty);
+        int n = 0;
+        for (; moves != 0; moves &= moves - 1)
+        {
+            int sq = Long.numberOfTrailingZeros(moves);
+            long b = 1L << sq;
+            long f = OthelloBoard.flips(sq, own, opp);
+            int key;
+            if (sq == ttMove) key = -1;
+            else
+            {
+                // Opponent replies (corners count twice), then empties next to
+                // our discs (opponent's potential replies), then parity
+                long newOwn = own | f | b;
+                long replies = OthelloBoard.moves(opp & ~f, newOwn, mask);
+                key = 16 * (Long.bitCount(replies) + Long.bitCount(replies & corners))
+                    + 2 * Long.bitCount(OthelloBoard.neighbours(newOwn) & empty & ~b)
+                    + ((odd & b) != 0 ? 0 : 1);
+            }
+
+            // Insertion sort as we go
+            int i = n++;
+            while (i > 0 && keys[i - 1] > key)
+            {
+                list[i] = list[i - 1];
+                keys[i] = keys[i - 1];
+                flips[i] = flips[i - 1];
+                i--;
+            }
+            list[i] = sq;
+            keys[i] = key;
+            flips[i] = f;
+        }
+        return n;
+    }
+
+    /**
+     * A 64-bit key for (own, opp).  The side to move doesn't matter: the
+     * value only depends on whose discs are whose relative to the mover.
+     **/
+    private static long hash(long own, long opp)
+    {
+        return mix(own) ^ Long.rotateLeft(mix(opp ^ 0x9e3779b97f4a7c15L), 17);
+    }
+
+    private static long mix(long x)
+    {
+        x ^= x >>> 33;
+        x *= 0xff51afd7ed558ccdL;
+        x ^= x >>> 33;
+        x *= 0xc4ceb9fe1a85ec53L;
+        x ^= x >>> 33;
+        return x;
+    }
+}
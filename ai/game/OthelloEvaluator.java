@@ -0,0 +1,41 @@
+/*******************
+ * Christian A. Duncan
+ * Edited: Diego Holguin
+ * CSC350: Intelligent Systems
+ * Spring 2017
+ *
+ * AI Game Client
+ * This project is designed to support multiple game platforms to test
+ * AI-based solutions.
+ * See README file for more details.
+ ********************/
+
+package cad.ai.game;
+
+/***********************************************************
+ * An evaluation function for the Othello search (bitboard boards only).
+ *   An evaluator may keep its own state about the position (e.g. pattern
+ *   indices) which it updates as moves are made and taken back, so each
+ *   search thread needs its own - use newEvaluator() to get another.
+ *   Attach one to a game with OthelloGame.setEvaluator and the game keeps
+ *   it up to date.
+ ***********************************************************/
+public interface OthelloEvaluator {
+    /** A new evaluator of the same kind (with its own state) **/
+    public OthelloEvaluator newEvaluator();
+
+    /** The board was set up from scratch - forget what was known about the old one **/
+    public void reset(OthelloBoard board);
+
+    /**
+     * player placed a disc at sq and flipped the discs in flips
+     * (the board has already been changed).  sq may be OthelloBoard.PASS.
+     **/
+    public void makeMove(OthelloBoard board, int player, int sq, long flips);
+
+    /** The move above was taken back (the board has already been restored) **/
+    public void undoMove(OthelloBoard board, int player, int sq, long flips);
+
+    /** How good the position is for Home (positive) or Away (negative) **/
+    public int evaluate(OthelloBoard board);
+}
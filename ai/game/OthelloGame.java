@@ -31,6 +31,13 @@ public class OthelloGame implements Game {
     }
     
     private char[][] board;  // A grid of X's and O's and spaces.
+    private OthelloBoard bits;  // The same board as bitboards (null if too big to fit)
+    private boolean stale;      // Has bits changed without updating board?
+    private long[] undoFlips;   // Discs flipped by each move made with makeMove (for undoMove)
+    private int[] undoSquare;   // Square of each move made with makeMove (or PASS)
+    private long[] undoHash;    // Zobrist key before each move made with makeMove
+    private int undoTop = 0;    // Number of moves on the undo stack
+    private OthelloEvaluator evaluator;  // Kept up to date with the bitboard (if there is one)
     private int turn;    // Whose turn is it 0 or 1.
     private int player; // Which "turn" the player is (from Client side)
     private boolean changed;   // Has the state changed (since last transmission)
@@ -83,6 +90,7 @@ public class OthelloGame implements Game {
 	    board[midA-1][midB] = 'X';
 	    
 	    turn = 0;  // X goes first
+	    loadBits();
 	} else {
 	    // This is a client version, attached to a game from the server
 	    turn = -1;       // Don't know whose turn it is yet...
@@ -103,6 +111,20 @@ public class OthelloGame implements Game {
 
     // Done internally since checked after every move - no need to do it all the time.
     public synchronized boolean computeWinner() {
+	if (bits != null) {
+	    // Same as below but just checking the move masks
+	    if (bits.moves(turn) != 0) return false;
+	    turn ^= 1;
+	    bits.setTurn(turn);
+	    if (bits.moves(turn) != 0) return false;
+	    done = true;
+	    computeScore();
+	    if (homeScore > awayScore) winner = 0;  // Home won
+	    else if (homeScore < awayScore) winner = 1; // Away won
+	    else winner = -1;  // A tie
+	    return true;
+	}
+
 	// First determine if the game is done (when no more moves are possible for either team)
 	ArrayList<Action> actionList = getActions(turn);
 	if (actionList.size() > 0) {
@@ -142,6 +164,24 @@ public class OthelloGame implements Game {
 
 		boolean DIEGOCALCULATION = true; 
 
+		if(bits != null)
+		{
+			// Same scoring as below but using the bitboards
+			if(DIEGOCALCULATION)
+			{
+				// Corners are credited to home no matter who holds them (as below)
+				long held = bits.home | bits.away;
+				if((held & OthelloBoard.bit(0, 0)) != 0) { homeScore += outerRimValue * 2; }
+				if((held & OthelloBoard.bit(0, bits.cols - 1)) != 0) { homeScore += outerRimValue; }
+				if((held & OthelloBoard.bit(bits.rows - 1, 0)) != 0) { homeScore += outerRimValue; }
+				if((held & OthelloBoard.bit(bits.rows - 1, bits.cols - 1)) != 0) { homeScore += outerRimValue * 2; }
+			}
+
+			homeScore += Long.bitCount(bits.home);
+			awayScore += Long.bitCount(bits.away);
+			return;
+		}
+
 		if(DIEGOCALCULATION)
 		{
 			// Handle all boundaries for home moves
@@ -175,7 +215,8 @@ public class OthelloGame implements Game {
     public synchronized String getState(boolean force) {
 	if (!force && !changed) return null;
 	changed = false;
-	String result = turn + "," + board.length + "," + board[0].length;
+	char[][] board = view();
+	String result = (done ? -1 : turn) + "," + board.length + "," + board[0].length;  // Nobody's turn once the game is over
 	for (int r = 0; r < board.length; r++)
 	    for (int c = 0; c < board[0].length; c++)
 		result += "," + board[r][c];
@@ -187,7 +228,53 @@ public class OthelloGame implements Game {
      * This is an Object (from Interface) but is actually a char[][].
      * Caller should type-cast to this.
      **/
-    public synchronized Object getStateAsObject() { return board; }
+    public synchronized Object getStateAsObject() { return view(); }
+
+    /**
+     * Get the bitboard version of the state (null if board is larger than 8x8).
+     * This is the live board - callers should not modify it.
+     **/
+    public synchronized OthelloBoard getBits() { return bits; }
+
+    /**
+     * The char[][] board, brought up to date with the bitboard if needed.
+     **/
+    private char[][] view() {
+	if (stale) {
+	    bits.fill(board);
+	    stale = false;
+	}
+	return board;
+    }
+
+    /**
+     * Rebuild the bitboard from the char[][] board (when it fits).
+     **/
+    private void loadBits() {
+	stale = false;
+	undoTop = 0;
+	if (board == null || !OthelloBoard.fits(board.length, board[0].length)) {
+	    bits = null;
+	    return;
+	}
+	if (bits == null || bits.rows != board.length || bits.cols != board[0].length)
+	    bits = new OthelloBoard(board.length, board[0].length);
+	bits.set(turn, board);
+	if (evaluator != null) evaluator.reset(bits);
+    }
+
+    /**
+     * Attach an evaluator which is told about every change to the (bitboard) position
+     **/
+    public synchronized void setEvaluator(OthelloEvaluator evaluator) {
+	this.evaluator = evaluator;
+	if (evaluator != null && bits != null) evaluator.reset(bits);
+    }
+
+    /**
+     * The attached evaluator's score of the position (Home's point of view)
+     **/
+    public int evaluate() { return evaluator.evaluate(bits); }
     
     /**
      * Update the current state of game (in some string format - game dependent)
@@ -207,6 +294,7 @@ public class OthelloGame implements Game {
 	    for (int i = 3, r = 0; r < board.length; r++)
 		for (int c = 0; c < board[0].length; c++, i++)
 		    board[r][c] = pieces[i].charAt(0);
+	    loadBits();
 	    
 	    if (verbose > 0) displayState();
 	} catch (NumberFormatException e) {
@@ -222,6 +310,19 @@ public class OthelloGame implements Game {
 	for (int i = 0; i < this.board.length; i++)
 	    this.board[i] = newBoard[i].clone();
 	this.turn = turn;
+	loadBits();
+    }
+
+    /**
+     * Update the state to the given discs (bitboard version, no copying of arrays).
+     * The bitboard must already exist - e.g. from an earlier updateState.
+     **/
+    public synchronized void setPosition(int turn, long home, long away) {
+	this.turn = turn;
+	undoTop = 0;
+	bits.set(turn, home, away);
+	if (evaluator != null) evaluator.reset(bits);
+	stale = true;
     }
     
     /**
@@ -232,6 +333,7 @@ public class OthelloGame implements Game {
 	    System.out.println("No state yet to display...");
 	    return;
 	}
+	char[][] board = view();
 
 	// Print the column header
 	System.out.print(" ");
@@ -305,6 +407,7 @@ public class OthelloGame implements Game {
 	    return "ERROR:It is not your turn.";
 	} else {
 	    try {
+		char[][] board = view();
 		// Check if the move is actually empty
 		int row = move.charAt(0) - '0';
 		if (row < 0 || row >= board.length)
@@ -320,6 +423,7 @@ public class OthelloGame implements Game {
 		    return "ERROR: Invalid move: " + move;
 		changed = true;
 		turn ^= 1;   // Switch turn from 0 to 1 or 1 to 0
+		if (bits != null) bits.setTurn(turn);
 		computeWinner();
 		return "MESSAGE:Placed mark at location " + move + ".";
 	    } catch (Exception e) {
@@ -332,6 +436,7 @@ public class OthelloGame implements Game {
      * Place piece at provided location
      **/
     public boolean processMove(int p, int row, int col) {
+	if (bits != null) return processMove(p, OthelloBoard.square(row, col));
 	char symbol = (p == 0) ? 'X' : 'O';
 	
 	if (board[row][col] != ' ') return false;  // Spot not available
@@ -351,6 +456,89 @@ public class OthelloGame implements Game {
 	return flipped;  // True if ANY Of the directions were true.
     }
 
+    /**
+     * Place piece at provided square (bitboard version - see OthelloBoard.square)
+     **/
+    public boolean processMove(int p, int sq) {
+	long f = bits.play(p, sq);
+	if (f == 0) return false;  // Not a valid move
+	if (evaluator != null) evaluator.makeMove(bits, p, sq, f);
+	stale = true;
+	return true;
+    }
+
+    /**
+     * Make a move in place for whoever's turn it is (bitboard version).
+     * The flipped discs are saved on an undo stack so undoMove can take it back.
+     * Meant for searching on a practice game: the move must be legal (or PASS)
+     * and the done/winner/changed flags are not updated.  Nothing is allocated
+     * once the undo stack has been created.
+     * @param sq The square to play (see OthelloBoard.square) or OthelloBoard.PASS
+     **/
+    public void makeMove(int sq) {
+	if (undoSquare == null || undoTop == undoSquare.length) growUndo();
+	long f = 0;
+	undoHash[undoTop] = bits.hash;
+	if (sq != OthelloBoard.PASS) {
+	    f = OthelloBoard.flips(sq, bits.discs(turn), bits.discs(turn ^ 1));
+	    bits.apply(turn, sq, f);
+	}
+	undoFlips[undoTop] = f;
+	undoSquare[undoTop++] = sq;
+	if (evaluator != null) evaluator.makeMove(bits, turn, sq, f);
+	turn ^= 1;
+	bits.setTurn(turn);
+	stale = true;
+    }
+
+    /**
+     * Take back the last move made with makeMove.
+     **/
+    public void undoMove() {
+	int sq = undoSquare[--undoTop];
+	long f = undoFlips[undoTop];
+	turn ^= 1;
+	bits.turn = turn;
+	bits.hash = undoHash[undoTop];
+	if (sq != OthelloBoard.PASS) {
+	    long b = 1L << sq;
+	    if (turn == 0) { bits.home &= ~(b | f); bits.away |= f; }
+	    else           { bits.away &= ~(b | f); bits.home |= f; }
+	}
+	if (evaluator != null) evaluator.undoMove(bits, turn, sq, f);
+	stale = true;
+    }
+
+    /**
+     * Make room on the undo stack.  A game has at most one move per square
+     * plus one pass between each, so this is normally only done once.
+     **/
+    private void growUndo() {
+	int size = (undoSquare == null) ? 2 * OthelloBoard.MAX_DIM * OthelloBoard.MAX_DIM + 2 : 2 * undoSquare.length;
+	long[] f = new long[size];
+	int[] sq = new int[size];
+	long[] h = new long[size];
+	if (undoSquare != null) {
+	    System.arraycopy(undoFlips, 0, f, 0, undoTop);
+	    System.arraycopy(undoSquare, 0, sq, 0, undoTop);
+	    System.arraycopy(undoHash, 0, h, 0, undoTop);
+	}
+	undoFlips = f;
+	undoSquare = sq;
+	undoHash = h;
+    }
+
+    /**
+     * The Zobrist key of the current position (bitboard version only)
+     **/
+    public long getHash() { return bits.hash; }
+
+    /**
+     * Get the legal moves as a bit mask (bitboard version of getActions)
+     * @param player - which player is moving
+     **/
+    public long getMoves(int player) { return bits.moves(player); }
+
     /**
      * Get the various (valid) actions that are possible 
      * @param player - which player is moving
@@ -359,6 +547,18 @@ public class OthelloGame implements Game {
     public ArrayList<Action> getActions(int player) 
     {
 		ArrayList<Action> result = new ArrayList<Action>();
+
+		if (bits != null)
+		{
+		    // Pull the actions out of the move mask (still in row-major order)
+		    for (long moves = bits.moves(player); moves != 0; moves &= moves - 1)
+		    {
+			int sq = Long.numberOfTrailingZeros(moves);
+			result.add(new Action(OthelloBoard.row(sq), OthelloBoard.col(sq)));
+		    }
+		    return result;
+		}
+
 		char symbol = (player == 0) ? 'X' : 'O';
 		
 		// Go through EVERY spot on the board
@@ -379,6 +579,7 @@ public class OthelloGame implements Game {
      * @returns True if this location creates at least ONE flip option.
      **/
     public boolean isValidMove(char symbol, int row, int col) {
+	if (bits != null) return bits.isValidMove(symbol == 'X' ? 0 : 1, OthelloBoard.square(row, col));
 	return
 	    board[row][col] == ' ' &&       // Space is open
 	    (flipDirection(symbol, row, col, -1,  0, false) ||   // NORTH
@@ -398,7 +599,7 @@ public class OthelloGame implements Game {
     private boolean flipDirection(char symbol, int row, int col, int dr, int dc, boolean flip) {
 	int r, c, count;
 	boolean flipped = false;
-	for (r = row+dr, c = col+dc, count = 0; r >= 0 && r < board.length && c >= 0 && c < board.length && board[r][c] != ' ';
+	for (r = row+dr, c = col+dc, count = 0; r >= 0 && r < board.length && c >= 0 && c < board[0].length && board[r][c] != ' ';
 	     r += dr, c += dc, count++) {
 	    if (board[r][c] == symbol) {
 		// Found one
@@ -0,0 +1,243 @@
+/*******************
+ * Christian A. Duncan
+ * Edited: Diego Holguin
+ * CSC350: Intelligent Systems
+ * Spring 2017
+ *
+ * AI Game Client
+ * This project is designed to support multiple game platforms to test
+ * AI-based solutions.
+ * See README file for more details.
+ ********************/
+
+package cad.ai.game;
+
+/***********************************************************
+ * A table-driven Othello evaluation (bitboard boards only).
+ *   The board is covered by patterns - the 4 edges, the 3x3 block in
+ *   each corner and (on square boards) the 2 long diagonals.  The
+ *   contents of a pattern (empty/Home/Away per square) is read as a
+ *   base-3 number which indexes a table of precomputed values, so
+ *   things like "corner taken and a run of discs along the edge from
+ *   it" or "X-square next to an empty corner" cost one lookup.
+ *   The indices are kept up to date as moves are made and undone
+ *   (only the patterns through the changed squares are touched).
+ *   To that we add mobility (legal moves), potential mobility
+ *   (empty squares next to the opponent's discs), stable discs and
+ *   frontier discs (see OthelloStability).
+ *
+ *   The tables are built once when the class is loaded (from the
+ *   hand-written rules in edgeValue, cornerValue, diagonalValue) and
+ *   shared read-only by all the evaluators.
+ ***********************************************************/
+public class OthelloPatternEvaluator implements OthelloEvaluator {
+    // Weights (roughly in discs)
+    private static final int CORNER = 25;        // Corner held
+    private static final int STABLE = 3;         // Edge disc in an unbroken run from our corner
+    private static final int EDGE_DISC = 1;      // Any edge disc
+    private static final int C_SQUARE = 8;       // Edge square next to an empty corner
+    private static final int X_SQUARE = 15;      // Diagonal square next to an empty corner
+    private static final int CORNER_BLOCK = 2;   // Discs next to a corner we hold
+    private static final int DIAGONAL = 2;       // Diagonal disc in an unbroken run from our corner
+    private static final int MOBILITY = 4;       // Per legal move
+    private static final int POTENTIAL = 1;      // Per empty square next to opponent discs
+    private static final int STABLE_DISC = 4;    // Per disc that can never be flipped
+    private static final int FRONTIER = 1;       // Per disc next to an empty square (a bad thing)
+
+    // The kinds of pattern (and their tables: [kind][length][index])
+    private static final int EDGE = 0, BLOCK = 1, DIAG = 2;
+    private static final int EMPTY = 0, HOME = 1, AWAY = 2;  // The base-3 digits
+    private static final int[] POW3 = { 1, 3, 9, 27, 81, 243, 729, 2187, 6561, 19683 };
+    private static final int[][][] TABLE = new int[3][10][];
+    static {
+	for (int len = 1; len <= OthelloBoard.MAX_DIM; len++) {
+	    TABLE[EDGE][len] = buildTable(EDGE, len);
+	    TABLE[DIAG][len] = buildTable(DIAG, len);
+	}
+	TABLE[BLOCK][9] = buildTable(BLOCK, 9);
+    }
+
+    // The patterns on the current board (set up by reset)
+    private long boardMask;          // The board the patterns were made for
+    private int patterns;            // Number of patterns
+    private int[][] values = new int[12][];  // Table of each pattern
+    private int[] index = new int[12];       // Current index of each pattern
+    private int[] count = new int[64];        // Number of patterns through each square
+    private int[][] pattern = new int[64][8]; // ... which ones (at most 7, on a 3x3 board)
+    private int[][] power = new int[64][8];   // ... and the power of 3 of the square in each
+
+    public OthelloEvaluator newEvaluator() { return new OthelloPatternEvaluator(); }
+
+    /**
+     * Set up the patterns (if the board size changed) and compute every index
+     **/
+    public void reset(OthelloBoard board) {
+	if (board.mask != boardMask) setBoard(board);
+	for (int i = 0; i < patterns; i++) index[i] = 0;
+	for (long b = board.home; b != 0; b &= b - 1) change(Long.numberOfTrailingZeros(b), HOME);
+	for (long b = board.away; b != 0; b &= b - 1) change(Long.numberOfTrailingZeros(b), AWAY);
+    }
+
+    public void makeMove(OthelloBoard board, int player, int sq, long flips) {
+	if (sq == OthelloBoard.PASS) return;
+	change(sq, player == 0 ? HOME : AWAY);
+	// A flip turns AWAY (2) into HOME (1) or back
+	int d = (player == 0) ? -1 : 1;
+	for (; flips != 0; flips &= flips - 1) change(Long.numberOfTrailingZeros(flips), d);
+    }
+
+    public void undoMove(OthelloBoard board, int player, int sq, long flips) {
+	if (sq == OthelloBoard.PASS) return;
+	change(sq, player == 0 ? -HOME : -AWAY);
+	int d = (player == 0) ? 1 : -1;
+	for (; flips != 0; flips &= flips - 1) change(Long.numberOfTrailingZeros(flips), d);
+    }
+
+    /** Add d times the square's power of 3 to each pattern through sq **/
+    private void change(int sq, int d) {
+	int[] p = pattern[sq], pw = power[sq];
+	for (int k = count[sq] - 1; k >= 0; k--) index[p[k]] += d * pw[k];
+    }
+
+    public int evaluate(OthelloBoard board) {
+	int score = 0;
+	for (int i = 0; i < patterns; i++) score += values[i][index[i]];
+
+	long empty = board.empty();
+	score += MOBILITY * (Long.bitCount(OthelloBoard.moves(board.home, board.away, board.mask))
+			     - Long.bitCount(OthelloBoard.moves(board.away, board.home, board.mask)));
+	score += POTENTIAL * (Long.bitCount(OthelloBoard.neighbours(board.away) & empty)
+			      - Long.bitCount(OthelloBoard.neighbours(board.home) & empty));
+	score += STABLE_DISC * (Long.bitCount(OthelloStability.stable(board.home, board.away, board.rows, board.cols))
+				- Long.bitCount(OthelloStability.stable(board.away, board.home, board.rows, board.cols)));
+	score += FRONTIER * (Long.bitCount(OthelloStability.frontier(board.away, empty))
+			     - Long.bitCount(OthelloStability.frontier(board.home, empty)));
+	return score;
+    }
+
+    /**
+     * Lay out the patterns on a board of this size
+     **/
+    private void setBoard(OthelloBoard board) {
+	boardMask = board.mask;
+	patterns = 0;
+	for (int sq = 0; sq < 64; sq++) count[sq] = 0;
+	int lastR = board.rows - 1, lastC = board.cols - 1;
+
+	// The edges, from one corner to the other
+	addLine(EDGE, 0, 0, 0, 1, board.cols);
+	addLine(EDGE, lastR, 0, 0, 1, board.cols);
+	addLine(EDGE, 0, 0, 1, 0, board.rows);
+	addLine(EDGE, 0, lastC, 1, 0, board.rows);
+
+	// The 3x3 corner blocks, read from the corner outwards
+	if (board.rows >= 3 && board.cols >= 3) {
+	    addBlock(0, 0, 1, 1);
+	    addBlock(0, lastC, 1, -1);
+	    addBlock(lastR, 0, -1, 1);
+	    addBlock(lastR, lastC, -1, -1);
+	}
+
+	// The long diagonals (corner to corner)
+	if (board.rows == board.cols) {
+	    addLine(DIAG, 0, 0, 1, 1, board.rows);
+	    addLine(DIAG, 0, lastC, 1, -1, board.rows);
+	}
+    }
+
+    /** A line of len squares from (r,c) in direction (dr,dc) **/
+    private void addLine(int kind, int r, int c, int dr, int dc, int len) {
+	int p = patterns++;
+	values[p] = TABLE[kind][len];
+	for (int i = 0; i < len; i++) addSquare(p, OthelloBoard.square(r + i * dr, c + i * dc), i);
+    }
+
+    /** The 3x3 block at corner (r,c) going in directions dr and dc **/
+    private void addBlock(int r, int c, int dr, int dc) {
+	int p = patterns++;
+	values[p] = TABLE[BLOCK][9];
+	for (int i = 0; i < 3; i++)
+	    for (int j = 0; j < 3; j++)
+		addSquare(p, OthelloBoard.square(r + i * dr, c + j * dc), 3 * i + j);
+    }
+
+    private void addSquare(int p, int sq, int digit) {
+	int k = count[sq]++;
+	pattern[sq][k] = p;
+	power[sq][k] = POW3[digit];
+    }
+
+    /*********************************************************************************
+     *                              TABLE CONSTRUCTION                               *
+     *********************************************************************************/
+
+    /**
+     * Value (for Home) of every configuration of a pattern
+     **/
+    private static int[] buildTable(int kind, int len) {
+	int[] table = new int[POW3[len]];
+	int[] digits = new int[len];
+	for (int index = 0; index < table.length; index++) {
+	    for (int i = 0, x = index; i < len; i++, x /= 3) digits[i] = x % 3;
+	    table[index] = value(kind, digits, HOME, AWAY) - value(kind, digits, AWAY, HOME);
+	}
+	return table;
+    }
+
+    /** Value of a configuration for own (against opp) **/
+    private static int value(int kind, int[] d, int own, int opp) {
+	switch (kind) {
+	case EDGE: return edgeValue(d, own);
+	case BLOCK: return cornerValue(d, own);
+	default: return diagonalValue(d, own);
+	}
+    }
+
+    /**
+     * An edge (d[0] and d[len-1] are corners): corners held, runs of discs
+     * anchored to them, C-squares next to empty corners and edge discs.
+     **/
+    private static int edgeValue(int[] d, int own) {
+	int len = d.length, s = 0;
+	for (int i = 0; i < len; i++)
+	    if (d[i] == own) s += EDGE_DISC;
+	for (int end = 0, dir = 1; end < len; end += len - 1, dir = -1) {
+	    if (d[end] == own) {
+		s += CORNER;
+		for (int k = end; k >= 0 && k < len && d[k] == own; k += dir) s += STABLE;
+	    } else if (d[end] == EMPTY && len > 2 && d[end + dir] == own) {
+		s -= C_SQUARE;
+	    }
+	    if (len == 1) break;
+	}
+	return s;
+    }
+
+    /**
+     * A 3x3 corner block (d[0] is the corner, d[4] the X-square): an
+     * X-square next to an empty corner is bad, discs next to our corner good.
+     * (The corner itself is counted by the edges.)
+     **/
+    private static int cornerValue(int[] d, int own) {
+	if (d[0] == EMPTY) return (d[4] == own) ? -X_SQUARE : 0;
+	if (d[0] != own) return 0;
+	int s = 0;
+	if (d[4] == own) s += CORNER_BLOCK;
+	if (d[4] == own && d[5] == own) s += CORNER_BLOCK;
+	if (d[4] == own && d[7] == own) s += CORNER_BLOCK;
+	return s;
+    }
+
+    /**
+     * A long diagonal (d[0] and d[len-1] are corners): discs in an
+     * unbroken run from our corner.
+     **/
+    private static int diagonalValue(int[] d, int own) {
+	int len = d.length, s = 0;
+	if (d[0] == own)
+	    for (int k = 1; k < len && d[k] == own; k++) s += DIAGONAL;
+	if (d[len - 1] == own)
+	    for (int k = len - 2; k >= 0 && d[k] == own; k--) s += DIAGONAL;
+	return s;
+    }
+}
@@ -0,0 +1,180 @@
+/*******************
+ * Christian A. Duncan
+ * Edited: Diego Holguin
+ * CSC350: Intelligent Systems
+ * Spring 2017
+ *
+ * AI Game Client
+ * This project is designed to support multiple game platforms to test
+ * AI-based solutions.
+ * See README file for more details.
+ ********************/
+
+package cad.ai.game;
+
+import java.util.Random;
+import cad.ai.search.Position;
+
+/***********************************************************
+ * An Othello board of any size for the SearchEngine (boards that fit
+ * a bitboard are searched as an OthelloBitPosition instead).
+ *   Moves are squares r * cols + c, and a pass is the square just past
+ *   the end of the board (rows * cols).  The score is the disc
+ *   difference, as the game is decided by it, and the static prior
+ *   is the square class (as for OthelloBitPosition).
+ *   Flipped squares are kept on a stack so undoMove can put them back.
+ ***********************************************************/
+public class OthelloPosition implements Position {
+    private static final int[] DR = {-1, -1, -1, 0, 0, 1, 1, 1};
+    private static final int[] DC = {-1, 0, 1, -1, 1, -1, 0, 1};
+    private static final char[] SYMBOL = {'X', 'O'};
+
+    private char[][] board = new char[0][0];
+    private int rows, cols, pass;
+    private long[][] keys;     // Zobrist keys for X and O on each square
+    private long turnKey;      // Zobrist key for O to move
+    private int turn;          // Player to move: 0 (X) or 1 (O)
+    private int[] discs = new int[2];
+    private long hash;
+    private int[] undoSquare = new int[0];  // Square of each move made (or pass)
+    private int[] undoFlips = new int[0];   // Top of the flipped stack before each move
+    private int undoTop = 0;
+    private int[] flipped = new int[0];     // Every square flipped by the moves made
+    private int flipTop = 0;
+
+    /**
+     * Set the position to a copy of the board with the given player to move
+     **/
+    public void set(char[][] board, int turn) {
+	if (this.board.length != board.length || this.board[0].length != board[0].length) resize(board.length, board[0].length);
+	this.turn = turn;
+	undoTop = flipTop = 0;
+	discs[0] = discs[1] = 0;
+	hash = (turn == 1) ? turnKey : 0;
+	for (int r = 0; r < rows; r++)
+	    for (int c = 0; c < cols; c++) {
+		char s = board[r][c];
+		this.board[r][c] = s;
+		for (int p = 0; p < 2; p++)
+		    if (s == SYMBOL[p]) {
+			discs[p]++;
+			hash ^= keys[p][r * cols + c];
+		    }
+	    }
+    }
+
+    /**
+     * A new board size: new arrays and keys.  The keys only depend on
+     * the size, so a transposition table stays valid between moves.
+     **/
+    private void resize(int rows, int cols) {
+	this.rows = rows;
+	this.cols = cols;
+	this.pass = rows * cols;
+	board = new char[rows][cols];
+	keys = new long[2][pass];
+	Random ran = new Random(31L * rows + cols);
+	for (int p = 0; p < 2; p++)
+	    for (int sq = 0; sq < pass; sq++) keys[p][sq] = ran.nextLong();
+	turnKey = ran.nextLong();
+	undoSquare = new int[2 * pass + 2];  // A move per square and a pass between each
+	undoFlips = new int[undoSquare.length];
+	flipped = new int[4 * (rows + cols)];
+    }
+
+    public int maxMoves() { return pass; }
+
+    public int generateMoves(int[] moves, int offset) {
+	int n = 0;
+	for (int r = 0; r < rows; r++)
+	    for (int c = 0; c < cols; c++)
+		if (board[r][c] == ' ' && flips(r, c, turn, false) > 0) moves[offset + n++] = r * cols + c;
+	if (n > 0) return n;
+
+	// Pass if the other player can move, otherwise the game is over
+	for (int r = 0; r < rows; r++)
+	    for (int c = 0; c < cols; c++)
+		if (board[r][c] == ' ' && flips(r, c, turn ^ 1, false) > 0) {
+		    moves[offset] = pass;
+		    return 1;
+		}
+	return 0;
+    }
+
+    public void makeMove(int move) {
+	undoSquare[undoTop] = move;
+	undoFlips[undoTop++] = flipTop;
+	if (move != pass) {
+	    int r = move / cols, c = move % cols;
+	    if (flipped.length < flipTop + 2 * (rows + cols)) {
+		int[] grown = new int[2 * flipped.length];
+		System.arraycopy(flipped, 0, grown, 0, flipTop);
+		flipped = grown;
+	    }
+	    int f = flips(r, c, turn, true);
+	    board[r][c] = SYMBOL[turn];
+	    hash ^= keys[turn][move];
+	    discs[turn] += f + 1;
+	    discs[turn ^ 1] -= f;
+	}
+	turn ^= 1;
+	hash ^= turnKey;
+    }
+
+    public void undoMove() {
+	int move = undoSquare[--undoTop];
+	turn ^= 1;
+	hash ^= turnKey;
+	if (move == pass) return;
+	int bottom = undoFlips[undoTop];
+	int f = flipTop - bottom;
+	while (flipTop > bottom) {
+	    int sq = flipped[--flipTop];
+	    board[sq / cols][sq % cols] = SYMBOL[turn ^ 1];
+	    hash ^= keys[0][sq] ^ keys[1][sq];
+	}
+	board[move / cols][move % cols] = ' ';
+	hash ^= keys[turn][move];
+	discs[turn] -= f + 1;
+	discs[turn ^ 1] += f;
+    }
+
+    public long hash() { return hash; }
+
+    public int evaluate() { return discs[turn] - discs[turn ^ 1]; }
+
+    public int side() { return turn; }
+
+    public int moveLimit() { return pass + 1; }
+
+    public int priority(int move) {
+	return (move == pass) ? 0 : OthelloBitPosition.squareClass(move / cols, move % cols, rows, cols);
+    }
+
+    /**
+     * The number of discs player p would flip by playing at (r, c).
+     * If flip is set they are flipped (and pushed on the flipped stack).
+     **/
+    private int flips(int r, int c, int p, boolean flip) {
+	char own = SYMBOL[p], opp = SYMBOL[p ^ 1];
+	int total = 0;
+	for (int d = 0; d < 8; d++) {
+	    int rr = r + DR[d], cc = c + DC[d], n = 0;
+	    while (rr >= 0 && rr < rows && cc >= 0 && cc < cols && board[rr][cc] == opp) {
+		rr += DR[d];
+		cc += DC[d];
+		n++;
+	    }
+	    if (n == 0 || rr < 0 || rr >= rows || cc < 0 || cc >= cols || board[rr][cc] != own) continue;
+	    total += n;
+	    if (flip)
+		for (int i = 1; i <= n; i++) {
+		    int fr = r + i * DR[d], fc = c + i * DC[d];
+		    board[fr][fc] = own;
+		    hash ^= keys[0][fr * cols + fc] ^ keys[1][fr * cols + fc];
+		    flipped[flipTop++] = fr * cols + fc;
+		}
+	}
+	return total;
+    }
+}
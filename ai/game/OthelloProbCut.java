@@ -0,0 +1,230 @@
+/*******************
+ * Christian A. Duncan
+ * Edited: Diego Holguin
+ * CSC350: Intelligent Systems
+ * Spring 2017
+ *
+ * AI Game Client
+ * This project is designed to support multiple game platforms to test
+ * AI-based solutions.
+ * See README file for more details.
+ ********************/
+
+package cad.ai.game;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Locale;
+import cad.ai.search.Position;
+import cad.ai.search.ProbCut;
+import cad.ai.search.SearchEngine;
+
+/***********************************************************
+ * Multi-ProbCut parameters for the Othello search.
+ *   The score of a deep search (depth d) is roughly a linear function
+ *   of the score of a shallow one (depth d') of the same position:
+ *       v_d = a * v_d' + b + e    with e of standard deviation sigma
+ *   So if a shallow search says v_d' >= (beta + t * sigma - b) / a the
+ *   deep search would almost surely fail high too, and the node can be
+ *   cut without it (likewise for failing low).  t is the threshold:
+ *   the larger it is the fewer (and safer) the cuts.
+ *
+ *   The parameters depend on the stage of the game (empty squares,
+ *   STAGE_WIDTH at a time) and on d.  Each (stage, d) may have up to
+ *   MAX_CHECKS shallow depths, tried shallowest first.  Searches deeper
+ *   than any fitted depth reuse the deepest fitted checks, with the
+ *   shallow depths moved down by the same amount.
+ *
+ *   The parameters are fitted by OthelloProbCutFitter and kept in a
+ *   text file (one per board size and evaluator):
+ *       # comments
+ *       size rows cols
+ *       threshold t
+ *       stage depth shallow a b sigma     (one line per check)
+ *   where stage is empties / STAGE_WIDTH.  With no checks at all
+ *   (e.g. no file) the search is exact.
+ *
+ *   As a ProbCut for the SearchEngine it only cuts OthelloBitPositions
+ *   of its board size, and never once a bound is a won or lost game.
+ ***********************************************************/
+public class OthelloProbCut implements ProbCut {
+    public static final String DEFAULT_FILE = "OthelloProbCut.txt";
+    public static final double DEFAULT_THRESHOLD = 1.5;
+    public static final int STAGE_WIDTH = 8;   // Empty squares per stage
+    public static final int MIN_DEPTH = 3;     // Shallowest depth to try cutting at
+    public static final int MAX_DEPTH = 64;    // Deepest depth with parameters of its own
+    public static final int MAX_CHECKS = 2;    // Shallow searches per depth
+    private static final int STAGES = 64 / STAGE_WIDTH + 1;
+
+    private static OthelloProbCut defaultParams = null;  // Shared by all the AIs (read-only once loaded)
+    private static boolean defaultLoaded = false;
+
+    private int rows = OthelloBoard.MAX_DIM, cols = OthelloBoard.MAX_DIM;
+    private double threshold = DEFAULT_THRESHOLD;
+    private final int[] count = new int[STAGES * (MAX_DEPTH + 1)];  // Checks for each (stage, depth)
+    private final int[] shallow = new int[count.length * MAX_CHECKS];
+    private final double[] a = new double[shallow.length], b = new double[shallow.length], sigma = new double[shallow.length];
+    private final int[] deepest = new int[STAGES];  // Deepest fitted depth of each stage (0 = none)
+
+    /**
+     * The parameters in DEFAULT_FILE (loaded the first time they are asked for).
+     * Returns parameters with no checks if there is no such file.
+     **/
+    public static synchronized OthelloProbCut getDefault() {
+	if (!defaultLoaded) {
+	    defaultLoaded = true;
+	    defaultParams = new OthelloProbCut();
+	    File f = new File(DEFAULT_FILE);
+	    if (f.exists()) {
+		try {
+		    defaultParams.load(f);
+		    System.out.println("DEBUG: Loaded ProbCut parameters " + DEFAULT_FILE + ".");
+		} catch (IOException e) {
+		    System.err.println("Error reading ProbCut parameters " + DEFAULT_FILE + ": " + e.getMessage());
+		    defaultParams = new OthelloProbCut();
+		}
+	    }
+	}
+	return defaultParams;
+    }
+
+    public void setSize(int rows, int cols) { this.rows = rows; this.cols = cols; }
+    public void setThreshold(double threshold) { this.threshold = threshold; }
+    public double getThreshold() { return threshold; }
+
+    /** Are the parameters for boards of this size? **/
+    public boolean fits(OthelloBoard board) { return board.rows == rows && board.cols == cols; }
+
+    /** Number of checks (shallow searches) for a node with these empties at this depth **/
+    public int checks(int empties, int depth) {
+	int stage = empties / STAGE_WIDTH;
+	return count[index(stage, fitted(stage, depth))];
+    }
+
+    /** The depth of check i **/
+    public int shallow(int empties, int depth, int i) {
+	int stage = empties / STAGE_WIDTH, d = fitted(stage, depth);
+	return shallow[index(stage, d) * MAX_CHECKS + i] + depth - d;
+    }
+
+    /** Check i cuts (fail high) if a shallow search gets at least this much **/
+    public int highBound(int empties, int depth, int i, int beta) {
+	int stage = empties / STAGE_WIDTH, k = index(stage, fitted(stage, depth)) * MAX_CHECKS + i;
+	return (int) Math.ceil((beta + threshold * sigma[k] - b[k]) / a[k]);
+    }
+
+    /** Check i cuts (fail low) if a shallow search gets at most this much **/
+    public int lowBound(int empties, int depth, int i, int alpha) {
+	int stage = empties / STAGE_WIDTH, k = index(stage, fitted(stage, depth)) * MAX_CHECKS + i;
+	return (int) Math.floor((alpha - threshold * sigma[k] - b[k]) / a[k]);
+    }
+
+    /** The empties of an OthelloBitPosition (-1 for any other position) **/
+    private static int empties(Position position) {
+	if (!(position instanceof OthelloBitPosition)) return -1;
+	return Long.bitCount(((OthelloBitPosition) position).getBits().empty());
+    }
+
+    public int checks(Position position, int depth, int alpha) {
+	if (depth < MIN_DEPTH || alpha <= -OthelloBitPosition.FINAL_SCALE || alpha + 1 >= OthelloBitPosition.FINAL_SCALE) return 0;
+	if (!(position instanceof OthelloBitPosition) || !fits(((OthelloBitPosition) position).getBits())) return 0;
+	return checks(empties(position), depth);
+    }
+
+    public int shallow(Position position, int depth, int i) { return shallow(empties(position), depth, i); }
+
+    public int highBound(Position position, int depth, int i, int beta) {
+	int bound = highBound(empties(position), depth, i, beta);
+	return (bound < OthelloBitPosition.FINAL_SCALE) ? bound : SearchEngine.INFINITY;
+    }
+
+    public int lowBound(Position position, int depth, int i, int alpha) {
+	int bound = lowBound(empties(position), depth, i, alpha);
+	return (bound > -OthelloBitPosition.FINAL_SCALE) ? bound : -SearchEngine.INFINITY;
+    }
+
+    /**
+     * Add a check (the fit of v_depth = a * v_shallow + b, sigma) for a stage.
+     * Ignored if the depth already has MAX_CHECKS.
+     **/
+    public void put(int stage, int depth, int shallowDepth, double a, double b, double sigma) {
+	if (stage < 0 || stage >= STAGES || depth < MIN_DEPTH || depth > MAX_DEPTH) return;
+	if (shallowDepth < 1 || shallowDepth >= depth || a <= 0) return;
+	int d = index(stage, depth);
+	if (count[d] == MAX_CHECKS) return;
+
+	// Keep the checks shallowest first
+	int i = count[d]++;
+	for (; i > 0 && shallow[d * MAX_CHECKS + i - 1] > shallowDepth; i--) {
+	    int k = d * MAX_CHECKS + i;
+	    shallow[k] = shallow[k - 1];
+	    this.a[k] = this.a[k - 1];
+	    this.b[k] = this.b[k - 1];
+	    this.sigma[k] = this.sigma[k - 1];
+	}
+	int k = d * MAX_CHECKS + i;
+	shallow[k] = shallowDepth;
+	this.a[k] = a;
+	this.b[k] = b;
+	this.sigma[k] = sigma;
+	if (depth > deepest[stage]) deepest[stage] = depth;
+    }
+
+    /** The depth whose checks a search of this depth uses **/
+    private int fitted(int stage, int depth) {
+	return (depth > deepest[stage] && deepest[stage] > 0) ? deepest[stage] : depth;
+    }
+
+    private static int index(int stage, int depth) { return stage * (MAX_DEPTH + 1) + Math.min(depth, MAX_DEPTH); }
+
+    /**
+     * Read a parameter file (adding its checks to these)
+     **/
+    public void load(File file) throws IOException {
+	BufferedReader in = new BufferedReader(new FileReader(file));
+	try {
+	    String line;
+	    while ((line = in.readLine()) != null) {
+		line = line.trim();
+		if (line.isEmpty() || line.startsWith("#")) continue;
+		String[] f = line.split("\\s+");
+		try {
+		    if (f[0].equals("size")) setSize(Integer.parseInt(f[1]), Integer.parseInt(f[2]));
+		    else if (f[0].equals("threshold")) threshold = Double.parseDouble(f[1]);
+		    else put(Integer.parseInt(f[0]), Integer.parseInt(f[1]), Integer.parseInt(f[2]),
+			     Double.parseDouble(f[3]), Double.parseDouble(f[4]), Double.parseDouble(f[5]));
+		} catch (RuntimeException e) {
+		    throw new IOException("Bad line: " + line);
+		}
+	    }
+	} finally {
+	    in.close();
+	}
+    }
+
+    /**
+     * Write the parameters to a file
+     **/
+    public void save(File file, String comment) throws IOException {
+	PrintWriter out = new PrintWriter(file);
+	try {
+	    if (comment != null) out.println("# " + comment);
+	    out.println("size " + rows + " " + cols);
+	    out.println("threshold " + threshold);
+	    out.println("# stage depth shallow a b sigma");
+	    for (int stage = 0; stage < STAGES; stage++)
+		for (int depth = MIN_DEPTH; depth <= MAX_DEPTH; depth++) {
+		    int d = index(stage, depth);
+		    for (int i = 0; i < count[d]; i++) {
+			int k = d * MAX_CHECKS + i;
+			out.printf(Locale.ROOT, "%d %d %d %.4f %.2f %.2f%n", stage, depth, shallow[k], a[k], b[k], sigma[k]);
+		    }
+		}
+	} finally {
+	    out.close();
+	}
+    }
+}
@@ -0,0 +1,313 @@
+/*******************
+ * Christian A. Duncan
+ * Edited: Diego Holguin
+ * CSC350: Intelligent Systems
+ * Spring 2017
+ *
+ * AI Game Client
+ * This project is designed to support multiple game platforms to test
+ * AI-based solutions.
+ * See README file for more details.
+ ********************/
+
+package cad.ai.game;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import cad.ai.search.SearchEngine;
+
+/***********************************************************
+ * Fits the OthelloProbCut parameters offline.
+ *   1. Self-play: the OthelloAI search (fixed depth, a few random
+ *      opening moves for variety) plays games and every midgame
+ *      position is written to a log, one per line:
+ *          rows cols turn home away      (discs in hex)
+ *      An existing log is used as it is (so logs can be collected
+ *      once and fitted again with other settings).
+ *   2. Every logged position is searched (exactly) to each depth up
+ *      to the deepest one to fit, several positions at once.
+ *   3. For each stage and each (depth, shallow depth) pair a least
+ *      squares line v_depth = a * v_shallow + b is fitted, and sigma
+ *      is the standard deviation of what the line misses by.
+ *   Positions whose scores are already won or lost games are left
+ *   out of the fit (they are never cut anyway).
+ ***********************************************************/
+public class OthelloProbCutFitter {
+    private static final int MIN_SAMPLES = 30;  // Fewer positions than this in a stage are not fitted
+
+    private final int rows, cols;
+    private final int deepest;
+    private final int endgameEmpties;
+    private final ExecutorService pool;
+    private final ThreadLocal<SearchEngine> searches = new ThreadLocal<SearchEngine>() {
+	    protected SearchEngine initialValue() { return new SearchEngine(18); }
+	};
+    private final ThreadLocal<OthelloBitPosition> boards = new ThreadLocal<OthelloBitPosition>() {
+	    protected OthelloBitPosition initialValue() { return new OthelloBitPosition(); }
+	};
+
+    public OthelloProbCutFitter(int rows, int cols, int deepest, int endgameEmpties, int threads) {
+	this.rows = rows;
+	this.cols = cols;
+	this.deepest = deepest;
+	this.endgameEmpties = endgameEmpties;
+	this.pool = Executors.newFixedThreadPool(threads);
+    }
+
+    /**
+     * The shallow depths fitted for a depth: about half of it
+     **/
+    public static int[] shallowDepths(int depth) {
+	int hi = depth / 2, lo = hi - 1;
+	if (lo < 1) return new int[] { Math.max(1, hi) };
+	return new int[] { lo, hi };
+    }
+
+    /**
+     * Play games against itself (in parallel) and log their midgame positions
+     **/
+    public void play(int games, final int playDepth, final int randomPlies, final PrintWriter log) throws Exception {
+	List<Future<?>> running = new ArrayList<Future<?>>();
+	for (int g = 0; g < games; g++) {
+	    final long seed = 1000 + g;
+	    running.add(pool.submit(new Callable<Object>() {
+		    public Object call() {
+			List<String> lines = playGame(playDepth, randomPlies, new Random(seed));
+			synchronized (log) {
+			    for (String line: lines) log.println(line);
+			}
+			return null;
+		    }
+		}));
+	}
+	for (Future<?> f: running) f.get();
+    }
+
+    /**
+     * One self-play game.  Returns the log lines of its midgame positions.
+     **/
+    private List<String> playGame(int playDepth, int randomPlies, Random random) {
+	List<String> lines = new ArrayList<String>();
+	OthelloBoard b = new OthelloBoard(rows, cols);
+	int midR = rows / 2, midC = cols / 2;
+	b.set(0, OthelloBoard.bit(midR - 1, midC) | OthelloBoard.bit(midR, midC - 1),
+	      OthelloBoard.bit(midR, midC) | OthelloBoard.bit(midR - 1, midC - 1));
+	for (int ply = 0; ; ply++) {
+	    int player = b.turn;
+	    long moves = b.moves(player);
+	    if (moves == 0) {
+		if (b.moves(player ^ 1) == 0) break;  // Game over
+		b.setTurn(player ^ 1);
+		continue;
+	    }
+	    int empties = Long.bitCount(b.empty());
+	    if (ply >= randomPlies && empties > endgameEmpties)
+		lines.add(rows + " " + cols + " " + player + " " + Long.toHexString(b.home) + " " + Long.toHexString(b.away));
+
+	    int sq;
+	    if (ply < randomPlies) {
+		for (int k = random.nextInt(Long.bitCount(moves)); k > 0; k--) moves &= moves - 1;
+		sq = Long.numberOfTrailingZeros(moves);
+	    } else sq = search(b, playDepth).getBestMove();
+	    b.play(player, sq);
+	    b.setTurn(player ^ 1);
+	}
+	return lines;
+    }
+
+    /**
+     * Search a position exactly (no ProbCut) with iterative deepening up to depth
+     **/
+    private SearchEngine search(OthelloBoard b, int depth) {
+	OthelloBitPosition position = boards.get();
+	position.set(b);
+
+	SearchEngine s = searches.get();
+	s.clear();  // Deeper results of earlier positions must not leak into these
+	s.search(position, Math.min(depth, Long.bitCount(b.empty())));
+	return s;
+    }
+
+    /**
+     * Search every logged position to each depth and fit the parameters
+     **/
+    public OthelloProbCut fit(List<OthelloBoard> positions, double threshold) throws Exception {
+	// scores[p][d] = score of position p searched to depth d (for the player to move)
+	final int[][] scores = new int[positions.size()][];
+	List<Future<?>> running = new ArrayList<Future<?>>();
+	for (int p = 0; p < positions.size(); p++) {
+	    final int index = p;
+	    final OthelloBoard b = positions.get(p);
+	    running.add(pool.submit(new Callable<Object>() {
+		    public Object call() {
+			SearchEngine s = search(b, deepest);
+			int[] v = new int[deepest + 1];
+			for (int d = 1; d <= s.getBestDepth(); d++) v[d] = s.getScoreAt(d);
+			scores[index] = v;
+			if (s.getBestDepth() < deepest) scores[index] = null;  // Too close to the end
+			return null;
+		    }
+		}));
+	}
+	for (int i = 0; i < running.size(); i++) {
+	    running.get(i).get();
+	    if ((i + 1) % 100 == 0) System.out.println("Searched " + (i + 1) + "/" + running.size() + " positions");
+	}
+
+	OthelloProbCut params = new OthelloProbCut();
+	params.setSize(rows, cols);
+	params.setThreshold(threshold);
+	for (int stage = 0; stage * OthelloProbCut.STAGE_WIDTH <= rows * cols; stage++)
+	    for (int depth = OthelloProbCut.MIN_DEPTH; depth <= deepest; depth++)
+		for (int shallow: shallowDepths(depth)) {
+		    // Least squares over the positions of this stage
+		    double n = 0, sx = 0, sy = 0, sxx = 0, sxy = 0;
+		    for (int p = 0; p < scores.length; p++) {
+			if (scores[p] == null) continue;
+			if (Long.bitCount(positions.get(p).empty()) / OthelloProbCut.STAGE_WIDTH != stage) continue;
+			int x = scores[p][shallow], y = scores[p][depth];
+			if (Math.abs(x) >= OthelloBitPosition.FINAL_SCALE || Math.abs(y) >= OthelloBitPosition.FINAL_SCALE) continue;
+			n++; sx += x; sy += y; sxx += (double) x * x; sxy += (double) x * y;
+		    }
+		    if (n < MIN_SAMPLES || n * sxx == sx * sx) continue;
+		    double a = (n * sxy - sx * sy) / (n * sxx - sx * sx);
+		    double b = (sy - a * sx) / n;
+
+		    double ss = 0;
+		    for (int p = 0; p < scores.length; p++) {
+			if (scores[p] == null) continue;
+			if (Long.bitCount(positions.get(p).empty()) / OthelloProbCut.STAGE_WIDTH != stage) continue;
+			int x = scores[p][shallow], y = scores[p][depth];
+			if (Math.abs(x) >= OthelloBitPosition.FINAL_SCALE || Math.abs(y) >= OthelloBitPosition.FINAL_SCALE) continue;
+			double e = y - (a * x + b);
+			ss += e * e;
+		    }
+		    double sigma = Math.sqrt(ss / (n - 2));
+		    params.put(stage, depth, shallow, a, b, sigma);
+		    System.out.printf("stage %d depth %d shallow %d: n=%d a=%.3f b=%.2f sigma=%.2f%n",
+				      stage, depth, shallow, (int) n, a, b, sigma);
+		}
+	pool.shutdown();
+	return params;
+    }
+
+    /**
+     * Read the positions of a log (only those of the given board size)
+     **/
+    public static List<OthelloBoard> readLog(File file, int rows, int cols) throws IOException {
+	List<OthelloBoard> positions = new ArrayList<OthelloBoard>();
+	BufferedReader in = new BufferedReader(new FileReader(file));
+	try {
+	    String line;
+	    while ((line = in.readLine()) != null) {
+		String[] f = line.trim().split("\\s+");
+		if (f.length != 5) continue;
+		try {
+		    if (Integer.parseInt(f[0]) != rows || Integer.parseInt(f[1]) != cols) continue;
+		    OthelloBoard b = new OthelloBoard(rows, cols);
+		    b.set(Integer.parseInt(f[2]), Long.parseUnsignedLong(f[3], 16), Long.parseUnsignedLong(f[4], 16));
+		    positions.add(b);
+		} catch (NumberFormatException e) {
+		    throw new IOException("Bad line: " + line);
+		}
+	    }
+	} finally {
+	    in.close();
+	}
+	return positions;
+    }
+
+    public static void main(String[] args) {
+	// Defaults to use
+	int dim = 8;
+	int games = 40;        // Self-play games (if there is no log yet)
+	int playDepth = 4;     // Search depth of the self-play games
+	int randomPlies = 8;   // Random moves at the start of each game
+	int depth = 8;         // Deepest depth to fit
+	int threads = OthelloAI.DEFAULT_THREADS;
+	double threshold = OthelloProbCut.DEFAULT_THRESHOLD;
+	String logFile = "OthelloProbCut.log";
+	String file = OthelloProbCut.DEFAULT_FILE;
+
+	// Parse the arguments
+	for (String arg: args) {
+	    try {
+		String[] params = arg.split("=",2);
+		switch (params[0]) {
+		case "--help": printUsage(null); break;
+		case "--dim": dim = Integer.parseInt(params[1]); break;
+		case "--games": games = Integer.parseInt(params[1]); break;
+		case "--play": playDepth = Integer.parseInt(params[1]); break;
+		case "--random": randomPlies = Integer.parseInt(params[1]); break;
+		case "--depth": depth = Integer.parseInt(params[1]); break;
+		case "--threads": threads = Integer.parseInt(params[1]); break;
+		case "--threshold": threshold = Double.parseDouble(params[1]); break;
+		case "--log": logFile = params[1]; break;
+		case "--file": file = params[1]; break;
+		default:
+		    printUsage("Unrecognized parameter: " + arg);
+		}
+	    } catch (Exception e) {
+		printUsage("Error processing parameter: " + arg);
+	    }
+	}
+	if (!OthelloBoard.fits(dim, dim) || dim < 4) printUsage("Dimension must be from 4 to " + OthelloBoard.MAX_DIM);
+	if (depth < OthelloProbCut.MIN_DEPTH) printUsage("Depth must be at least " + OthelloProbCut.MIN_DEPTH);
+
+	try {
+	    OthelloProbCutFitter fitter = new OthelloProbCutFitter(dim, dim, depth, OthelloAI.DEFAULT_ENDGAME_EMPTIES, threads);
+	    File log = new File(logFile);
+	    if (!log.exists()) {
+		long t = System.currentTimeMillis();
+		PrintWriter out = new PrintWriter(new FileWriter(log));
+		try {
+		    fitter.play(games, playDepth, randomPlies, out);
+		} finally {
+		    out.close();
+		}
+		System.out.println("Played " + games + " games in " + (System.currentTimeMillis() - t) + "ms");
+	    }
+	    List<OthelloBoard> positions = readLog(log, dim, dim);
+	    System.out.println("Fitting " + positions.size() + " positions from " + logFile);
+	    OthelloProbCut params = fitter.fit(positions, threshold);
+	    params.save(new File(file), "Fitted by OthelloProbCutFitter from " + positions.size() +
+			" positions of " + logFile + " (pattern evaluator, depths up to " + depth + ")");
+	    System.out.println("Saved the parameters to " + file);
+	} catch (Exception e) {
+	    System.err.println("Error fitting the parameters: " + e);
+	    System.exit(1);
+	}
+    }
+
+    /**
+     * Print Usage message and exit
+     **/
+    public static void printUsage(String message) {
+	System.err.println("Usage: java cad.ai.game.OthelloProbCutFitter [params]");
+	System.err.println("       Where params are:");
+	System.err.println("         --help          -- Print this usage message");
+	System.err.println("         --dim=X         -- Board size (default 8).");
+	System.err.println("         --games=X       -- Self-play games to log if there is no log yet (default 40).");
+	System.err.println("         --play=X        -- Search depth of the self-play games (default 4).");
+	System.err.println("         --random=X      -- Random moves at the start of each game (default 8).");
+	System.err.println("         --depth=X       -- Fit depths up to X (default 8).");
+	System.err.println("         --threads=X     -- Search this many positions at once (default = number of cores).");
+	System.err.println("         --threshold=X   -- Cut when this many sigmas sure (default " + OthelloProbCut.DEFAULT_THRESHOLD + ").");
+	System.err.println("         --log=name      -- Self-play log to read or make (default OthelloProbCut.log).");
+	System.err.println("         --file=name     -- Parameter file to write (default " + OthelloProbCut.DEFAULT_FILE + ").");
+	if (message != null)
+	    System.err.println("       " + message);
+	System.exit(1);
+    }
+}
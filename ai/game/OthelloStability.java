@@ -0,0 +1,200 @@
+/*******************
+ * Christian A. Duncan
+ * Edited: Diego Holguin
+ * CSC350: Intelligent Systems
+ * Spring 2017
+ *
+ * AI Game Client
+ * This project is designed to support multiple game platforms to test
+ * AI-based solutions.
+ * See README file for more details.
+ ********************/
+
+package cad.ai.game;
+
+/***********************************************************
+ * Stable discs and frontier discs of an Othello position (bitboard
+ * boards only).  A stable disc can never be flipped for the rest of
+ * the game, whatever either player does.
+ *
+ *   Edges: a disc on an edge can only ever be flipped along that edge,
+ *   so its stability only depends on the contents of the edge.  For
+ *   every edge length and every one of its 3^length contents (empty,
+ *   own, opp per square) the stable own discs are precomputed: the own
+ *   discs that stay own whatever is played on the edge, by either
+ *   player, in any order.
+ *
+ *   Inside the board: a disc is stable if, along each of the 4
+ *   directions, its line is full or it touches a stable disc of the
+ *   same colour.  Lines are checked with precomputed full-line masks
+ *   and the rule is applied until nothing more is found.
+ *
+ *   All the tables are built once when the class is loaded and are
+ *   only read after that, so any number of search threads can use them.
+ *   The result is a subset of the truly stable discs (it is what is
+ *   cheap to prove), which is what a bound needs.
+ ***********************************************************/
+public final class OthelloStability {
+    private static final long FILE_A = 0x0101010101010101L;
+    private static final long FILE_MAGIC = 0x0102040810204080L;  // (x & FILE_A) * FILE_MAGIC >>> 56 puts row r at bit r
+
+    private static final int[] BASE3 = new int[256];          // Own bits as base-3 digits (opp = 2 * BASE3)
+    private static final byte[][] EDGE = new byte[OthelloBoard.MAX_DIM + 1][];  // [length][index] = stable own bits
+    private static final long[] FILE_SPREAD = new long[256];  // Bit r of a byte to row r of column 0
+    private static final long[][][][] LINES = new long[OthelloBoard.MAX_DIM + 1][OthelloBoard.MAX_DIM + 1][4][];
+    static {
+	for (int b = 0; b < 256; b++)
+	    for (int i = 0; i < 8; i++)
+		if ((b & (1 << i)) != 0) {
+		    BASE3[b] += pow3(i);
+		    FILE_SPREAD[b] |= 1L << (8 * i);
+		}
+	for (int len = 1; len <= OthelloBoard.MAX_DIM; len++) EDGE[len] = buildEdge(len);
+	for (int rows = 1; rows <= OthelloBoard.MAX_DIM; rows++)
+	    for (int cols = 1; cols <= OthelloBoard.MAX_DIM; cols++) LINES[rows][cols] = buildLines(rows, cols);
+    }
+
+    private OthelloStability() { }
+
+    /**
+     * The stable discs of own (opp are the other player's discs) on a rows x cols board
+     **/
+    public static long stable(long own, long opp, int rows, int cols) {
+	long stable = edgeStable(own, opp, rows, cols);
+
+	// Full lines in each direction
+	long occupied = own | opp;
+	long[][] lines = LINES[rows][cols];
+	long full0 = full(occupied, lines[0]), full1 = full(occupied, lines[1]);
+	long full2 = full(occupied, lines[2]), full3 = full(occupied, lines[3]);
+
+	// Grow inwards: every line full, or a stable neighbour of ours along it
+	long inner = own & ~edges(rows, cols);
+	stable |= inner & full0 & full1 & full2 & full3;
+	if (inner == 0) return stable;
+	long old;
+	do {
+	    old = stable;
+	    long h = (stable >>> 1) | (stable << 1) | full0;
+	    long v = (stable >>> 8) | (stable << 8) | full1;
+	    long d = (stable >>> 9) | (stable << 9) | full2;
+	    long a = (stable >>> 7) | (stable << 7) | full3;
+	    stable |= h & v & d & a & inner;
+	} while (stable != old);
+	return stable;
+    }
+
+    /**
+     * The frontier discs of own: those next to an empty square
+     **/
+    public static long frontier(long own, long empty) {
+	return own & OthelloBoard.neighbours(empty);
+    }
+
+    /**
+     * The stable own discs on the 4 edges (from the edge tables)
+     **/
+    private static long edgeStable(long own, long opp, int rows, int cols) {
+	int lastR = 8 * (rows - 1), lastC = cols - 1;
+	byte[] edge = EDGE[cols];
+	long stable = edge[BASE3[(int) own & 0xff] + 2 * BASE3[(int) opp & 0xff]] & 0xffL;
+	stable |= (edge[BASE3[(int) (own >>> lastR) & 0xff] + 2 * BASE3[(int) (opp >>> lastR) & 0xff]] & 0xffL) << lastR;
+	edge = EDGE[rows];
+	stable |= FILE_SPREAD[edge[BASE3[file(own, 0)] + 2 * BASE3[file(opp, 0)]] & 0xff];
+	stable |= FILE_SPREAD[edge[BASE3[file(own, lastC)] + 2 * BASE3[file(opp, lastC)]] & 0xff] << lastC;
+	return stable;
+    }
+
+    /** Column c as a byte (row r at bit r) **/
+    private static int file(long x, int c) {
+	return (int) ((((x >>> c) & FILE_A) * FILE_MAGIC) >>> 56);
+    }
+
+    /** The squares of the lines (of one direction) that are completely occupied **/
+    private static long full(long occupied, long[] lines) {
+	long full = 0;
+	for (long line: lines)
+	    if ((occupied & line) == line) full |= line;
+	return full;
+    }
+
+    /** The edge squares of a board **/
+    private static long edges(int rows, int cols) {
+	long[][] lines = LINES[rows][cols];
+	return lines[0][0] | lines[0][rows - 1] | lines[1][0] | lines[1][cols - 1];
+    }
+
+    private static int pow3(int n) {
+	int p = 1;
+	while (n-- > 0) p *= 3;
+	return p;
+    }
+
+    /**
+     * The stable own discs for every content of an edge of length len.
+     * Worked out from the full edges back to the empty one: the stable
+     * discs of a content are its own discs that are stable in every
+     * content reached by either player filling one empty square (a
+     * move on an edge may be made legal by the rest of the board, so
+     * any empty square may be taken, flipping what it brackets).
+     **/
+    private static byte[] buildEdge(int len) {
+	int size = pow3(len);
+	byte[] table = new byte[size];
+	int all = (1 << len) - 1;
+	for (int discs = len; discs >= 0; discs--)
+	    for (int own = 0; own <= all; own++)
+		for (int opp = 0; opp <= all; opp++) {
+		    if ((own & opp) != 0 || Integer.bitCount(own | opp) != discs) continue;
+		    int stable = own;
+		    int empty = all & ~(own | opp);
+		    for (int x = 0; x < len && stable != 0; x++) {
+			if ((empty & (1 << x)) == 0) continue;
+			int f = edgeFlips(x, own, opp, len);
+			int p = own | f | (1 << x), o = opp & ~f;
+			stable &= table[BASE3[p] + 2 * BASE3[o]];
+			f = edgeFlips(x, opp, own, len);
+			p = own & ~f;
+			o = opp | f | (1 << x);
+			stable &= table[BASE3[p] + 2 * BASE3[o]];
+		    }
+		    table[BASE3[own] + 2 * BASE3[opp]] = (byte) stable;
+		}
+	return table;
+    }
+
+    /** The opp discs bracketed along an edge by a disc of own placed at x **/
+    private static int edgeFlips(int x, int own, int opp, int len) {
+	int flips = 0;
+	for (int dir = -1; dir <= 1; dir += 2) {
+	    int f = 0, y = x + dir;
+	    while (y >= 0 && y < len && (opp & (1 << y)) != 0) {
+		f |= 1 << y;
+		y += dir;
+	    }
+	    if (y >= 0 && y < len && (own & (1 << y)) != 0) flips |= f;
+	}
+	return flips;
+    }
+
+    /**
+     * The lines of a board in each direction:
+     * [0] rows, [1] columns, [2] diagonals (down-right), [3] anti-diagonals (down-left)
+     **/
+    private static long[][] buildLines(int rows, int cols) {
+	long[][] lines = new long[4][];
+	lines[0] = new long[rows];
+	lines[1] = new long[cols];
+	lines[2] = new long[rows + cols - 1];
+	lines[3] = new long[rows + cols - 1];
+	for (int r = 0; r < rows; r++)
+	    for (int c = 0; c < cols; c++) {
+		long b = OthelloBoard.bit(r, c);
+		lines[0][r] |= b;
+		lines[1][c] |= b;
+		lines[2][c - r + rows - 1] |= b;
+		lines[3][r + c] |= b;
+	    }
+	return lines;
+    }
+}
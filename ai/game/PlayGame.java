@@ -11,6 +11,7 @@
 package cad.ai.game;
 
 import java.net.*;
+import java.io.File;
 import java.io.PrintWriter;
 import java.io.IOException;
 import java.io.BufferedReader;
@@ -19,6 +20,7 @@ import java.util.ArrayDeque;
 import java.util.Deque;
 import cad.ai.game.*;
 import cad.ai.solutions.*;
+import cad.ai.search.SearchEngine;
 
 /***********************************************************
  * The PlayGame class is designed to allow two players to 
@@ -33,9 +35,17 @@ public class PlayGame {
     private Game game[]; 
     private Game serverGame = null;
     private AI ai[];
-    private static enum GameType { NIM, TTT, OTHELLO_MICRO, OTHELLO_MINI, OTHELLO };
+    private static enum GameType { NIM, NIM_MISERE, TTT, OTHELLO_MICRO, OTHELLO_MINI, OTHELLO };
     private GameType gameType;
     private int numGames;
+    private long moveTime;
+    private int threads;
+    private int endgameEmpties;
+    private SearchEngine.Algorithm algorithm;
+    private int searchDepth;
+    private OthelloEvaluator evaluator;
+    private OthelloBook book;
+    private OthelloProbCut probCut;
     private int verbose;
     
     /**
@@ -44,15 +54,33 @@ public class PlayGame {
      * @param awayAI 0 if away is human, 1-3 if away is AI (of diff types)
      * @param gameType - what type of game to play.
      * @param numGames - the number of games to play.
+     * @param moveTime - how long (in milliseconds) the Othello AI may think per move.
+     * @param threads - how many threads the Othello AI may search with.
+     * @param endgameEmpties - the Othello AI solves the game exactly at this many empty squares.
+     * @param algorithm - the search the Othello AI uses.
+     * @param searchDepth - deepest the Othello AI searches (0 = as deep as time allows).
+     * @param evaluator - how the Othello AI evaluates positions.
+     * @param book - the Othello AI's opening book.
+     * @param probCut - the Othello AI's Multi-ProbCut parameters (null = exact search).
      * @param verbose - how much to output [0 = quite, >0 = noisier]
      **/
     public PlayGame(int homeAI, int awayAI, GameType gameType,
-		    int numGames, int verbose) {
+		    int numGames, long moveTime, int threads, int endgameEmpties,
+		    SearchEngine.Algorithm algorithm, int searchDepth,
+		    OthelloEvaluator evaluator, OthelloBook book, OthelloProbCut probCut, int verbose) {
 	userIn = new BufferedReader(new InputStreamReader(System.in));  // To access user input stream
 	game = new Game[2];  // A copy of the game for each player.
 	ai = new AI[2];      // A spot for ai for each player.
 	this.gameType = gameType;
 	this.numGames = numGames;
+	this.moveTime = moveTime;
+	this.threads = threads;
+	this.endgameEmpties = endgameEmpties;
+	this.algorithm = algorithm;
+	this.searchDepth = searchDepth;
+	this.evaluator = evaluator;
+	this.book = book;
+	this.probCut = probCut;
 	this.verbose = verbose;
 	
 	// Create the game and AI based on type
@@ -75,14 +103,25 @@ public class PlayGame {
 	    }
 	    break;
 	case NIM:
+	case NIM_MISERE:
 	    if (homeAI > 0) ai[0] = new NimAI(); else ai[0] = null;
 	    if (awayAI > 0) ai[1] = new NimAI(); else ai[1] = null;
 	    break;
 	case OTHELLO_MICRO:
 	case OTHELLO_MINI:
 	case OTHELLO:
-	    if (homeAI > 0) ai[0] = new OthelloAI(); else ai[0] = null;
-	    if (awayAI > 0) ai[1] = new OthelloAI(); else ai[1] = null;
+	    for (int p = 0; p < 2; p++) {
+		if ((p == 0 ? homeAI : awayAI) > 0) {
+		    OthelloAI o = new OthelloAI(moveTime, threads);
+		    o.setEndgameEmpties(endgameEmpties);
+		    o.setAlgorithm(algorithm);
+		    o.setSearchDepth(searchDepth);
+		    o.setEvaluator(evaluator);
+		    o.setBook(book);
+		    o.setProbCut(probCut);
+		    ai[p] = o;
+		} else ai[p] = null;
+	    }
 	    break;
 	}
     }
@@ -116,9 +155,11 @@ public class PlayGame {
 	    serverGame = new TicTacToeGame(-1, userIn, null, true, verbose);
 	    break;
 	case NIM:
+	case NIM_MISERE:
+	    // The players' copies learn from the state whether it is misere
 	    for (int p = 0; p < 2; p++)
 		game[p] = new NimGame(p, userIn, ai[p], false);
-	    serverGame = new NimGame(-1, userIn, null, true);
+	    serverGame = new NimGame(-1, userIn, null, true, NimRule.ANY, gameType == GameType.NIM_MISERE);
 	    break;
 	case OTHELLO_MICRO: dim -= 2;  // Make sure dim becomes 4
 	case OTHELLO_MINI:  dim -= 2;  // Make sure dim becomes 6
@@ -272,6 +313,14 @@ public class PlayGame {
 	int awayAI = 1;  // ... same ...
 	GameType gameType = GameType.OTHELLO_MINI;  // Default is OTHELLO_MINI
 	int repeat = 1;  // Number of games to play
+	long moveTime = OthelloAI.DEFAULT_MOVE_TIME;  // Thinking time per move (Othello AI)
+	int threads = OthelloAI.DEFAULT_THREADS;      // Search threads (Othello AI)
+	int endgameEmpties = OthelloAI.DEFAULT_ENDGAME_EMPTIES;  // When to solve exactly (Othello AI)
+	SearchEngine.Algorithm algorithm = SearchEngine.Algorithm.PVS;  // Othello AI search
+	int searchDepth = 0;  // Depth limit (Othello AI)
+	OthelloEvaluator evaluator = new OthelloPatternEvaluator();  // Othello AI heuristic
+	String bookFile = OthelloBook.DEFAULT_FILE;  // Opening book (Othello AI)
+	String probCutFile = OthelloProbCut.DEFAULT_FILE;  // Selective search (Othello AI)
 	int verbose = 1; // How "noisy" to be
 	
 	// Parse the arguments
@@ -309,6 +358,7 @@ public class PlayGame {
 		case "--game":
 		    switch (params[1].toUpperCase()) {
 		    case "NIM": gameType = GameType.NIM; break;  // Silly sanity check...
+		    case "NIM_MISERE": gameType = GameType.NIM_MISERE; break;
 		    case "TTT": gameType = GameType.TTT; break;
 		    case "OTHELLO_MICRO":
 		    case "MICRO": gameType = GameType.OTHELLO_MICRO; break;
@@ -320,6 +370,33 @@ public class PlayGame {
 		    break;
 		case "--repeat":
 		    repeat = Integer.parseInt(params[1]); break;
+		case "--time":
+		    moveTime = Long.parseLong(params[1]); break;
+		case "--threads":
+		    threads = Integer.parseInt(params[1]); break;
+		case "--endgame":
+		    endgameEmpties = Integer.parseInt(params[1]); break;
+		case "--search":
+		    switch (params[1].toUpperCase()) {
+		    case "PVS": algorithm = SearchEngine.Algorithm.PVS; break;
+		    case "ALPHABETA":
+		    case "ALPHA_BETA": algorithm = SearchEngine.Algorithm.ALPHA_BETA; break;
+		    default: printUsage("Unrecognized search option: " + params[1]);
+		    }
+		    break;
+		case "--depth":
+		    searchDepth = Integer.parseInt(params[1]); break;
+		case "--eval":
+		    switch (params[1].toUpperCase()) {
+		    case "PATTERNS": evaluator = new OthelloPatternEvaluator(); break;
+		    case "DISCS": evaluator = new OthelloDiscEvaluator(); break;
+		    default: printUsage("Unrecognized eval option: " + params[1]);
+		    }
+		    break;
+		case "--book":
+		    bookFile = params[1]; break;
+		case "--probcut":
+		    probCutFile = params[1]; break;
 		case "--verbose":
 		    verbose = Integer.parseInt(params[1]); break;
 		default:
@@ -330,7 +407,31 @@ public class PlayGame {
 	    }
 	}	    
 
-	PlayGame c = new PlayGame(homeAI, awayAI, gameType, repeat, verbose);
+	OthelloBook book = new OthelloBook();
+	if (bookFile.equals(OthelloBook.DEFAULT_FILE)) {
+	    book = OthelloBook.getDefault();
+	} else if (!bookFile.equalsIgnoreCase("none")) {
+	    try {
+		book.load(new File(bookFile));
+	    } catch (IOException e) {
+		printUsage("Error reading opening book " + bookFile + ": " + e.getMessage());
+	    }
+	}
+
+	OthelloProbCut probCut = null;
+	if (probCutFile.equals(OthelloProbCut.DEFAULT_FILE)) {
+	    probCut = OthelloProbCut.getDefault();
+	} else if (!probCutFile.equalsIgnoreCase("off")) {
+	    try {
+		probCut = new OthelloProbCut();
+		probCut.load(new File(probCutFile));
+	    } catch (IOException e) {
+		printUsage("Error reading ProbCut parameters " + probCutFile + ": " + e.getMessage());
+	    }
+	}
+
+	PlayGame c = new PlayGame(homeAI, awayAI, gameType, repeat, moveTime, threads, endgameEmpties,
+				  algorithm, searchDepth, evaluator, book, probCut, verbose);
 	c.run();
     }
 
@@ -344,8 +445,18 @@ public class PlayGame {
 	System.err.println("         --home=ai/human/0-4   -- Home is ai or human (default is ai).");
 	System.err.println("                                  #s can also be used to identify various AIs to use");
 	System.err.println("         --away=ai/human/0-4   -- Away is ai or human (default is ai).");
-	System.err.println("         --game=XXX            -- Can be either NIM, TTT, OTHELLO_MICRO, OTHELLO_MINI, OTHELLO (default OTHELLO_MINI).");
+	System.err.println("         --game=XXX            -- Can be either NIM, NIM_MISERE, TTT, OTHELLO_MICRO, OTHELLO_MINI, OTHELLO (default OTHELLO_MINI).");
 	System.err.println("         --repeat=X            -- Number of games to play (default 1).");
+	System.err.println("         --time=X              -- Milliseconds the Othello AI may think per move (default " + OthelloAI.DEFAULT_MOVE_TIME + ").");
+	System.err.println("         --threads=X           -- Threads the Othello AI searches with (default = number of cores).");
+	System.err.println("         --endgame=X           -- Othello AI solves exactly with X or fewer empty squares (default " + OthelloAI.DEFAULT_ENDGAME_EMPTIES + ", 0=off).");
+	System.err.println("         --search=pvs/alphabeta -- Othello AI search algorithm (default pvs).");
+	System.err.println("         --depth=X             -- Othello AI searches at most X plies (default 0 = as time allows).");
+	System.err.println("         --eval=patterns/discs -- Othello AI evaluation (default patterns).");
+	System.err.println("         --book=file/none      -- Othello AI opening book (default " + OthelloBook.DEFAULT_FILE + ").");
+	System.err.println("                                  The repository's book is a small 8x8 seed book;");
+	System.err.println("                                  build a deeper one with cad.ai.game.OthelloBookMaker.");
+	System.err.println("         --probcut=file/off    -- Othello AI Multi-ProbCut parameters, off = exact search (default " + OthelloProbCut.DEFAULT_FILE + ").");
 	System.err.println("         --verbose=X           -- 0=quiet, >0=Output more stuff.");
 	if (message != null) 
 	    System.err.println("       " + message);
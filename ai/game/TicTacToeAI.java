@@ -26,38 +26,23 @@ import java.io.*;
  *   AI system.
  ***********************************************************/
 public class TicTacToeAI extends AbstractAI {
+    static final double HEAT = 1.0;        // Random "heat" added to each move's utility at first (utilities are -1 to 1.5)
+    static final int HEAT_HALF_LIFE = 50;  // ... halved every this many games per move played from a position
+
     public TicTacToeGame game;  // The game that this AI system is playing
     Random ran; // Random Seed
 
     boolean isAIHome, useMemory, saveMem; // AI Identifers 
     String saveAIByType; // The File ID to save/write with 
-    LinkedList<String> GameStates = new LinkedList<String>(); // List of Game States for Tic Tac Toe 
-
-    // Maps GameStates to the GameOutcomes
-    // Think : For every move that the AI takes, it would be helpful to know if this is a good, bad, or neutral move.. this data is within the GameOutcomes Object
-    Hashtable<String, GameOutcomes> AI_Memory = new Hashtable<String, GameOutcomes>(); 
+    int[] currentGame = new int[9]; // The (canonical) states the AI's moves led to in the current game
+    int currentMoves = 0;
+    TicTacToeJournal journal;       // Games learned since the memory file was last written (null if not saving)
+    char[] state = new char[9];     // Working copy of the board ('_' for an empty space)
+    int[] after = new int[9];       // getBestMove: the canonical board each open slot leads to
 
-    // GameOutcomes Object 
-    public class GameOutcomes
-    {
-        // Instance variable that contains the data needed to determine the ratio of this "Move" being a winning, losing, or tieing move  
-    	public int numberOfWins, numberOfLosses, numberOfTies, numberOfGames;
-
-        public GameOutcomes()
-        {
-            this.numberOfWins = 0;
-            this.numberOfLosses = 0;
-            this.numberOfTies = 0;
-            this.numberOfGames = 0;
-        }
-
-        public void AIHasWon() { this.numberOfWins ++; this.numberOfGames ++; }
-        public void AIHasLost() { this.numberOfLosses ++; this.numberOfGames ++; }
-        public void AIHasTied() { this.numberOfTies ++; this.numberOfGames ++; }
-        public int GetTotalGames() { return this.numberOfGames; }
-        public void SetOutcome(int numWins, int numLoses, int numTies) { this.numberOfWins = numWins; this.numberOfLosses = numLoses; this.numberOfTies = numTies; this.numberOfGames = (numWins + numLoses + numTies);}
-        public double GetUtailityScore() { return (((double)this.numberOfWins - (double)this.numberOfLosses) / ((double)this.numberOfGames)); }
-    }
+    // Maps GameStates (canonical board codes) to their wins, losses and ties
+    // Think : For every move that the AI takes, it would be helpful to know if this is a good, bad, or neutral move.. this data is within the memory
+    TicTacToeMemory AI_Memory = new TicTacToeMemory(); 
 
     
     public TicTacToeAI() {
@@ -89,6 +74,21 @@ public class TicTacToeAI extends AbstractAI {
         // Indicate whether we're using memory for the AI 
         useMemory = _useMem; 
         if(_useMem) readMemoryFromFile(); 
+
+        // Keep a journal of every game learned from, so a crash doesn't lose them
+        if(saveMem)
+        {
+            journal = new TicTacToeJournal(memoryFile("jnl"));
+            try
+            {
+                journal.open(TicTacToeMemoryFile.checksum(memoryFile("bin")));
+            }
+            catch (IOException exception)
+            {
+                System.err.println("[AI-ERROR] : When Opening Journal: " + exception.getMessage());
+                journal = null;
+            }
+        }
     }
 
     public synchronized void attachGame(Game g) {
@@ -112,37 +112,27 @@ public class TicTacToeAI extends AbstractAI {
         // Obtain the state of the board  
 	    char[] board = (char[]) game.getStateAsObject();
 
-        // Initalize a StringBuffer to contain the state of the board, with a visual identifier for spaces!
-        StringBuffer savedState = new StringBuffer();
+        return "" + chooseMove(board, game.getPlayer());
+    }	
 
-        // Append each character of the board state into a StringBuffer
+    /**
+     * The slot (0-8) the AI moves to on a board ('X', 'O' or ' ' in each slot)
+     * when playing as the given player (0 = X, 1 = O).  The board after the
+     * move is remembered as one of the current game's states - the state
+     * getBestMove scores the move by.
+     *   Used directly (no game, no strings) by TicTacToeTrainer.
+     **/
+    public int chooseMove(char[] board, int player)
+    {
+        // Copy the state of the board, with a visual identifier for spaces!
         // The '_" character represents an empty space
-        for(int i = 0; i < board.length; i++)
-        {
-            if(board[i] != ' ')
-            {
-                savedState.append(board[i]);
-            }
-            else if (board[i] == ' ')
-            {
-                savedState.append('_');
-            }
-        }
-
-        // Add this GameState to the LinkedList if it isn't a repeated move 
-        if(!GameStates.contains(savedState.toString())) GameStates.add(savedState.toString());
+        for(int i = 0; i < board.length; i++) state[i] = (board[i] == ' ') ? '_' : board[i];
 
         int pos; 
         if(useMemory)
         {
-            
-            // Get the best move and identify the index where the AI will select to append a character at 
-            char[] bestBoardMove = getBestMove(savedState.toString()).toCharArray(); 
-            char[] savedCharArray = savedState.toString().toCharArray();
-            boolean keepLooking = true; for(pos = 0; pos < savedCharArray.length && keepLooking; pos++)
-            {
-                if(bestBoardMove[pos] != savedCharArray[pos]) { keepLooking = false; pos--;}
-            }
+            // Get the best move (the slot where the AI will place its mark)
+            pos = getBestMove(player); 
         }
         else
         {
@@ -166,8 +156,13 @@ public class TicTacToeAI extends AbstractAI {
             pos = i - 1;
          }
 
-    return "" + pos;
-    }	
+        // Symmetric boards share one entry: remember the board the move leads to in its canonical form
+        state[pos] = (player == 0) ? 'X' : 'O';
+        if(currentMoves < currentGame.length) currentGame[currentMoves++] = TicTacToeSymmetry.canonicalCode(state);
+        state[pos] = '_';
+
+        return pos;
+    }
 
     /**
      * Inform AI who the winner is
@@ -182,73 +177,69 @@ public class TicTacToeAI extends AbstractAI {
          **/
         int ai_HomeAway = game.getPlayer();
 
+        // The outcome for the AI
+        int outcome;
+        if(result == 'T') outcome = TicTacToeJournal.TIE;
+        else if((result == 'H' && ai_HomeAway == 0) || (result == 'A' && ai_HomeAway == 1)) outcome = TicTacToeJournal.WIN;
+        else if((result == 'H' && ai_HomeAway == 1) || (result == 'A' && ai_HomeAway == 0)) outcome = TicTacToeJournal.LOSS;
+        else outcome = -1;  // Unrecognized result - nothing to learn
+
         // Work our way from the very first move to the very last move that the AI has taken throughout the current instance of the game
-        for(int i = 0; i < GameStates.size(); i++)
+        if(outcome >= 0)
         {
-            // Get each corressponding move 
-            String _gamestate = GameStates.get(i);
+            learn(outcome, currentGame, currentMoves);
 
-            // Check if this move is a "new" move for the AI, and if so , add it to the AI's memory 
-            if(!AI_Memory.containsKey(_gamestate))
-            {
-                // Initialzie the new GameOutcomes Object for the "new" move 
-                GameOutcomes newOutcome = new GameOutcomes();
-                //System.out.println("Creating New GameOutcomes For The GameState : " + _gamestate);
-                // If the away player has won ... 
-                if(result == 'A')
-                {
-                    // and the AI is away, then the AI has won!
-                    if(ai_HomeAway == 1) newOutcome.AIHasWon(); // If the AI won, increment the number of wins for the GameOutcomes Object of the "new" move 
-
-                    // and the AI is home, then the AI has lost!
-                    if(ai_HomeAway == 0) newOutcome.AIHasLost();  // if the AI lost, increment the number of losses for the GameOutcomes Object of the "new" move
-                }
-                // If the home player has won ...
-                else if (result == 'H')
-                {
-                    // and the AI is home, then the AI has won!
-                    if(ai_HomeAway == 0) newOutcome.AIHasWon(); // If the AI won, increment the number of wins for the GameOutcomes Object of the "new" move 
-
-                    // and the AI is away, then the AI has lost!
-                    if(ai_HomeAway == 1) newOutcome.AIHasLost();  // if the AI lost, increment the number of losses for the GameOutcomes Object of the "new" move
-                }
-                // If the AI tied, increment the number of ties for the GameOutcomes Object of the "new" move
-                else if (result == 'T') newOutcome.AIHasTied(); // If the AI tied, increment the number of ties for the GameOutcomes Object of the "new" move 
-
-                // Now add this "new" move to the AI's memory 
-                AI_Memory.put(_gamestate, newOutcome);
-             }
-            // If this wasn't a "new" move for the AI, just update the "move" GameOutcomes Objects' value to reflect whether the AI has won, lost, or tied 
-            else if (AI_Memory.containsKey(_gamestate))
-            {
-                // Get the GameOutcomes Object associated with the move 
-                GameOutcomes runtime_outcome = AI_Memory.get(_gamestate);
+            // Log the game in the journal, and write it out now the game is over
+            logGame(outcome, currentGame, 0, currentMoves);
+            flushJournal();
+        }
+        currentMoves = 0;
 
-                // If the away player has won ... 
-                if(result == 'A')
-                {
-                    // and the AI is away, then the AI has won!
-                    if(ai_HomeAway == 1) runtime_outcome.AIHasWon(); // If the AI won, increment the number of wins for the GameOutcomes Object of the "new" move 
+        // No longer playing a game though.
+    	game = null;  
+    }
 
-                    // and the AI is home, then the AI has lost!
-                    if(ai_HomeAway == 0) runtime_outcome.AIHasLost();  // if the AI lost, increment the number of losses for the GameOutcomes Object of the "new" move
-                }
-                // If the home player has won ...
-                else if (result == 'H')
-                {
-                    // and the AI is home, then the AI has won!
-                    if(ai_HomeAway == 0) runtime_outcome.AIHasWon(); // If the AI won, increment the number of wins for the GameOutcomes Object of the "new" move 
+    /**
+     * Tally the outcome (a TicTacToeJournal outcome) of a game for each of its states
+     **/
+    void learn(int outcome, int[] states, int count)
+    {
+        for(int i = 0; i < count; i++) AI_Memory.add(states[i], outcome);
+    }
 
-                    // and the AI is away, then the AI has lost!
-                    if(ai_HomeAway == 1) runtime_outcome.AIHasLost();  // if the AI lost, increment the number of losses for the GameOutcomes Object of the "new" move
-                }
-                // If the AI tied, increment the number of ties for the GameOutcomes Object of the "new" move
-                else if (result == 'T') runtime_outcome.AIHasTied(); // If the AI tied, increment the number of ties for the GameOutcomes Object of the "new" move 
-            }
+    /**
+     * Log a game already learned from in the journal (if keeping one).
+     * Its states are states[from .. from+count-1].
+     **/
+    synchronized void logGame(int outcome, int[] states, int from, int count)
+    {
+        if(journal == null) return;
+        try
+        {
+            journal.append(outcome, states, from, count);
+        }
+        catch (IOException exception)
+        {
+            System.err.println("[AI-ERROR] : When Writing Journal: " + exception.getMessage());
         }
+    }
 
-        // No longer playing a game though.
-    	game = null;  
+    /**
+     * Write the games logged so far to the journal file (and fold the
+     * journal into the memory file once it gets big)
+     **/
+    synchronized void flushJournal()
+    {
+        if(journal == null) return;
+        try
+        {
+            journal.flush();
+            if(journal.needsCompaction()) journal.reset(saveMemory());
+        }
+        catch (IOException exception)
+        {
+            System.err.println("[AI-ERROR] : When Writing Journal: " + exception.getMessage());
+        }
     }
 
     /**
@@ -260,58 +251,53 @@ public class TicTacToeAI extends AbstractAI {
         // Save contents only when AI is specified to do so 
         if(saveMem)
         {
-            // Initialize the string that will store the board state 
-            StringBuffer BoardState_And_Outcome = new StringBuffer();
-
-            // For every Gamestate tallied thus far, add the board state, and the win,loss, and tie outcomes associated with that GameState 
-            for(int i = 0; i < GameStates.size(); i ++)
+            try
             {
-                // Add the board state first
-                BoardState_And_Outcome.append(GameStates.get(i));
-
-                // Add a seperator 
-                BoardState_And_Outcome.append(" ");
-
-                // Retrieve the GameOutcomes object ossiated to the board state we're evaluting at the moment 
-                GameOutcomes curOutcome = AI_Memory.get(GameStates.get(i));
-
-                // Add the board state's number of Wins, losses, and ties 
-                BoardState_And_Outcome.append("W: " + curOutcome.numberOfWins + ", L: " + curOutcome.numberOfLosses + ", T: " + curOutcome.numberOfTies + "\n");
+                // Write the memory file, then start an empty journal after it
+                long snapshot = saveMemory();
+                if(journal != null)
+                {
+                    journal.reset(snapshot);
+                    journal.close();
+                }
+            }
+            catch (IOException exception)
+            {
+                System.err.println("[AI-ERROR] : When Writing File: " + exception.getMessage());
             }
-
-            // Write the experiences learnt by the AI to it's respective file 
-            writeMemoryToFile(BoardState_And_Outcome.toString());
         }
 
     }
 
-    public void writeMemoryToFile(String fileContents)
+    /**
+     * Write everything learned to the memory file
+     * @return The checksum of the file written
+     **/
+    public long saveMemory() throws IOException
     {
-        // Obtain absolute path to the cad directory 
-        String currentDirectory = Paths.get("cad/").toAbsolutePath().normalize().toString();
-
-        File file = new File(currentDirectory + "/AIMemory" + saveAIByType + ".txt");
-        try
-        {
-            // Create the file if it doesn't already exist 
-            if(!file.exists()) file.createNewFile();
+        // One record (state, wins, losses, ties) for every GameState tallied thus far
+        int[] records = AI_Memory.toRecords();
+        int count = AI_Memory.size();
 
-            // true = append file
-            Writer writer = new BufferedWriter(new FileWriter(currentDirectory + "/AIMemory" + saveAIByType + ".txt", false));
-            writer.write(fileContents);
-            writer.close(); 
-        }
-        catch (IOException exception)
-        {
-            System.err.println("[AI-ERROR] : When Writing File");
-        }
+        // Write the experiences learnt by the AI to it's respective file 
+        return TicTacToeMemoryFile.write(memoryFile("bin"), records, count);
     }
 
+    /**
+     * The AI's memory file: AIMemory<type>.bin in the cad directory
+     * (with extension "jnl" - its journal)
+     **/
+    public File memoryFile(String extension)
+    {
+        // Obtain absolute path to the cad directory 
+        String currentDirectory = Paths.get("cad/").toAbsolutePath().normalize().toString();
+        return new File(currentDirectory + "/AIMemory" + saveAIByType + "." + extension);
+    }
 
     public void readMemoryFromFile()
     {
-        String currentDirectory = Paths.get("cad/").toAbsolutePath().normalize().toString();
-        File file = new File(currentDirectory + "/AIMemory" + saveAIByType + ".txt");
+        // The binary memory (older text memories are keyed differently, see TicTacToeMemoryFile)
+        File file = memoryFile("bin");
 
         // Check that the file even exists.. Error Handling 
         if(!file.exists()) { /*System.out.println("No AI Memory File Active");*/ }
@@ -319,103 +305,82 @@ public class TicTacToeAI extends AbstractAI {
         {
             try
             {
-                BufferedReader reader = new BufferedReader(new FileReader(currentDirectory + "/AIMemory" + saveAIByType + ".txt"));
-                String lineRead = ""; while( (lineRead = reader.readLine()) != null)
-                {
-
-                    // Obtain the Index of the wins, losses, and ties for each line 
-                    int winIndex = lineRead.indexOf('W');
-                    int lossIndex = lineRead.indexOf('L');
-                    int tiesIndex = lineRead.indexOf('T');
-
-                    // Parse the game state for each line into it's respective value 
-                    String gameState = lineRead.substring(0,winIndex-1);
-
-                    // Parse the win, losses, and tie for each line into their respective integer values 
-                    int winTally = Integer.parseInt(lineRead.substring(winIndex + 3, winIndex + 4));
-                    int lossTally = Integer.parseInt(lineRead.substring(lossIndex + 3, lossIndex + 4));
-                    int tieTally = Integer.parseInt(lineRead.substring(tiesIndex + 3, tiesIndex + 4));
-
-                    // Instantiate and save the loaded number of wins, losses, and ties for the board state to the programs respective container 
-                    GameOutcomes outcomeToSave = new GameOutcomes();
-                    outcomeToSave.SetOutcome(winTally, lossTally, tieTally);
-
-                    // Save the contents of the gameState to the programs respective container 
-                    GameStates.add(gameState);
-                    AI_Memory.put(gameState, outcomeToSave);
-                }
+                int[] records = TicTacToeMemoryFile.read(file);
+                // Save the loaded number of wins, losses, and ties for each (canonical) board state
+                for(int r = 0; r < records.length; r += TicTacToeMemoryFile.RECORD)
+                    AI_Memory.add(records[r + TicTacToeMemoryFile.STATE], records[r + TicTacToeMemoryFile.WINS],
+                                  records[r + TicTacToeMemoryFile.LOSSES], records[r + TicTacToeMemoryFile.TIES]);
             }
             catch (IOException exception)
             {
-                System.err.println("[AI-ERROR] : When Reading File");
+                System.err.println("[AI-ERROR] : When Reading File: " + exception.getMessage());
             }
         }
-    }
 
-    public LinkedList<String> returnPossibleMoves(String currentBState, int isHome)
-    {
-        // Instiantiate a container that holds all of the possible moves that can be made within the current state 
-        LinkedList<String> possibleMoves = new LinkedList<String>();
-        StringBuffer moveString = new StringBuffer(); 
-        char[] stringToCharArray = currentBState.toCharArray();
-
-        // For Every possible move out there .. 
-        for(int i = 0; i < stringToCharArray.length; i++)
+        // Then the games learned since the file was written
+        try
         {
-            char[] manipulatedString = currentBState.toCharArray();  
-            if(stringToCharArray[i] == '_')
-            {
-                // Manipulate based upon whether the AI is home or away 
-                if(isHome == 0) manipulatedString[i] = 'X';
-                else if (isHome == 1) manipulatedString[i] = '0';
-
-                // Add the possible moves to the linkedlist 
-                possibleMoves.add(new String(manipulatedString));
-            }
+            TicTacToeJournal.replay(memoryFile("jnl"), TicTacToeMemoryFile.checksum(memoryFile("bin")),
+                                    (outcome, states, count) -> learn(outcome, states, count));
+        }
+        catch (IOException exception)
+        {
+            System.err.println("[AI-ERROR] : When Reading Journal: " + exception.getMessage());
         }
-
-        // Return all of the possible moves 
-        return possibleMoves;
     }
 
-    public String getBestMove(String currentBState)
+    /**
+     * The slot the AI thinks is best: the one leading to the state with the
+     * highest utility, plus some random "heat" (a lot for positions it
+     * hasn't seen often, to explore; less and less as it learns).
+     * The board is in state, and each move is scored by the canonical board
+     * it leads to - the same entry learn() tallies the game's outcome in.
+     * player - the AI's player number (0 = X, 1 = O)
+     **/
+    public int getBestMove(int player)
     {
-        // Return all valid moves that the AI is able to take 
-        LinkedList<String> movesForAI = returnPossibleMoves(currentBState, game.getPlayer());  
-
-
-        // Check if the current game state is a "new" board state or a one we can use our reinforcement learning to solve!
-        if(AI_Memory.get(currentBState) == null) { /* System.out.println("AI Has Never Seen This Game Before"); */ } 
-        else nG = AI_Memory.get(currentBState).GetTotalGames(); 
-
-        double heat = 10.0 * Math.pow(0.9, (nG/(movesForAI.size() + 1 * 1000.0)));
-
-        // Variable holding the board with the highest score value 
-        // check for null 
-        String highestBoardScore = movesForAI.get(0); 
-        double highScore = getUtaility(highestBoardScore)+ ran.nextDouble() * heat; 
+        // The canonical board each move leads to, and how often this position has been played from
+        char mark = (player == 0) ? 'X' : 'O';
+        int nG = 0;
+        int openSlots = 0;
+        for(int i = 0; i < state.length; i++)
+        {
+            if(state[i] != '_') continue;
+            openSlots++;
+            state[i] = mark;
+            after[i] = TicTacToeSymmetry.canonicalCode(state);
+            state[i] = '_';
+            int slot = AI_Memory.find(after[i]);
+            if(slot != TicTacToeMemory.NOT_FOUND) nG += AI_Memory.games(slot);
+        }
+        double heat = HEAT * Math.pow(0.5, nG / (double) (openSlots * HEAT_HALF_LIFE));
 
-        // Iterate through all of the possible moves ... 
-        for(int i = 0; i < movesForAI.size(); i++)
+        // Keep the move with the highest score
+        int bestMove = -1;
+        double highScore = Double.NEGATIVE_INFINITY;
+        for(int i = 0; i < state.length; i++)
         {
-            // Obtain the score for each possible move
-            double utailityScoreOfMove = getUtaility(movesForAI.get(i)) + ran.nextDouble() * heat;
+            if(state[i] != '_') continue;
+            double utailityScoreOfMove = getUtaility(after[i]) + ran.nextDouble() * heat;
 
             // Store it only if it is the highest score value for the board 
-            if(highScore < utailityScoreOfMove) { highestBoardScore = movesForAI.get(i); highScore = utailityScoreOfMove; }
+            if(highScore < utailityScoreOfMove) { bestMove = i; highScore = utailityScoreOfMove; }
         }
 
-        // Return the board with the highest score 
-        return highestBoardScore; 
+        // Return the slot with the highest score 
+        return bestMove; 
     }
 
-    public double getUtaility(String board)
+    /**
+     * The utility of a (canonical) state: (wins - losses) / games
+     **/
+    public double getUtaility(int board)
     {
-        GameOutcomes g = AI_Memory.get(board); 
+        int slot = AI_Memory.find(board); 
 
         // For new boards, we'll have an "open" mind when it comes to exploration!  
-        // Note : GetUtailityScore by defualt, returns a value between 0 - 1
-        if(g == null ) return 1.5; 
-        else  return AI_Memory.get(board).GetUtailityScore();
+        // Note : the utility is otherwise between -1 and 1
+        if(slot == TicTacToeMemory.NOT_FOUND || AI_Memory.games(slot) == 0) return 1.5; 
+        else return ((double) AI_Memory.wins(slot) - (double) AI_Memory.losses(slot)) / (double) AI_Memory.games(slot);
     }
 }
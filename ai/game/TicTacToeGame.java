@@ -116,7 +116,7 @@ public class TicTacToeGame implements Game {
     public String getState(boolean force) {
 	if (!force && !changed) return null;
 	changed = false;
-	String result = turn + "";
+	String result = (done ? -1 : turn) + "";  // Nobody's turn once the game is over
 	for (int i = 0; i < board.length; i++)
 	    result += "," + board[i];
 	return result;
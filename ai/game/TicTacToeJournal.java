@@ -0,0 +1,212 @@
+/*******************
+ * Christian A. Duncan
+ * Edited: Diego Holguin
+ * CSC350: Intelligent Systems
+ * Spring 2017
+ *
+ * AI Game Client
+ * This project is designed to support multiple game platforms to test
+ * AI-based solutions.
+ * See README file for more details.
+ ********************/
+
+package cad.ai.game;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/***********************************************************
+ * An append-only journal of the games a TicTacToeAI has learned from
+ * since its memory file (the snapshot) was last written.
+ *   Each finished game is one record: its outcome and the (canonical)
+ *   states the AI's moves led to.  Records are collected in a buffer until
+ *   flush writes them to the file: the AI flushes after every game and
+ *   TicTacToeTrainer after every round, so a crash of the program loses
+ *   at most the game or round in progress (or BATCH_BYTES of records if
+ *   nobody flushes sooner).  The file is forced to the disk only when it
+ *   is closed, so a crash of the whole machine may lose more.
+ *   When the journal grows past COMPACT_BYTES the AI writes a new
+ *   snapshot and starts an empty journal (see TicTacToeAI).
+ *
+ *   File format (big-endian):
+ *     int MAGIC
+ *     long checksum of the snapshot the journal follows
+ *     per game: int (outcome << 16 | number of states), int state...
+ *   On startup the journal is replayed on top of the snapshot - but
+ *   only if the checksum matches.  A snapshot written after the journal
+ *   (e.g. a crash between compacting and starting the new journal)
+ *   already holds its games, so it is ignored.  A record cut short by
+ *   a crash is dropped (and cut off before anything more is appended).
+ ***********************************************************/
+public class TicTacToeJournal {
+    public static final int WIN = 0, LOSS = 1, TIE = 2;   // Outcomes (for the AI)
+    public static final int BATCH_BYTES = 1 << 16;        // Bytes collected before each append
+    public static final long COMPACT_BYTES = 1L << 22;    // Journal size that calls for a new snapshot
+    private static final int MAGIC = 0x54544a32;  // "TTJ2"
+    private static final int HEADER = 12;
+
+    /** Told about each game in a journal being replayed **/
+    public static interface Replay {
+	public void game(int outcome, int[] states, int count);
+    }
+
+    private final File file;
+    private FileChannel channel;
+    private final ByteBuffer batch = ByteBuffer.allocateDirect(BATCH_BYTES);
+    private long size;    // Bytes in the file (not counting the batch)
+
+    public TicTacToeJournal(File file) { this.file = file; }
+
+    /**
+     * Replay the games of a journal file that follows the snapshot with
+     * this checksum.
+     * @return The number of games replayed
+     **/
+    public static int replay(File file, long snapshot, final Replay replay) throws IOException {
+	if (!file.exists()) return 0;
+	RandomAccessFile raf = new RandomAccessFile(file, "r");
+	try {
+	    if (!follows(raf, snapshot)) return 0;
+	    final int[] games = { 0 };
+	    scan(raf.getChannel(), new Replay() {
+		    public void game(int outcome, int[] states, int count) {
+			replay.game(outcome, states, count);
+			games[0]++;
+		    }
+		});
+	    return games[0];
+	} finally {
+	    raf.close();
+	}
+    }
+
+    /**
+     * Open the journal for appending.  If it does not follow the snapshot
+     * with this checksum it is started again (empty).  A record cut short
+     * by a crash is cut off, so new records do not follow it (replay would
+     * then read them as part of it).
+     **/
+    public void open(long snapshot) throws IOException {
+	close();
+	boolean follows = false;
+	long end = HEADER;
+	if (file.exists()) {
+	    RandomAccessFile raf = new RandomAccessFile(file, "r");
+	    try {
+		follows = follows(raf, snapshot);
+		if (follows) end = scan(raf.getChannel(), null);
+	    } finally {
+		raf.close();
+	    }
+	}
+	if (!follows) start(snapshot);
+	channel = new RandomAccessFile(file, "rw").getChannel();
+	if (channel.size() > end) channel.truncate(end);
+	size = channel.size();
+	channel.position(size);
+    }
+
+    /** Does the file start with the header for the snapshot with this checksum? **/
+    private static boolean follows(RandomAccessFile raf, long snapshot) throws IOException {
+	raf.seek(0);
+	return raf.length() >= HEADER && raf.readInt() == MAGIC && raf.readLong() == snapshot;
+    }
+
+    /**
+     * Walk the records after the header, telling replay (if not null)
+     * about each complete one.
+     * @return The position just after the last complete record
+     **/
+    private static long scan(FileChannel channel, Replay replay) throws IOException {
+	MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+	map.position(HEADER);
+	int[] states = new int[9];
+	long end = HEADER;
+	while (map.remaining() >= 4) {
+	    int header = map.getInt();
+	    int outcome = header >>> 16, count = header & 0xffff;
+	    if (outcome > TIE || count > states.length || map.remaining() < 4 * count) break;  // Cut short
+	    for (int i = 0; i < count; i++) states[i] = map.getInt();
+	    if (replay != null) replay.game(outcome, states, count);
+	    end = map.position();
+	}
+	return end;
+    }
+
+    /**
+     * Add a finished game: its outcome and the states the AI's moves led to
+     **/
+    public void append(int outcome, int[] states, int count) throws IOException {
+	append(outcome, states, 0, count);
+    }
+
+    /**
+     * Add a finished game whose states are states[from .. from+count-1]
+     **/
+    public void append(int outcome, int[] states, int from, int count) throws IOException {
+	if (batch.remaining() < 4 * (count + 1)) flush();
+	batch.putInt(outcome << 16 | count);
+	for (int i = 0; i < count; i++) batch.putInt(states[from + i]);
+    }
+
+    /**
+     * Append the collected games to the file (not forcing it to the disk)
+     **/
+    public void flush() throws IOException {
+	if (channel == null || batch.position() == 0) return;
+	batch.flip();
+	while (batch.hasRemaining()) size += channel.write(batch);
+	batch.clear();
+    }
+
+    /** Has the journal grown enough to be folded into a new snapshot? **/
+    public boolean needsCompaction() { return size + batch.position() >= COMPACT_BYTES; }
+
+    /**
+     * Start again (empty) after a new snapshot with this checksum has been written.
+     * Any games not yet flushed are dropped - the snapshot already has them.
+     **/
+    public void reset(long snapshot) throws IOException {
+	batch.clear();
+	close();
+	start(snapshot);
+	open(snapshot);
+    }
+
+    /**
+     * Flush, force to the disk and close the file
+     **/
+    public void close() throws IOException {
+	if (channel == null) return;
+	try {
+	    flush();
+	    channel.force(false);
+	} finally {
+	    channel.close();
+	    channel = null;
+	}
+    }
+
+    /**
+     * Write an empty journal following the given snapshot (replacing the file)
+     **/
+    private void start(long snapshot) throws IOException {
+	File tmp = new File(file.getPath() + ".tmp");
+	RandomAccessFile raf = new RandomAccessFile(tmp, "rw");
+	try {
+	    raf.setLength(0);
+	    raf.writeInt(MAGIC);
+	    raf.writeLong(snapshot);
+	    raf.getFD().sync();
+	} finally {
+	    raf.close();
+	}
+	Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
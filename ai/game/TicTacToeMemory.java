@@ -0,0 +1,167 @@
+/*******************
+ * Christian A. Duncan
+ * Edited: Diego Holguin
+ * CSC350: Intelligent Systems
+ * Spring 2017
+ *
+ * AI Game Client
+ * This project is designed to support multiple game platforms to test
+ * AI-based solutions.
+ * See README file for more details.
+ ********************/
+
+package cad.ai.game;
+
+import java.util.Arrays;
+
+/***********************************************************
+ * What the TicTacToeAI has learned: the wins, losses and ties that
+ * followed each state (the canonical code of a board one of its moves
+ * led to, see TicTacToeSymmetry).  The AI scores a move by the same
+ * state, so what it learns is what it looks up.
+ *   An open addressing hash table of primitive arrays (linear probing,
+ *   at most half full): keys holds state + 1 (0 = empty slot) and
+ *   counts holds the three counters of each slot side by side.  Lookups
+ *   and updates allocate nothing; only growing the table does.
+ *
+ *   Not synchronized - the AI using it is.
+ ***********************************************************/
+public class TicTacToeMemory {
+    public static final int NOT_FOUND = -1;
+    private static final int WINS = 0, LOSSES = 1, TIES = 2, COUNTERS = 3;
+
+    private int[] keys;
+    private int[] counts;
+    private int mask;
+    private int size = 0;
+
+    public TicTacToeMemory() { this(1024); }
+
+    /** A memory with room for about capacity states before it grows **/
+    public TicTacToeMemory(int capacity) {
+	int slots = Integer.highestOneBit(Math.max(2 * capacity - 1, 1)) << 1;
+	keys = new int[slots];
+	counts = new int[COUNTERS * slots];
+	mask = slots - 1;
+    }
+
+    /** Number of states known **/
+    public int size() { return size; }
+
+    /** Forget everything **/
+    public void clear() {
+	Arrays.fill(keys, 0);
+	Arrays.fill(counts, 0);
+	size = 0;
+    }
+
+    /** The slot of a state, or NOT_FOUND **/
+    public int find(int state) {
+	for (int i = hash(state) & mask; ; i = (i + 1) & mask) {
+	    int k = keys[i];
+	    if (k == state + 1) return i;
+	    if (k == 0) return NOT_FOUND;
+	}
+    }
+
+    public int wins(int slot) { return counts[COUNTERS * slot + WINS]; }
+    public int losses(int slot) { return counts[COUNTERS * slot + LOSSES]; }
+    public int ties(int slot) { return counts[COUNTERS * slot + TIES]; }
+    public int games(int slot) { return wins(slot) + losses(slot) + ties(slot); }
+    public int state(int slot) { return keys[slot] - 1; }
+
+    /** Number of slots (for walking through them: a slot is in use if used(slot)) **/
+    public int capacity() { return keys.length; }
+    public boolean used(int slot) { return keys[slot] != 0; }
+
+    /**
+     * Add one game's outcome for a state (TicTacToeJournal.WIN, LOSS or TIE)
+     **/
+    public void add(int state, int outcome) {
+	counts[COUNTERS * insert(state) + outcome]++;
+    }
+
+    /**
+     * Add tallies for a state
+     **/
+    public void add(int state, int wins, int losses, int ties) {
+	int c = COUNTERS * insert(state);
+	counts[c + WINS] += wins;
+	counts[c + LOSSES] += losses;
+	counts[c + TIES] += ties;
+    }
+
+    /**
+     * Add all the tallies of another memory (e.g. one learned by another thread)
+     **/
+    public void addAll(TicTacToeMemory other) {
+	for (int j = 0; j < other.keys.length; j++)
+	    if (other.keys[j] != 0)
+		add(other.keys[j] - 1, other.wins(j), other.losses(j), other.ties(j));
+    }
+
+    /**
+     * Forget everything and learn exactly what another memory knows
+     **/
+    public void copyFrom(TicTacToeMemory other) {
+	if (keys.length != other.keys.length) {
+	    keys = new int[other.keys.length];
+	    counts = new int[other.counts.length];
+	}
+	System.arraycopy(other.keys, 0, keys, 0, keys.length);
+	System.arraycopy(other.counts, 0, counts, 0, counts.length);
+	mask = other.mask;
+	size = other.size;
+    }
+
+    /**
+     * The tallies as memory file records (see TicTacToeMemoryFile)
+     **/
+    public int[] toRecords() {
+	int[] records = new int[size * TicTacToeMemoryFile.RECORD];
+	int r = 0;
+	for (int i = 0; i < keys.length; i++) {
+	    if (keys[i] == 0) continue;
+	    records[r + TicTacToeMemoryFile.STATE] = keys[i] - 1;
+	    records[r + TicTacToeMemoryFile.WINS] = wins(i);
+	    records[r + TicTacToeMemoryFile.LOSSES] = losses(i);
+	    records[r + TicTacToeMemoryFile.TIES] = ties(i);
+	    r += TicTacToeMemoryFile.RECORD;
+	}
+	return records;
+    }
+
+    /** The slot of a state, adding it (with no tallies) if it is new **/
+    private int insert(int state) {
+	int i = hash(state) & mask;
+	for (; keys[i] != 0; i = (i + 1) & mask)
+	    if (keys[i] == state + 1) return i;
+	if (2 * (size + 1) > keys.length) {
+	    grow();
+	    return insert(state);
+	}
+	keys[i] = state + 1;
+	size++;
+	return i;
+    }
+
+    /** Double the table **/
+    private void grow() {
+	int[] oldKeys = keys, oldCounts = counts;
+	keys = new int[2 * oldKeys.length];
+	counts = new int[COUNTERS * keys.length];
+	mask = keys.length - 1;
+	for (int j = 0; j < oldKeys.length; j++) {
+	    if (oldKeys[j] == 0) continue;
+	    int i = hash(oldKeys[j] - 1) & mask;
+	    while (keys[i] != 0) i = (i + 1) & mask;
+	    keys[i] = oldKeys[j];
+	    System.arraycopy(oldCounts, COUNTERS * j, counts, COUNTERS * i, COUNTERS);
+	}
+    }
+
+    private static int hash(int state) {
+	int h = state * 0x9E3779B9;
+	return h ^ (h >>> 16);
+    }
+}
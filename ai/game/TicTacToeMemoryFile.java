@@ -0,0 +1,129 @@
+/*******************
+ * Christian A. Duncan
+ * Edited: Diego Holguin
+ * CSC350: Intelligent Systems
+ * Spring 2017
+ *
+ * AI Game Client
+ * This project is designed to support multiple game platforms to test
+ * AI-based solutions.
+ * See README file for more details.
+ ********************/
+
+package cad.ai.game;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.CRC32;
+
+/***********************************************************
+ * The TicTacToeAI's learned memory as a compact binary file.
+ *   Each record is four ints: the state (the base-3 code of the
+ *   canonical board a move of the AI led to, see TicTacToeTable.encode)
+ *   and its wins, losses and ties.  Records are passed around as a flat int array, RECORD
+ *   ints per record, so reading and writing allocate one array.
+ *
+ *   File format (big-endian):
+ *     int MAGIC
+ *     int number of records
+ *     per record: int state, int wins, int losses, int ties
+ *   The file is read through a memory-mapped FileChannel and written
+ *   to a temporary file that then replaces the old one, so a crash
+ *   while saving never leaves a half-written memory behind.
+ *
+ *   Older memories (the text AIMemory*.txt files and "TTM1" binary
+ *   files) tallied the board before each move, which no move is scored
+ *   by, so they are not read: the AI starts learning again without them.
+ ***********************************************************/
+public final class TicTacToeMemoryFile {
+    public static final int RECORD = 4;   // Ints per record: state, wins, losses, ties
+    public static final int STATE = 0, WINS = 1, LOSSES = 2, TIES = 3;
+    private static final int MAGIC = 0x54544d32;  // "TTM2"
+    private static final int OLD_MAGIC = 0x54544d31;  // "TTM1" - keyed by the board before each move
+
+    private TicTacToeMemoryFile() { }
+
+    /** The state code of a board string ('X', 'O' and anything else empty) **/
+    public static int encode(String state) { return TicTacToeTable.encode(state.toCharArray()); }
+
+    /** The board string ('_' for empty) of a state code **/
+    public static String decode(int code) {
+	char[] board = new char[9];
+	for (int i = 0; i < 9; i++, code /= 3) board[i] = "_XO".charAt(code % 3);
+	return new String(board);
+    }
+
+    /**
+     * Read a binary memory file.
+     * @return The records (length is a multiple of RECORD)
+     **/
+    public static int[] read(File file) throws IOException {
+	RandomAccessFile raf = new RandomAccessFile(file, "r");
+	try {
+	    FileChannel channel = raf.getChannel();
+	    MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+	    int magic = (map.remaining() < 8) ? 0 : map.getInt();
+	    if (magic == OLD_MAGIC) throw new IOException("An old memory (states before each move) - not used");
+	    if (magic != MAGIC) throw new IOException("Not a TicTacToe memory file");
+	    int n = map.getInt();
+	    if (n < 0 || (long) n * RECORD * 4 > map.remaining()) throw new IOException("Bad number of records: " + n);
+	    int[] records = new int[n * RECORD];
+	    map.asIntBuffer().get(records);
+	    return records;
+	} finally {
+	    raf.close();
+	}
+    }
+
+    /**
+     * The checksum (CRC-32) of a memory file's contents, or 0 if there is
+     * no such file.  A TicTacToeJournal names the snapshot it follows by it.
+     **/
+    public static long checksum(File file) throws IOException {
+	if (!file.exists()) return 0;
+	RandomAccessFile raf = new RandomAccessFile(file, "r");
+	try {
+	    FileChannel channel = raf.getChannel();
+	    CRC32 crc = new CRC32();
+	    crc.update(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+	    return crc.getValue();
+	} finally {
+	    raf.close();
+	}
+    }
+
+    /**
+     * Write the first count records to a binary memory file (replacing it)
+     * @return The checksum of the new file
+     **/
+    public static long write(File file, int[] records, int count) throws IOException {
+	ByteBuffer buf = ByteBuffer.allocate(8 + 4 * RECORD * count);
+	buf.putInt(MAGIC);
+	buf.putInt(count);
+	IntBuffer ints = buf.asIntBuffer();
+	ints.put(records, 0, count * RECORD);
+	CRC32 crc = new CRC32();
+	crc.update(buf.array());
+	buf.rewind();
+
+	File tmp = new File(file.getPath() + ".tmp");
+	RandomAccessFile raf = new RandomAccessFile(tmp, "rw");
+	try {
+	    raf.setLength(0);
+	    FileChannel channel = raf.getChannel();
+	    while (buf.hasRemaining()) channel.write(buf);
+	    channel.force(false);
+	} finally {
+	    raf.close();
+	}
+	Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	return crc.getValue();
+    }
+}
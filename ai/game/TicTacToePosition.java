@@ -0,0 +1,109 @@
+/*******************
+ * Christian A. Duncan
+ * Edited: Diego Holguin
+ * CSC350: Intelligent Systems
+ * Spring 2017
+ *
+ * AI Game Client
+ * This project is designed to support multiple game platforms to test
+ * AI-based solutions.
+ * See README file for more details.
+ ********************/
+
+package cad.ai.game;
+
+import java.util.Random;
+import cad.ai.search.Position;
+
+/***********************************************************
+ * A TicTacToe board for the SearchEngine.
+ *   Moves are the slots 0-8 (as in TicTacToeGame).  A win scores
+ *   1 + the empty slots left, so quicker wins (and slower losses)
+ *   are preferred; a tie scores 0.
+ ***********************************************************/
+public class TicTacToePosition implements Position {
+    private static final int[][] LINES = {
+	{0, 1, 2}, {3, 4, 5}, {6, 7, 8},   // Rows
+	{0, 3, 6}, {1, 4, 7}, {2, 5, 8},   // Columns
+	{0, 4, 8}, {2, 4, 6}               // Diagonals
+    };
+    private static final int[] SLOTS = {4, 0, 2, 6, 8, 1, 3, 5, 7};  // Centre, corners, then edges
+    private static final long[][] KEYS = new long[2][9];  // Zobrist keys (fixed, so tables stay valid)
+    static {
+	Random ran = new Random(9);
+	for (int p = 0; p < 2; p++)
+	    for (int i = 0; i < 9; i++) KEYS[p][i] = ran.nextLong();
+    }
+
+    private final char[] board = new char[9];
+    private final int[] played = new int[9];  // Slots played with makeMove (for undoMove)
+    private int top = 0;
+    private int turn;     // Player to move: 0 (X) or 1 (O)
+    private int empties;
+    private long hash;
+
+    /**
+     * Set the position to a copy of the board with the given player to move
+     **/
+    public void set(char[] board, int turn) {
+	this.turn = turn;
+	top = 0;
+	empties = 0;
+	hash = 0;
+	for (int i = 0; i < 9; i++) {
+	    this.board[i] = board[i];
+	    if (board[i] == 'X') hash ^= KEYS[0][i];
+	    else if (board[i] == 'O') hash ^= KEYS[1][i];
+	    else empties++;
+	}
+    }
+
+    public int maxMoves() { return 9; }
+
+    public int generateMoves(int[] moves, int offset) {
+	if (empties == 0 || winner() != ' ') return 0;
+	int n = 0;
+	for (int i: SLOTS)
+	    if (board[i] == ' ') moves[offset + n++] = i;
+	return n;
+    }
+
+    public void makeMove(int move) {
+	board[move] = (turn == 0) ? 'X' : 'O';
+	hash ^= KEYS[turn][move];
+	played[top++] = move;
+	empties--;
+	turn ^= 1;
+    }
+
+    public void undoMove() {
+	int move = played[--top];
+	turn ^= 1;
+	empties++;
+	hash ^= KEYS[turn][move];
+	board[move] = ' ';
+    }
+
+    public long hash() { return hash; }
+
+    public int evaluate() {
+	char w = winner();
+	if (w == ' ') return 0;
+	return (w == ((turn == 0) ? 'X' : 'O')) ? 1 + empties : -1 - empties;
+    }
+
+    public int side() { return turn; }
+
+    public int moveLimit() { return 9; }
+
+    public int priority(int move) { return 0; }  // generateMoves already lists the best slots first
+
+    /** The mark with three in a row (or ' ' if none) **/
+    private char winner() {
+	for (int[] line: LINES) {
+	    char c = board[line[0]];
+	    if (c != ' ' && c == board[line[1]] && c == board[line[2]]) return c;
+	}
+	return ' ';
+    }
+}
@@ -0,0 +1,82 @@
+/*******************
+ * Christian A. Duncan
+ * Edited: Diego Holguin
+ * CSC350: Intelligent Systems
+ * Spring 2017
+ *
+ * AI Game Client
+ * This project is designed to support multiple game platforms to test
+ * AI-based solutions.
+ * See README file for more details.
+ ********************/
+
+package cad.ai.game;
+
+/***********************************************************
+ * The 8 symmetries of a TicTacToe board (rotations and reflections).
+ *   Symmetric positions are worth the same, so the learning AI keeps
+ *   one entry for all of them: the canonical board is the smallest
+ *   (as a string) of the 8 transformed boards.  The AI looks up the
+ *   board each move leads to, so no move ever needs mapping back.
+ *
+ *   Transform t shows slot MAPS[t][i] of the real board at slot i.
+ ***********************************************************/
+public final class TicTacToeSymmetry {
+    public static final int TRANSFORMS = 8;
+
+    private static final int[][] MAPS = new int[TRANSFORMS][9];
+    static {
+	for (int t = 0; t < TRANSFORMS; t++)
+	    for (int r = 0; r < 3; r++)
+		for (int c = 0; c < 3; c++) {
+		    int rr = r, cc = c;
+		    if ((t & 4) != 0) { int x = rr; rr = cc; cc = x; }   // Transpose
+		    for (int k = 0; k < (t & 3); k++) { int x = rr; rr = cc; cc = 2 - x; }  // Quarter turns
+		    MAPS[t][3 * r + c] = 3 * rr + cc;
+		}
+    }
+
+    private TicTacToeSymmetry() { }
+
+    /**
+     * The transform that makes the board canonical (the smallest
+     * of the transformed boards).  Nothing is allocated.
+     **/
+    public static int canonicalTransform(char[] board) {
+	int best = 0;
+	for (int t = 1; t < TRANSFORMS; t++)
+	    for (int i = 0; i < 9; i++) {
+		char a = board[MAPS[t][i]], b = board[MAPS[best][i]];
+		if (a != b) {
+		    if (a < b) best = t;
+		    break;
+		}
+	    }
+	return best;
+    }
+
+    /**
+     * The code (see TicTacToeTable.encode) of the board as transform t
+     * shows it.  Nothing is allocated.
+     **/
+    public static int encode(char[] board, int t) {
+	int code = 0;
+	for (int i = 8; i >= 0; i--) {
+	    char c = board[MAPS[t][i]];
+	    code = 3 * code + ((c == 'X') ? 1 : (c == 'O') ? 2 : 0);
+	}
+	return code;
+    }
+
+    /** The code of the canonical version of a board **/
+    public static int canonicalCode(char[] board) { return encode(board, canonicalTransform(board)); }
+
+    /** The canonical version of a board **/
+    public static String canonical(String state) {
+	char[] board = state.toCharArray();
+	int t = canonicalTransform(board);
+	char[] result = new char[9];
+	for (int i = 0; i < 9; i++) result[i] = board[MAPS[t][i]];
+	return new String(result);
+    }
+}
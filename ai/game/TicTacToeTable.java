@@ -0,0 +1,101 @@
+/*******************
+ * Christian A. Duncan
+ * Edited: Diego Holguin
+ * CSC350: Intelligent Systems
+ * Spring 2017
+ *
+ * AI Game Client
+ * This project is designed to support multiple game platforms to test
+ * AI-based solutions.
+ * See README file for more details.
+ ********************/
+
+package cad.ai.game;
+
+import java.util.Arrays;
+import cad.ai.search.SearchEngine;
+
+/***********************************************************
+ * TicTacToe solved once and for all.
+ *   A board is encoded in base 3 (slot i is digit i: 0 empty, 1 X,
+ *   2 O), so the 3^9 codes index two byte arrays: the best move and
+ *   the value of the position for the player to move.  X moves first,
+ *   so the player to move follows from the number of marks.
+ *
+ *   The table is filled when the class is loaded by solving every
+ *   position reachable from the empty board (5,478 of them) with the
+ *   SearchEngine to the end of the game (one engine, so its table
+ *   carries each solved position over to the next search).  After that
+ *   a move is a single array lookup, and any number of AIs (or threads)
+ *   can share it.  Of equally good moves the table keeps the one the
+ *   search tried first.
+ *
+ *   Values are scored like TicTacToePosition: a win is 1 + the empty
+ *   slots left (so quicker wins and slower losses are preferred) and a
+ *   tie is 0.
+ ***********************************************************/
+public final class TicTacToeTable {
+    public static final int NO_MOVE = -1;   // Game over, or not a reachable position
+    public static final int SIZE = 19683;   // 3^9 codes
+
+    private static final int[] POW3 = {1, 3, 9, 27, 81, 243, 729, 2187, 6561};
+    private static final byte UNSOLVED = Byte.MIN_VALUE;
+
+    private static final byte[] MOVE = new byte[SIZE];
+    private static final byte[] VALUE = new byte[SIZE];
+    private static int positions = 0;
+    static {
+	Arrays.fill(VALUE, UNSOLVED);
+	Arrays.fill(MOVE, (byte) NO_MOVE);
+	char[] board = new char[9];
+	Arrays.fill(board, ' ');
+	solve(new SearchEngine(), new TicTacToePosition(), board, 0, 9);
+    }
+
+    private TicTacToeTable() { }
+
+    /** The base-3 code of a board ('X', 'O' and anything else is empty) **/
+    public static int encode(char[] board) {
+	int code = 0;
+	for (int i = 0; i < 9; i++)
+	    if (board[i] == 'X') code += POW3[i];
+	    else if (board[i] == 'O') code += 2 * POW3[i];
+	return code;
+    }
+
+    /** The best slot for the player to move (NO_MOVE if game over or unreachable) **/
+    public static int bestMove(int code) { return MOVE[code]; }
+    public static int bestMove(char[] board) { return MOVE[encode(board)]; }
+
+    /** The value of the position for the player to move (0 if unreachable) **/
+    public static int value(int code) { return (VALUE[code] == UNSOLVED) ? 0 : VALUE[code]; }
+
+    /** Is the code a position that can come up in a game? **/
+    public static boolean isReachable(int code) { return VALUE[code] != UNSOLVED; }
+
+    /** The number of reachable positions (5,478) **/
+    public static int positions() { return positions; }
+
+    /**
+     * Solve a position (with the engine) and then everything reachable from it.
+     * board   - The position (its code is code), put back as it was on return
+     * empties - Its empty slots
+     **/
+    private static void solve(SearchEngine engine, TicTacToePosition position, char[] board, int code, int empties) {
+	if (VALUE[code] != UNSOLVED) return;
+	positions++;
+	int turn = (empties % 2 == 1) ? 0 : 1;   // X to move when an odd number of slots are empty
+	position.set(board, turn);
+	int best = engine.search(position, empties);
+	MOVE[code] = (byte) best;
+	VALUE[code] = (byte) engine.getBestScore();
+	if (best == NO_MOVE) return;   // Game over
+
+	for (int slot = 0; slot < 9; slot++) {
+	    if (board[slot] != ' ') continue;
+	    board[slot] = (turn == 0) ? 'X' : 'O';
+	    solve(engine, position, board, code + (turn + 1) * POW3[slot], empties - 1);
+	    board[slot] = ' ';
+	}
+    }
+}
@@ -0,0 +1,364 @@
+/*******************
+ * Christian A. Duncan
+ * Edited: Diego Holguin
+ * CSC350: Intelligent Systems
+ * Spring 2017
+ *
+ * AI Game Client
+ * This project is designed to support multiple game platforms to test
+ * AI-based solutions.
+ * See README file for more details.
+ ********************/
+
+package cad.ai.game;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/***********************************************************
+ * Trains the learning TicTacToeAI by self-play, headless and on every core.
+ *   Unlike PlayGame there is no Game object, no string protocol and no
+ *   output per game: each worker plays its games on a char[] board and
+ *   asks its own AIs for moves directly (TicTacToeAI.chooseMove).
+ *
+ *   Training runs in rounds.  At the start of a round every worker's
+ *   learning AI copies the shared memory; during the round it learns
+ *   from its own games (so it keeps improving) and also tallies them
+ *   separately.  At the end of the round those tallies are merged into
+ *   the shared memory, which is what gets saved (AIMemory<type>.bin,
+ *   see TicTacToeAI) when training ends.  The round's games are also
+ *   written to the learner's journal then, so a crash loses at most the
+ *   round in progress.
+ *
+ *   Either side can be a learner, a random player or a perfect player
+ *   (TicTacToeTable).
+ *
+ *   After training each learner is checked against random play: it
+ *   plays some games (without learning from them) against a random
+ *   opponent, and so does a random player in its place.  If the
+ *   learner does not score MIN_GAIN points better than that baseline it
+ *   has not learned anything, and the trainer says so and fails.
+ ***********************************************************/
+public class TicTacToeTrainer {
+    public static final int DEFAULT_ROUND = 10000;   // Games per worker between merges
+    public static final int DEFAULT_CHECK = 10000;   // Games per side of the check against random play
+    public static final double MIN_GAIN = 5.0;       // Points (wins + half the ties, in %) a learner must beat random play by
+    private static final long REPORT_INTERVAL = 1000000000L;  // At most one progress report per second (ns)
+    private static final int[][] LINES = {
+	{0, 1, 2}, {3, 4, 5}, {6, 7, 8},   // Rows
+	{0, 3, 6}, {1, 4, 7}, {2, 5, 8},   // Columns
+	{0, 4, 8}, {2, 4, 6}               // Diagonals
+    };
+
+    /** Who plays a side **/
+    public static enum Player { LEARN, RANDOM, PERFECT };
+
+    private final Player[] players;
+    private final TicTacToeAI[] shared = new TicTacToeAI[2];   // The learners' memories (null if not learning)
+    private final Worker[] workers;
+    private final ExecutorService pool;
+    private final int round;
+    private final boolean verbose;
+
+    /** The results of some games **/
+    private static class Results {
+	long games, homeWins, awayWins;
+	void add(Results r) { games += r.games; homeWins += r.homeWins; awayWins += r.awayWins; }
+    }
+
+    /**
+     * One thread's AIs, board and tallies.  Only ever used by one thread at a time.
+     **/
+    private class Worker implements Callable<Results> {
+	final TicTacToeAI[] ai = new TicTacToeAI[2];
+	final TicTacToeMemory[] learned = new TicTacToeMemory[2];   // What this round's games taught
+	final int[][] log = new int[2][];   // This round's games, for the journal: outcome, count, states...
+	final int[] logLength = new int[2];
+	final char[] board = new char[9];
+	int games;   // To play this round
+
+	Worker() {
+	    for (int p = 0; p < 2; p++) {
+		if (players[p] == Player.PERFECT) continue;
+		ai[p] = new TicTacToeAI(p == 0);
+		ai[p].useMemory = (players[p] == Player.LEARN);   // Otherwise it plays randomly
+		if (players[p] == Player.LEARN) {
+		    learned[p] = new TicTacToeMemory();
+		    log[p] = new int[1024];
+		}
+	    }
+	}
+
+	public Results call() {
+	    for (int p = 0; p < 2; p++)
+		if (learned[p] != null) ai[p].AI_Memory.copyFrom(shared[p].AI_Memory);
+
+	    Results results = new Results();
+	    for (int g = 0; g < games; g++) {
+		int winner = play();
+		results.games++;
+		if (winner == 0) results.homeWins++;
+		else if (winner == 1) results.awayWins++;
+	    }
+	    return results;
+	}
+
+	/**
+	 * Play one game (and learn from it)
+	 * @return The winner (0=Home, 1=Away, -1=Tie)
+	 **/
+	int play() {
+	    int winner = playGame(ai, board);
+	    for (int p = 0; p < 2; p++) {
+		if (ai[p] == null) continue;
+		if (learned[p] != null) {
+		    int outcome = (winner == -1) ? TicTacToeJournal.TIE : (winner == p) ? TicTacToeJournal.WIN : TicTacToeJournal.LOSS;
+		    ai[p].learn(outcome, ai[p].currentGame, ai[p].currentMoves);
+		    for (int i = 0; i < ai[p].currentMoves; i++) learned[p].add(ai[p].currentGame[i], outcome);
+		    log(p, outcome, ai[p].currentGame, ai[p].currentMoves);
+		}
+		ai[p].currentMoves = 0;
+	    }
+	    return winner;
+	}
+
+	/** Add a game to player p's log **/
+	void log(int p, int outcome, int[] states, int count) {
+	    if (logLength[p] + 2 + count > log[p].length) log[p] = Arrays.copyOf(log[p], 2 * log[p].length);
+	    int[] l = log[p];
+	    l[logLength[p]++] = outcome;
+	    l[logLength[p]++] = count;
+	    for (int i = 0; i < count; i++) l[logLength[p]++] = states[i];
+	}
+    }
+
+    /**
+     * @param home, away - who plays each side
+     * @param homeMemory, awayMemory - the memory file type of a learning side (see TicTacToeAI)
+     * @param threads - how many games to play at once
+     * @param round - games each thread plays between merges
+     * @param verbose - report progress
+     **/
+    public TicTacToeTrainer(Player home, Player away, String homeMemory, String awayMemory,
+			    int threads, int round, boolean verbose) {
+	this.players = new Player[] { home, away };
+	this.round = round;
+	this.verbose = verbose;
+	String[] memory = { homeMemory, awayMemory };
+	for (int p = 0; p < 2; p++)
+	    if (players[p] == Player.LEARN) shared[p] = new TicTacToeAI(p == 0, true, true, memory[p]);
+	workers = new Worker[threads];
+	for (int w = 0; w < threads; w++) workers[w] = new Worker();
+	pool = Executors.newFixedThreadPool(threads);
+    }
+
+    /**
+     * Play the games, then save what was learned
+     **/
+    public void run(long games) throws Exception {
+	Results total = new Results();
+	long start = System.nanoTime(), lastReport = start;
+	List<Worker> tasks = new ArrayList<Worker>();
+	while (total.games < games) {
+	    // Share the remaining games out (at most a round each)
+	    long left = games - total.games;
+	    tasks.clear();
+	    for (Worker w: workers) {
+		w.games = (int) Math.min(round, (left + workers.length - 1) / workers.length);
+		w.games = (int) Math.min(w.games, left);
+		left -= w.games;
+		if (w.games > 0) tasks.add(w);
+	    }
+	    for (Future<Results> f: pool.invokeAll(tasks)) total.add(f.get());
+
+	    // Merge what the workers learned, and journal the games it came from
+	    for (Worker w: tasks)
+		for (int p = 0; p < 2; p++)
+		    if (w.learned[p] != null) {
+			shared[p].AI_Memory.addAll(w.learned[p]);
+			w.learned[p].clear();
+			int[] l = w.log[p];
+			for (int i = 0; i < w.logLength[p]; i += 2 + l[i + 1]) shared[p].logGame(l[i], l, i + 2, l[i + 1]);
+			w.logLength[p] = 0;
+		    }
+	    for (int p = 0; p < 2; p++)
+		if (shared[p] != null) shared[p].flushJournal();
+
+	    long now = System.nanoTime();
+	    if (verbose && now - lastReport >= REPORT_INTERVAL) {
+		report(total, now - start);
+		lastReport = now;
+	    }
+	}
+	pool.shutdown();
+
+	// Save the learners' memories
+	for (int p = 0; p < 2; p++)
+	    if (shared[p] != null) shared[p].end();
+	report(total, System.nanoTime() - start);
+    }
+
+    /**
+     * Check every learner against random play (see the class comment)
+     * @param games - games to play for each learner and for each baseline
+     * @return true if every learner beat its baseline by MIN_GAIN
+     **/
+    public boolean check(int games) {
+	boolean learned = true;
+	for (int p = 0; p < 2; p++) {
+	    if (shared[p] == null) continue;
+	    TicTacToeAI learner = new TicTacToeAI(p == 0);
+	    learner.useMemory = true;
+	    learner.AI_Memory.copyFrom(shared[p].AI_Memory);
+	    Results trained = againstRandom(p, learner, games);
+	    Results baseline = againstRandom(p, new TicTacToeAI(p == 0), games);
+
+	    String side = (p == 0) ? "Home" : "Away";
+	    double gain = score(trained, p) - score(baseline, p);
+	    System.out.printf("Check: %s learner vs random won %.1f%%, tied %.1f%%; random vs random won %.1f%%, tied %.1f%% (%+.1f points)%n",
+			      side, percent(wins(trained, p), games), percent(ties(trained), games),
+			      percent(wins(baseline, p), games), percent(ties(baseline), games), gain);
+	    if (gain < MIN_GAIN) {
+		System.out.println("Check FAILED: the " + side + " learner plays no better than random (needs +" + MIN_GAIN + " points)");
+		learned = false;
+	    }
+	}
+	return learned;
+    }
+
+    /**
+     * Play games with ai as player p against a random player (nobody learns)
+     **/
+    private static Results againstRandom(int p, TicTacToeAI ai, int games) {
+	TicTacToeAI[] players = new TicTacToeAI[2];
+	players[p] = ai;
+	players[p ^ 1] = new TicTacToeAI(p != 0);   // Plays randomly
+	char[] board = new char[9];
+	Results results = new Results();
+	for (int g = 0; g < games; g++) {
+	    int winner = playGame(players, board);
+	    ai.currentMoves = 0;
+	    players[p ^ 1].currentMoves = 0;
+	    results.games++;
+	    if (winner == 0) results.homeWins++;
+	    else if (winner == 1) results.awayWins++;
+	}
+	return results;
+    }
+
+    /** Player p's score in some games: wins + half the ties (in %) **/
+    private static double score(Results r, int p) { return percent(wins(r, p) + ties(r) / 2.0, r.games); }
+    private static long wins(Results r, int p) { return (p == 0) ? r.homeWins : r.awayWins; }
+    private static long ties(Results r) { return r.games - r.homeWins - r.awayWins; }
+    private static double percent(double n, long games) { return (games == 0) ? 0 : 100.0 * n / games; }
+
+    /**
+     * Play one game on board between two AIs (null for the perfect player)
+     * @return The winner (0=Home, 1=Away, -1=Tie)
+     **/
+    private static int playGame(TicTacToeAI[] ai, char[] board) {
+	for (int i = 0; i < board.length; i++) board[i] = ' ';
+	for (int move = 0; move < board.length; move++) {
+	    int turn = move & 1;  // X (Home) goes first
+	    int slot = (ai[turn] == null) ? TicTacToeTable.bestMove(board) : ai[turn].chooseMove(board, turn);
+	    board[slot] = (turn == 0) ? 'X' : 'O';
+	    if (hasLine(board, slot)) return turn;
+	}
+	return -1;
+    }
+
+    /**
+     * Print how many games have been played, how fast and how they went
+     **/
+    private void report(Results r, long nanos) {
+	double seconds = nanos / 1e9;
+	System.out.printf("%d games in %.1f s (%.0f games/s): Home won %.1f%%, Away won %.1f%%, tied %.1f%%%n",
+			  r.games, seconds, r.games / Math.max(seconds, 1e-9),
+			  percent(r.homeWins, r.games), percent(r.awayWins, r.games), percent(ties(r), r.games));
+    }
+
+    /** Did the mark just placed in slot make three in a row? **/
+    private static boolean hasLine(char[] board, int slot) {
+	char m = board[slot];
+	for (int[] line: LINES)
+	    if ((line[0] == slot || line[1] == slot || line[2] == slot) &&
+		board[line[0]] == m && board[line[1]] == m && board[line[2]] == m)
+		return true;
+	return false;
+    }
+
+    public static void main(String[] args) {
+	// Defaults to use
+	Player home = Player.LEARN, away = Player.LEARN;
+	String homeMemory = "_Home", awayMemory = "_Away";
+	long games = 1000000;
+	int threads = Runtime.getRuntime().availableProcessors();
+	int round = DEFAULT_ROUND;
+	int check = DEFAULT_CHECK;
+	boolean verbose = true;
+
+	// Parse the arguments
+	for (String arg: args) {
+	    try {
+		String[] params = arg.split("=",2);
+		switch (params[0]) {
+		case "--help": printUsage(null); break;
+		case "--home": home = Player.valueOf(params[1].toUpperCase()); break;
+		case "--away": away = Player.valueOf(params[1].toUpperCase()); break;
+		case "--home-memory": homeMemory = params[1]; break;
+		case "--away-memory": awayMemory = params[1]; break;
+		case "--games": games = Long.parseLong(params[1]); break;
+		case "--threads": threads = Integer.parseInt(params[1]); break;
+		case "--round": round = Integer.parseInt(params[1]); break;
+		case "--check": check = Integer.parseInt(params[1]); break;
+		case "--verbose": verbose = Integer.parseInt(params[1]) > 0; break;
+		default:
+		    printUsage("Unrecognized parameter: " + arg);
+		}
+	    } catch (Exception e) {
+		printUsage("Error processing parameter: " + arg);
+	    }
+	}
+	if (threads < 1 || round < 1 || games < 0 || check < 0) printUsage("Games, threads, round and check must be positive");
+	if (home == Player.LEARN && away == Player.LEARN && homeMemory.equals(awayMemory))
+	    printUsage("Home and Away cannot learn into the same memory");
+
+	boolean learned;
+	try {
+	    TicTacToeTrainer trainer = new TicTacToeTrainer(home, away, homeMemory, awayMemory, threads, round, verbose);
+	    trainer.run(games);
+	    learned = (check == 0) || trainer.check(check);
+	} catch (Exception e) {
+	    System.err.println("Error training: " + e);
+	    System.exit(1);
+	    return;
+	}
+	if (!learned) System.exit(1);
+    }
+
+    /**
+     * Print Usage message and exit
+     **/
+    public static void printUsage(String message) {
+	System.err.println("Usage: java cad.ai.game.TicTacToeTrainer [params]");
+	System.err.println("       Where params are:");
+	System.err.println("         --help                 -- Print this usage message");
+	System.err.println("         --home=learn/random/perfect -- Who plays Home (default learn).");
+	System.err.println("         --away=learn/random/perfect -- Who plays Away (default learn).");
+	System.err.println("         --home-memory=type     -- Memory of a learning Home: cad/AIMemory<type>.bin (default _Home).");
+	System.err.println("         --away-memory=type     -- Memory of a learning Away (default _Away).");
+	System.err.println("         --games=X              -- Number of games to play (default 1000000).");
+	System.err.println("         --threads=X            -- Play this many games at once (default = number of cores).");
+	System.err.println("         --round=X              -- Games each thread plays between merging memories (default " + DEFAULT_ROUND + ").");
+	System.err.println("         --check=X              -- Games to check each learner against random play with (default " + DEFAULT_CHECK + ", 0=off).");
+	System.err.println("         --verbose=X            -- 0=quiet, >0=report progress.");
+	if (message != null)
+	    System.err.println("       " + message);
+	System.exit(1);
+    }
+}
@@ -0,0 +1,83 @@
+/*******************
+ * Christian A. Duncan
+ * Edited: Diego Holguin
+ * CSC350: Intelligent Systems
+ * Spring 2017
+ *
+ * AI Game Client
+ * This project is designed to support multiple game platforms to test
+ * AI-based solutions.
+ * See README file for more details.
+ ********************/
+
+package cad.ai.search;
+
+/***********************************************************
+ * A game position that the SearchEngine can search.
+ *   The position is searched in place: moves are made and taken back
+ *   with makeMove/undoMove, so a search allocates nothing per node.
+ *
+ *   Moves are small non-negative ints whose meaning is up to the game
+ *   (a square, a row and an amount, ...).  They must be at most
+ *   TranspositionTable.MAX_MOVE so the best move can be remembered.
+ *   A game with passes encodes a pass as a move of its own.
+ *
+ *   Scores are always from the point of view of the player to move
+ *   (negamax) and must stay strictly between -SearchEngine.INFINITY
+ *   and SearchEngine.INFINITY.
+ *
+ *   side, moveLimit and priority are only used to order the moves
+ *   (history and the static prior, see SearchEngine).
+ ***********************************************************/
+public interface Position {
+    /**
+     * The most moves generateMoves can write for this position or any
+     * position reached from it (the size of each ply of the move buffer).
+     **/
+    public int maxMoves();
+
+    /**
+     * Write the legal moves into moves[offset], moves[offset+1], ...
+     * @return The number of moves written (0 if the game is over)
+     **/
+    public int generateMoves(int[] moves, int offset);
+
+    /**
+     * Play a move (one returned by generateMoves) for the player to move.
+     **/
+    public void makeMove(int move);
+
+    /**
+     * Take back the last move made with makeMove.
+     **/
+    public void undoMove();
+
+    /**
+     * A 64-bit key identifying the position (well spread, e.g. Zobrist).
+     * Positions with the same key must have the same moves and scores.
+     **/
+    public long hash();
+
+    /**
+     * The score of the position for the player to move.  When the game
+     * is over this must be the final result (it is trusted at any depth).
+     **/
+    public int evaluate();
+
+    /**
+     * The player to move: 0 or 1 (the history heuristic is kept per player)
+     **/
+    public int side();
+
+    /**
+     * Every move is less than this (the size of the history tables)
+     **/
+    public int moveLimit();
+
+    /**
+     * How promising a move looks before searching it, from 0 (least)
+     * to 255 (e.g. Othello corners above the squares next to them).
+     * Return 0 for every move if the game has no such prior.
+     **/
+    public int priority(int move);
+}
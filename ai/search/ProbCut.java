@@ -0,0 +1,51 @@
+/*******************
+ * Christian A. Duncan
+ * Edited: Diego Holguin
+ * CSC350: Intelligent Systems
+ * Spring 2017
+ *
+ * AI Game Client
+ * This project is designed to support multiple game platforms to test
+ * AI-based solutions.
+ * See README file for more details.
+ ********************/
+
+package cad.ai.search;
+
+/***********************************************************
+ * Multi-ProbCut forward pruning for the SearchEngine (PVS only).
+ *   At a zero window node (alpha, alpha + 1) of the given depth the
+ *   engine runs each check, shallowest first: a shallow search of the
+ *   node with a zero window at highBound, and if that fails high so
+ *   (almost surely) would the deep search, so the node returns beta
+ *   without it.  Likewise a shallow search failing low at lowBound
+ *   returns alpha.  If no check cuts the node is searched as usual.
+ *
+ *   The parameters are up to the game (see OthelloProbCut): how a
+ *   shallow score predicts a deep one depends on the evaluation.
+ ***********************************************************/
+public interface ProbCut {
+    /**
+     * The number of checks to try at a zero window node (0 = none),
+     * e.g. none when alpha is already a won or lost game.
+     **/
+    public int checks(Position position, int depth, int alpha);
+
+    /**
+     * The depth of the shallow search of a check (checks that are not
+     * between 1 and depth - 1 are skipped)
+     **/
+    public int shallow(Position position, int depth, int check);
+
+    /**
+     * A shallow score at or above this predicts the deep search fails
+     * high at beta (SearchEngine.INFINITY to skip this half of the check)
+     **/
+    public int highBound(Position position, int depth, int check, int beta);
+
+    /**
+     * A shallow score at or below this predicts the deep search fails
+     * low at alpha (-SearchEngine.INFINITY to skip this half of the check)
+     **/
+    public int lowBound(Position position, int depth, int check, int alpha);
+}
@@ -0,0 +1,502 @@
+/*******************
+ * Christian A. Duncan
+ * Edited: Diego Holguin
+ * CSC350: Intelligent Systems
+ * Spring 2017
+ *
+ * AI Game Client
+ * This project is designed to support multiple game platforms to test
+ * AI-based solutions.
+ * See README file for more details.
+ ********************/
+
+package cad.ai.search;
+
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+
+/***********************************************************
+ * A game-agnostic game tree search for any Position.
+ *   Iterative deepening negamax with a transposition table, by one
+ *   of two algorithms (to compare node counts):
+ *     ALPHA_BETA - plain alpha-beta, full windows everywhere
+ *     PVS        - principal variation search (NegaScout): every move
+ *                  after the first is searched with a zero window and
+ *                  only re-searched if it turns out better; each
+ *                  iteration starts with an aspiration window around
+ *                  the last score (optionally with Multi-ProbCut, see
+ *                  ProbCut)
+ *
+ *   The moves of a position are sorted by (best first):
+ *     - TT_MOVE:  the best move the transposition table remembers
+ *     - KILLERS:  moves that caused a cutoff at the same ply elsewhere
+ *     - PRIORITY: the position's static prior (Position.priority)
+ *     - HISTORY:  how often (and how deep) a move caused cutoffs so far
+ *   Each heuristic can be switched off (0 keeps the generated order).
+ *   The engine also counts how often a cutoff came from the first move
+ *   searched, which is the best measure of how well the ordering works.
+ *
+ *   The position is searched in place and the moves of every ply go
+ *   into one int buffer (ply * maxMoves onwards), so once the buffers
+ *   are big enough a search allocates nothing.  One engine is meant for
+ *   one thread, but several can search the same root at once (Lazy
+ *   SMP): each has its own Position and they share one
+ *   TranspositionTable, which is how helpers speed up the main search.
+ *   Helpers (id > 0) take the root moves in a different order, and odd
+ *   ids stay one ply ahead, so they don't all do the same work.
+ *
+ *   Use setup() to give it the root position, then call() it
+ *   (directly, or on an executor for a helper).  stop() makes it
+ *   finish as soon as possible.  search() does both, without a time
+ *   limit.
+ *
+ *   Used by OthelloAI (and the Othello book maker and ProbCut fitter)
+ *   and by TicTacToeTable to solve TicTacToe.
+ ***********************************************************/
+public class SearchEngine implements Callable<Integer> {
+    public static enum Algorithm { ALPHA_BETA, PVS };
+
+    // The move ordering heuristics (combine with |)
+    public static final int TT_MOVE = 1;
+    public static final int KILLERS = 2;
+    public static final int HISTORY = 4;
+    public static final int PRIORITY = 8;
+    public static final int ALL = TT_MOVE | KILLERS | HISTORY | PRIORITY;
+
+    public static final int INFINITY = 1 << 30;   // Bigger than any score
+    public static final int DEFAULT_TABLE_BITS = 16;
+    public static final int DEFAULT_ASPIRATION = 16;  // Half width of the first aspiration window
+    private static final int CHECK_INTERVAL = 1023;   // Look at the clock every 1024 nodes
+    private static final int HISTORY_LIMIT = (1 << 22) - 1;
+    private static final int NO_CUT = Integer.MIN_VALUE;  // ProbCut found nothing to cut
+
+    private final int id;                // 0 is the main search, the rest are helpers
+    private TranspositionTable table;    // May be shared by several engines
+    private Algorithm algorithm = Algorithm.PVS;
+    private int heuristics = ALL;        // Move ordering heuristics in use
+    private ProbCut probCut;             // Forward pruning for PVS (null = exact search)
+    private int aspiration = DEFAULT_ASPIRATION;
+
+    private Position position;           // The position being searched
+    private int lastDepth;               // Deepest iteration to search
+    private int stride;                  // maxMoves of the position being searched
+    private int[] rootMoves = new int[0]; // The root moves (best first after each iteration)
+    private int rootCount;
+    private int[] moves = new int[0];    // The moves of ply p are at p * stride onwards
+    private int[] keys = new int[0];     // ... and their ordering keys
+    private int[] killers = new int[0];  // The last two moves to cause a cutoff at each ply
+    private int[][] history = new int[2][0];  // Cutoffs of each move, per player
+
+    private volatile long start;         // System.nanoTime() when the search started
+    private volatile long budget;        // How long the search may take (ns)
+    private volatile long deadline;      // System.nanoTime() when the current iteration must stop
+    private volatile boolean stopRequested; // Set by another thread to end the search
+    private boolean aborted;             // Did the current iteration run out of time?
+    private long nodes;                  // Nodes visited in this search
+    private long cutNodes;               // Nodes that had a cutoff
+    private long firstMoveCuts;          // ... where it was the first move searched
+    private int bestMove = TranspositionTable.NO_MOVE;  // Best root move of the last finished iteration
+    private int bestScore = 0;           // ... its score (for the player to move at the root)
+    private volatile int bestDepth;      // ... and the depth of that iteration (read by setTimeLimit)
+    private int iterationBest;           // Index of the best root move found by searchRoot
+    private int iterationScore;          // ... and its score
+    private int[] depthScores = new int[1];  // The score of each finished iteration
+
+    public SearchEngine() { this(DEFAULT_TABLE_BITS); }
+
+    /**
+     * An engine with its own table of 2^bits slots
+     **/
+    public SearchEngine(int bits)
+    {
+        this(new TranspositionTable(bits, TranspositionTable.Replacement.DEPTH_AND_AGE));
+    }
+
+    /**
+     * An engine using the given table (e.g. one shared with other searches)
+     **/
+    public SearchEngine(TranspositionTable table) { this(table, 0); }
+
+    /**
+     * One of several engines searching the same root (Lazy SMP).
+     * id - 0 for the main search, 1, 2, ... for the helpers
+     **/
+    public SearchEngine(TranspositionTable table, int id)
+    {
+        this.table = table;
+        this.id = id;
+    }
+
+    public TranspositionTable getTable() { return table; }
+    public void setTable(TranspositionTable table) { this.table = table; }
+
+    /** Forget every position searched (e.g. a new game) **/
+    public void clear() { table.clear(); }
+
+    public void setAlgorithm(Algorithm algorithm) { this.algorithm = algorithm; }
+    public Algorithm getAlgorithm() { return algorithm; }
+
+    /** Which move ordering heuristics to use, e.g. ALL or 0 for none **/
+    public void setMoveOrdering(int heuristics) { this.heuristics = heuristics; }
+    public int getMoveOrdering() { return heuristics; }
+
+    /** Prune PVS nodes with these Multi-ProbCut parameters (null = exact search) **/
+    public void setProbCut(ProbCut probCut) { this.probCut = probCut; }
+    public ProbCut getProbCut() { return probCut; }
+
+    /** Half width of the first aspiration window (0 = full windows) **/
+    public void setAspiration(int aspiration) { this.aspiration = aspiration; }
+    public int getAspiration() { return aspiration; }
+
+    /**
+     * Search the position to the given depth (iterative deepening from
+     * 1) with no time limit.  The position is left as it was.
+     * @return The best move, or TranspositionTable.NO_MOVE if the game is over
+     **/
+    public int search(Position position, int maxDepth)
+    {
+        table.newSearch();
+        setup(position, maxDepth, System.nanoTime(), Long.MAX_VALUE / 4);
+        call();
+        return bestMove;
+    }
+
+    /**
+     * Get ready to search a root position.
+     * position  - The position (searched in place - one per engine)
+     * lastDepth - The deepest iteration to search
+     * start     - System.nanoTime() when the search started
+     * budget    - How long the search may take (ns)
+     **/
+    public void setup(Position position, int lastDepth, long start, long budget)
+    {
+        this.position = position;
+        this.lastDepth = lastDepth;
+        this.start = start;
+        this.budget = budget;
+        stride = Math.max(1, position.maxMoves());
+        if (moves.length < (lastDepth + 1) * stride)
+        {
+            moves = new int[(lastDepth + 1) * stride];
+            keys = new int[moves.length];
+        }
+        if (killers.length < 2 * (lastDepth + 1)) killers = new int[2 * (lastDepth + 1)];
+        Arrays.fill(killers, TranspositionTable.NO_MOVE);
+        if (depthScores.length < lastDepth + 1) depthScores = new int[lastDepth + 1];
+
+        // Older searches count for less in the history (and another game's not at all)
+        int limit = position.moveLimit();
+        for (int p = 0; p < 2; p++)
+            if (history[p].length != limit) history[p] = new int[limit];
+            else for (int m = 0; m < limit; m++) history[p][m] >>= 1;
+
+        stopRequested = false;
+        aborted = false;
+        nodes = 0;
+        cutNodes = 0;
+        firstMoveCuts = 0;
+        bestScore = 0;
+        bestDepth = 0;
+
+        // The root moves, best looking first, then rotated for the helpers
+        long entry = table.probe(position.hash());
+        rootCount = position.generateMoves(moves, 0);
+        if (rootCount == 0)
+        {
+            bestMove = TranspositionTable.NO_MOVE;
+            bestScore = position.evaluate();
+            return;
+        }
+        order(0, rootCount, (entry == 0) ? TranspositionTable.NO_MOVE : TranspositionTable.move(entry), 0);
+        if (rootMoves.length < stride) rootMoves = new int[stride];
+        for (int i = 0; i < rootCount; i++) rootMoves[i] = moves[(i + id) % rootCount];
+        bestMove = rootMoves[0];
+    }
+
+    /** Ask the search to finish (from another thread) **/
+    public void stop() { stopRequested = true; }
+
+    /**
+     * Give a running search a new time limit (from another thread),
+     * e.g. when a ponder search turns into the real one.
+     * start  - System.nanoTime() the limit counts from
+     * budget - How long the search may take from then (ns)
+     **/
+    public void setTimeLimit(long start, long budget)
+    {
+        this.start = start;
+        this.budget = budget;
+        if (id != 0 || bestDepth > 0) deadline = start + budget;  // The main search always finishes depth 1
+    }
+
+    /** Results of the last finished iteration **/
+    public int getBestMove() { return bestMove; }
+    public int getBestScore() { return bestScore; }
+    public int getBestDepth() { return bestDepth; }
+
+    /** The score of the iteration at this depth (only valid up to getBestDepth) **/
+    public int getScoreAt(int depth) { return depthScores[depth]; }
+
+    /** Counters of the last search **/
+    public long getNodes() { return nodes; }
+    public long getCutNodes() { return cutNodes; }
+    public long getFirstMoveCuts() { return firstMoveCuts; }
+
+    /**
+     * Iterative deepening: search depth 1, 2, 3, ... until the last depth,
+     * time runs out or stop() is called.  The main search (id 0) always
+     * finishes depth 1 and does not start an iteration it has little
+     * chance to finish.  Helpers with an odd id stay one ply ahead of
+     * the main search.
+     **/
+    public Integer call()
+    {
+        deadline = (id == 0) ? Long.MAX_VALUE : start + budget;
+        for (int depth = 1 + (id & 1); depth <= lastDepth && rootCount > 0; depth++)
+        {
+            if (algorithm == Algorithm.PVS && aspiration > 0 && bestDepth > 0)
+            {
+                // Aspiration: guess the score is near the last one, widen the window if it isn't
+                int delta = aspiration;
+                int alpha = Math.max(-INFINITY, bestScore - delta), beta = Math.min(INFINITY, bestScore + delta);
+                while (true)
+                {
+                    searchRoot(depth, alpha, beta);
+                    if (aborted) break;
+                    if (iterationScore <= alpha && alpha > -INFINITY) alpha = Math.max(-INFINITY, alpha - delta);
+                    else if (iterationScore >= beta && beta < INFINITY) beta = Math.min(INFINITY, beta + delta);
+                    else break;
+                    delta *= 2;
+                }
+            }
+            else searchRoot(depth, -INFINITY, INFINITY);
+            if (aborted) break;
+
+            // Search the best move first next time
+            bestMove = rootMoves[iterationBest];
+            bestScore = iterationScore;
+            bestDepth = depth;
+            depthScores[depth] = bestScore;
+            System.arraycopy(rootMoves, 0, rootMoves, 1, iterationBest);
+            rootMoves[0] = bestMove;
+
+            // Stop if the next (longer) iteration has little chance to finish
+            deadline = start + budget;
+            if (id == 0 && System.nanoTime() - start > budget / 2) break;
+            if (stopRequested) break;
+        }
+        return 0;
+    }
+
+    /******************************************************
+    * Search all the root moves to the given depth (within the
+    * window).  The result is left in iterationBest/iterationScore.
+    *******************************************************/
+    private void searchRoot(int depth, int alpha, int beta)
+    {
+        int alpha0 = alpha;
+        iterationBest = -1;
+        iterationScore = -INFINITY - 1;
+        for (int i = 0; i < rootCount; i++)
+        {
+            position.makeMove(rootMoves[i]);
+            int score;
+            if (algorithm == Algorithm.ALPHA_BETA || i == 0)
+                score = -negamax(-beta, -alpha, depth - 1, 1);
+            else
+            {
+                // Just prove the move is no better, unless it turns out it is
+                score = -negamax(-alpha - 1, -alpha, depth - 1, 1);
+                if (score > alpha && score < beta && !aborted) score = -negamax(-beta, -alpha, depth - 1, 1);
+            }
+            position.undoMove();
+            if (aborted) return;
+
+            if (score > iterationScore)
+            {
+                iterationBest = i;
+                iterationScore = score;
+
+                if (iterationScore > alpha) alpha = iterationScore;
+                if (alpha >= beta) break;
+            }
+        }
+
+        int bound = (iterationScore >= beta) ? TranspositionTable.LOWER : (iterationScore <= alpha0) ? TranspositionTable.UPPER : TranspositionTable.EXACT;
+        table.store(position.hash(), depth, bound, iterationScore, rootMoves[iterationBest]);
+    }
+
+    /******************************************************
+    * Count a node and see if time has run out (only looking
+    * at the clock every so often since it is not free).
+    * Returns true if the search should stop.
+    *******************************************************/
+    private boolean outOfTime()
+    {
+        if ((++nodes & CHECK_INTERVAL) == 0 && (stopRequested || System.nanoTime() > deadline)) aborted = true;
+        return aborted;
+    }
+
+    /******************************************************
+    * Negamax search of the position (scores from the mover's
+    * point of view).  The move that led here has already been made.
+    * _ply - Distance from the root
+    *******************************************************/
+    private int negamax(int _alpha, int _beta, int _depth, int _ply)
+    {
+        if (outOfTime()) return 0;
+        if (_depth <= 0) return position.evaluate();
+
+        // Maybe we have already searched this position (deep enough)
+        long key = position.hash();
+        long entry = table.probe(key);
+        int tableMove = TranspositionTable.NO_MOVE;
+        if (entry != 0)
+        {
+            tableMove = TranspositionTable.move(entry);
+            if (TranspositionTable.depth(entry) >= _depth)
+            {
+                int score = TranspositionTable.score(entry);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.EXACT || (bound == TranspositionTable.LOWER && score >= _beta) || (bound == TranspositionTable.UPPER && score <= _alpha)) return score;
+            }
+        }
+
+        // Maybe shallow searches show a deep one would (almost surely) fail high or low
+        if (probCut != null && algorithm == Algorithm.PVS && _beta == _alpha + 1)
+        {
+            int score = probCut(_alpha, _beta, _depth, _ply);
+            if (score != NO_CUT) return score;
+        }
+
+        int base = _ply * stride;
+        int n = position.generateMoves(moves, base);
+        if (n == 0)
+        {
+            // Game over - the score is final whatever the depth
+            int score = position.evaluate();
+            table.store(key, TranspositionTable.MAX_DEPTH, TranspositionTable.EXACT, score, TranspositionTable.NO_MOVE);
+            return score;
+        }
+        order(base, n, tableMove, _ply);
+
+        // PVS: the first move with the full window, the rest with a zero window (re-searched if better)
+        int alpha0 = _alpha;
+        int best = -INFINITY - 1;
+        int bestHere = TranspositionTable.NO_MOVE;
+        for (int i = 0; i < n; i++)
+        {
+            int move = moves[base + i];
+            position.makeMove(move);
+            int score;
+            if (algorithm == Algorithm.ALPHA_BETA || i == 0) score = -negamax(-_beta, -_alpha, _depth - 1, _ply + 1);
+            else
+            {
+                score = -negamax(-_alpha - 1, -_alpha, _depth - 1, _ply + 1);
+                if (score > _alpha && score < _beta && !aborted) score = -negamax(-_beta, -_alpha, _depth - 1, _ply + 1);
+            }
+            position.undoMove();
+            if (aborted) return 0;  // Out of time - the result is no good (and must not be stored)
+            if (score > best)
+            {
+                best = score;
+                bestHere = move;
+
+                if (best >= _beta)
+                {
+                    cutoff(_ply, move, _depth, i);
+                    break;
+                }
+
+                if (best > _alpha) _alpha = best;
+            }
+        }
+
+        int bound = (best >= _beta) ? TranspositionTable.LOWER : (best <= alpha0) ? TranspositionTable.UPPER : TranspositionTable.EXACT;
+        table.store(key, _depth, bound, best, bestHere);
+        return best;
+    }
+
+    /******************************************************
+    * Multi-ProbCut at a zero window node of negamax: for each check
+    * (shallowest first) search the node to the check's depth with
+    * zero windows around the scores that predict the deep search
+    * failing high or low.
+    * Returns the bound to cut with, or NO_CUT to search normally.
+    *******************************************************/
+    private int probCut(int _alpha, int _beta, int _depth, int _ply)
+    {
+        int n = probCut.checks(position, _depth, _alpha);
+        for (int i = 0; i < n; i++)
+        {
+            int shallow = probCut.shallow(position, _depth, i);
+            if (shallow < 1 || shallow >= _depth) continue;
+
+            int bound = probCut.highBound(position, _depth, i, _beta);
+            if (bound < INFINITY && negamax(bound - 1, bound, shallow, _ply) >= bound) return aborted ? 0 : _beta;
+            if (aborted) return 0;
+
+            bound = probCut.lowBound(position, _depth, i, _alpha);
+            if (bound > -INFINITY && negamax(bound, bound + 1, shallow, _ply) <= bound) return aborted ? 0 : _alpha;
+            if (aborted) return 0;
+        }
+        return NO_CUT;
+    }
+
+    /**
+     * Sort the n moves at moves[base] (best first, see the heuristics).
+     * tableMove - The transposition table's best move (or NO_MOVE)
+     * ply       - Distance from the root
+     **/
+    private void order(int base, int n, int tableMove, int ply)
+    {
+        if (heuristics == 0) return;
+        int killer0 = killers[2 * ply], killer1 = killers[2 * ply + 1];
+        int[] hist = history[position.side()];
+        for (int j = 0; j < n; j++)
+        {
+            int move = moves[base + j];
+            int key = 0;
+            if ((heuristics & TT_MOVE) != 0 && move == tableMove) key = Integer.MAX_VALUE;
+            else if ((heuristics & KILLERS) != 0 && move == killer0) key = Integer.MAX_VALUE - 1;
+            else if ((heuristics & KILLERS) != 0 && move == killer1) key = Integer.MAX_VALUE - 2;
+            else
+            {
+                if ((heuristics & PRIORITY) != 0) key = position.priority(move) << 22;
+                if ((heuristics & HISTORY) != 0) key += hist[move];
+            }
+
+            // Insertion sort as we go (stable, so ties keep the generated order)
+            int i = base + j;
+            while (i > base && keys[i - 1] < key)
+            {
+                moves[i] = moves[i - 1];
+                keys[i] = keys[i - 1];
+                i--;
+            }
+            moves[i] = move;
+            keys[i] = key;
+        }
+    }
+
+    /**
+     * A move caused a cutoff: remember it as a killer and in the history.
+     * depth - Depth remaining at the node
+     * index - Where the move was in the order (0 = first)
+     **/
+    private void cutoff(int ply, int move, int depth, int index)
+    {
+        cutNodes++;
+        if (index == 0) firstMoveCuts++;
+
+        if (killers[2 * ply] != move)
+        {
+            killers[2 * ply + 1] = killers[2 * ply];
+            killers[2 * ply] = move;
+        }
+
+        int[] hist = history[position.side()];
+        int h = hist[move] + depth * depth;
+        hist[move] = (h > HISTORY_LIMIT) ? HISTORY_LIMIT : h;
+    }
+}
@@ -0,0 +1,140 @@
+/*******************
+ * Christian A. Duncan
+ * Edited: Diego Holguin
+ * CSC350: Intelligent Systems
+ * Spring 2017
+ *
+ * AI Game Client
+ * This project is designed to link to a basic Game Server to test
+ * AI-based solutions.
+ * See README file for more details.
+ ********************/
+
+package cad.ai.search;
+
+import java.util.Arrays;
+
+/***********************************************************
+ * A fixed-size transposition table for game tree searches.
+ *   Positions are identified by a 64-bit (Zobrist) key.  Each slot
+ *   remembers the depth searched, what kind of bound the score is,
+ *   the score itself and the best move found.  The table has a
+ *   power-of-two number of slots and one entry per slot; when two
+ *   positions want the same slot the Replacement policy decides.
+ *
+ *   Entries are packed into a single long so a probe allocates nothing:
+ *     bits  0-31  score (signed)
+ *     bits 32-47  best move + 1 (0 = no move known)
+ *     bits 48-54  depth (MAX_DEPTH = the score is final)
+ *     bits 55-56  bound (EXACT, LOWER, UPPER)
+ *     bits 57-62  age (the search that stored it)
+ *     bit  63     set for every stored entry (so 0 means "nothing found")
+ *
+ *   Moves are whatever ints the game uses for them (0 to MAX_MOVE), so
+ *   the table serves the Othello searches and the game-agnostic
+ *   SearchEngine alike.
+ *
+ *   The table can be shared by several search threads without locks.
+ *   The key is stored xor'ed with the entry, so if two threads write a
+ *   slot at the same time and the key and entry get mixed up, the probe
+ *   simply doesn't match (and the worst that happens is a lost entry).
+ ***********************************************************/
+public class TranspositionTable {
+    /** How to decide if a new entry replaces the one already in its slot **/
+    public static enum Replacement {
+	ALWAYS,           // Newest entry always wins
+	DEPTH,            // Keep the deeper entry (ties go to the new one)
+	DEPTH_AND_AGE     // Keep the deeper entry unless it is from an older search
+    };
+
+    public static final int EXACT = 0;  // Score is exact
+    public static final int LOWER = 1;  // Score is a lower bound (search failed high)
+    public static final int UPPER = 2;  // Score is an upper bound (search failed low)
+    public static final int NO_MOVE = -1;
+    public static final int MAX_MOVE = 0xfffe;   // Largest move that can be stored
+    public static final int MAX_DEPTH = 0x7f;    // Deepest depth that can be stored
+
+    private static final long USED = 1L << 63;
+
+    private final long[] keys;
+    private final long[] data;
+    private final int mask;
+    private Replacement replacement;
+    private int age = 0;
+
+    /**
+     * Create a table with 2^bits slots.
+     **/
+    public TranspositionTable(int bits, Replacement replacement) {
+	if (bits < 1 || bits > 30)
+	    throw new IllegalArgumentException("Transposition table size must be 2^1 to 2^30 slots: " + bits);
+	this.keys = new long[1 << bits];
+	this.data = new long[1 << bits];
+	this.mask = (1 << bits) - 1;
+	this.replacement = replacement;
+    }
+
+    public int size() { return keys.length; }
+    public Replacement getReplacement() { return replacement; }
+    public void setReplacement(Replacement r) { this.replacement = r; }
+
+    /**
+     * Start a new search.  Entries stored before now are considered "old"
+     * (they are still used, but DEPTH_AND_AGE lets new entries replace them).
+     **/
+    public void newSearch() { age = (age + 1) & 0x3f; }
+
+    /**
+     * Forget everything (e.g. a new game with a new board).
+     **/
+    public void clear() {
+	Arrays.fill(keys, 0);
+	Arrays.fill(data, 0);
+    }
+
+    /**
+     * Look up a position.
+     * @return The packed entry, or 0 if the position is not in the table.
+     *         Use the static depth/bound/score/move methods to unpack it.
+     **/
+    public long probe(long key) {
+	int i = (int) key & mask;
+	long entry = data[i];
+	return (keys[i] ^ entry) == key ? entry : 0;
+    }
+
+    /**
+     * Store the result of searching a position (subject to the replacement policy).
+     **/
+    public void store(long key, int depth, int bound, int score, int move) {
+	int i = (int) key & mask;
+	long old = data[i];
+	if (old != 0 && (keys[i] ^ old) != key) {
+	    switch (replacement) {
+	    case DEPTH:
+		if (depth(old) > depth) return;
+		break;
+	    case DEPTH_AND_AGE:
+		if (age(old) == age && depth(old) > depth) return;
+		break;
+	    default:
+		break;
+	    }
+	}
+	long entry = USED
+	    | ((long) age << 57)
+	    | ((long) bound << 55)
+	    | ((long) Math.min(depth, MAX_DEPTH) << 48)
+	    | ((long) ((move + 1) & 0xffff) << 32)
+	    | (score & 0xffffffffL);
+	keys[i] = key ^ entry;
+	data[i] = entry;
+    }
+
+    /** Unpack the various parts of an entry returned by probe **/
+    public static int score(long entry) { return (int) entry; }
+    public static int move(long entry) { return (int) ((entry >>> 32) & 0xffff) - 1; }
+    public static int depth(long entry) { return (int) ((entry >>> 48) & 0x7f); }
+    public static int bound(long entry) { return (int) ((entry >>> 55) & 0x3); }
+    private static int age(long entry) { return (int) ((entry >>> 57) & 0x3f); }
+}
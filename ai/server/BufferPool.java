@@ -0,0 +1,52 @@
+/*******************
+ * Christian A. Duncan
+ * CSC350: Intelligent Systems
+ * Spring 2017
+ *
+ * AI Game Server Project
+ * This project is designed to support multiple game platforms to test
+ * AI-based solutions.
+ * See README file for more details.
+ ********************/
+
+package cad.ai.server;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+/***********************************************************
+ * A pool of equally sized direct ByteBuffers.
+ *   Direct buffers are expensive to allocate (and free), so connections
+ *   borrow them while they have output waiting and give them back once
+ *   it is sent.  At most "keep" free buffers are held on to.
+ ***********************************************************/
+public class BufferPool {
+    public static final int DEFAULT_BUFFER_SIZE = 8192;
+    public static final int DEFAULT_KEEP = 1024;
+
+    private final int bufferSize;
+    private final int keep;
+    private final ArrayDeque<ByteBuffer> free = new ArrayDeque<ByteBuffer>();
+
+    public BufferPool() { this(DEFAULT_BUFFER_SIZE, DEFAULT_KEEP); }
+
+    public BufferPool(int bufferSize, int keep) {
+	this.bufferSize = bufferSize;
+	this.keep = keep;
+    }
+
+    public int getBufferSize() { return bufferSize; }
+
+    /** An empty buffer **/
+    public synchronized ByteBuffer get() {
+	ByteBuffer b = free.pollFirst();
+	if (b == null) return ByteBuffer.allocateDirect(bufferSize);
+	b.clear();
+	return b;
+    }
+
+    /** Give a buffer back (it must not be used afterwards) **/
+    public synchronized void put(ByteBuffer b) {
+	if (free.size() < keep) free.addFirst(b);
+    }
+}
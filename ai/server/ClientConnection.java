@@ -11,143 +11,264 @@
 
 package cad.ai.server;
 
-import java.net.Socket;
-import java.net.SocketTimeoutException;
-import java.io.PrintWriter;
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayDeque;
+import java.util.Arrays;
 import java.util.Deque;
-import java.util.concurrent.Callable;
+import java.util.concurrent.locks.ReentrantLock;
 
 /************************************************************
  * The ClientConnection represents a single connection to a client.
  * It primarily acts as the communication.  Passing information to client
  * and processing responses.
+ *   The bytes the client sends are split into lines, each a command
+ *   processed as soon as it is complete, and posted messages are
+ *   written straight to the socket.  Who reads depends on the ServerMode:
+ *     NIO:     the connection has no thread of its own.  The
+ *              ConnectionSelector hands it what the (non-blocking)
+ *              socket received, and output the socket does not take at
+ *              once waits in pooled buffers for the selector to send.
+ *     VIRTUAL: serve() runs on a thread of its own, blocking on the socket.
+ *   The output lock is a ReentrantLock rather than synchronized so a
+ *   virtual thread blocked writing does not hold on to its carrier.
  ***********************************************************/
-public class ClientConnection implements Callable<Integer> {
-    private PrintWriter out = null;   // TO the client
-    private BufferedReader in = null;  // FROM the client
-    private Socket sock = null;        // The client socket itself
-    private Player player = null;           // The player
-    private Deque<String> messages;    // Messages to transmit to client
+public class ClientConnection {
+    public static final int MAX_LINE = 1 << 16;       // Longest command accepted (bytes)
+    public static final int MAX_PENDING = 1 << 20;    // Most output waiting for a slow client (bytes)
+
+    private volatile SocketChannel channel = null;   // The client socket itself (null once closed)
+    private final SelectionKey key;          // Its registration with the selector (null if blocking)
+    private final ConnectionSelector selector;   // (null if blocking)
+    private final BufferPool pool;           // Where output buffers come from
+    private final String address;            // Where the client is (for debugging)
+    private volatile Player player = null;  // The player
+    private final ReentrantLock lock = new ReentrantLock();  // Guards the output (and closing)
+    private final Deque<ByteBuffer> output = new ArrayDeque<ByteBuffer>();  // Messages to transmit to client (being filled)
+    private int pending = 0;                 // Bytes in output
+    private byte[] line = new byte[128];     // The command being received
+    private int lineLength = 0;
     private GameServer server = null;  // The game server
     
-    ClientConnection(Socket sock, GameServer server) throws IOException {
-	this.sock = sock;
-	this.server = server;
-	this.out = new PrintWriter(sock.getOutputStream());
-	this.in = new BufferedReader(new InputStreamReader(sock.getInputStream()));
-	this.messages = new ArrayDeque<String>();
+    /**
+     * A connection served by a ConnectionSelector (non-blocking channel)
+     **/
+    ClientConnection(SocketChannel channel, SelectionKey key, ConnectionSelector selector, GameServer server) throws IOException {
+	this(channel, key, selector, selector.getPool(), server);
     }
 
     /**
-     * Returns a "unique" id for this client connection... for debugging mainly.
+     * A connection served by its own thread (blocking channel, see serve)
      **/
-    private int getID() {
-	return sock.getLocalPort();
+    ClientConnection(SocketChannel channel, BufferPool pool, GameServer server) throws IOException {
+	this(channel, null, null, pool, server);
+    }
+
+    private ClientConnection(SocketChannel channel, SelectionKey key, ConnectionSelector selector,
+			     BufferPool pool, GameServer server) throws IOException {
+	this.channel = channel;
+	this.key = key;
+	this.selector = selector;
+	this.pool = pool;
+	this.server = server;
+	this.address = String.valueOf(channel.getRemoteAddress());
+	debug("Running...");
     }
 
     /**
      * Returns a "unique" header string - for debugging mainly.
      **/
     private String header() {
-	return "Client (" +
-	    sock.getInetAddress() + ":" + sock.getPort() + "): ";
+	return "Client (" + address + "): ";
     }
 
-    synchronized private void debug(String message) {
+    private void debug(String message) {
 	System.out.println("DEBUG: " + header() + message);
     }
     
     /**
-     * Run the thread.
-     *    This simply reports and processes client communication.
+     * Serve a blocking connection: read and process commands until the client goes away
      **/
-    public Integer call() {
-	debug("Running...");
-	while (in != null && out != null) {
+    public void serve() {
+	ByteBuffer input = pool.get();
+	try {
+	    while (channel != null) readable(input);
+	} finally {
+	    pool.put(input);
+	}
+    }
+
+    /**
+     * Close the connection
+     **/
+    public void close() {
+	lock.lock();
+	try {
+	    if (channel == null) return;
 	    try {
-		processInput();
-		transmitMessages();
-		Thread.sleep(100);  // Can't run super fast!
-	    }
-	    catch (InterruptedException e) { }
-	    catch (IOException e) {
-		debug("I/O Exception: Ending connection. " + e.getMessage());
-		close();
+		if (key != null) key.cancel();
+		channel.close();
+	    } catch (IOException e) {
+		debug("Error trying to close client connection: " + e.getMessage());
+	    } finally {
+		channel = null;
+		while (!output.isEmpty()) pool.put(output.removeFirst());
+		pending = 0;
 	    }
+	} finally {
+	    lock.unlock();
 	}
-	return new Integer(0);  // All is well...
+	// Not holding the lock: players and matches may be posting to us
+	Player p = player;
+	if (p != null && p.getConnection() == this) p.setConnection(null);
+	server.removeConnection(this);
     }
 
     /**
-     * Close the connection (can also be used to stop the thread)
+     * Post a message to be transmitted to the Client (sent right away if the socket takes it)
      **/
-    public synchronized void close() {
+    public void postMessage(String message) {
+	if (!send(message.getBytes(StandardCharsets.UTF_8))) close();
+    }
+
+    /**
+     * Post a message to be transmitted to the Client (sent right away if the socket takes it)
+     * This also appends a new line to end of message.
+     **/
+    public void postMessageLn(String message) {
+	postMessage(message + "\n");
+    }
+
+    /**
+     * Queue the bytes and send as much as possible.
+     * @return false if the client is not keeping up (or the socket failed)
+     **/
+    private boolean send(byte[] bytes) {
+	lock.lock();
 	try {
-	    if (player != null && player.getConnection() == this) player.setConnection(null);
-	    if (in != null) in.close();
-	    if (out != null) out.close();
-	    if (sock != null) sock.close();
+	    if (channel == null) return true;  // Closed - nobody to tell
+	    if (pending + bytes.length > MAX_PENDING) {
+		debug("Client is not reading its messages: Ending connection.");
+		return false;
+	    }
+	    for (int off = 0; off < bytes.length; ) {
+		ByteBuffer tail = output.peekLast();
+		if (tail == null || !tail.hasRemaining()) output.addLast(tail = pool.get());
+		int n = Math.min(tail.remaining(), bytes.length - off);
+		tail.put(bytes, off, n);
+		off += n;
+	    }
+	    pending += bytes.length;
+	    if (!flush()) selector.writeLater(this);  // Only a non-blocking socket stops short
+	    return true;
 	} catch (IOException e) {
-	    debug("Error trying to close client connection: " + e.getMessage());
+	    debug("I/O Exception: Ending connection. " + e.getMessage());
+	    return false;
 	} finally {
-	    in = null; out = null; sock = null;
-	}		
+	    lock.unlock();
+	}
     }
 
     /**
-     * Post a message to be transmitted to the Client (done next chance by Client Thread)
+     * Transmit (all) messages in the Queue that the socket takes.  (Lock held)
+     * @return true if everything was sent
      **/
-    public synchronized void postMessage(String message) {
-	messages.addLast(message);   // Store the message in the messages Queue.
+    private boolean flush() throws IOException {
+	while (!output.isEmpty()) {
+	    ByteBuffer b = output.peekFirst();
+	    b.flip();
+	    pending -= channel.write(b);
+	    if (b.hasRemaining()) {
+		b.compact();  // Socket is full - keep the rest (and keep filling after it)
+		return false;
+	    }
+	    output.removeFirst();
+	    pool.put(b);
+	}
+	return true;
     }
 
     /**
-     * Post a message to be transmitted to the Client (done next chance by Client Thread)
-     * This also appends a new line to end of message.
+     * Called by the selector: start waiting for the socket to take more output
      **/
-    public synchronized void postMessageLn(String message) {
-	messages.addLast(message + "\n");   // Store the message in the messages Queue.
+    void watchWrites() {
+	lock.lock();
+	try {
+	    if (channel != null && key.isValid() && !output.isEmpty())
+		key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+	} finally {
+	    lock.unlock();
+	}
     }
 
     /**
-     * Transmit (all) messages in the Queue.
+     * Called by the selector: the socket takes more output
      **/
-    private synchronized void transmitMessages() throws IOException {
-	while (!messages.isEmpty()) {
-	    String m = messages.removeFirst();
-	    out.print(m);
+    void writable() {
+	boolean failed = false;
+	lock.lock();
+	try {
+	    if (channel == null) return;
+	    if (flush()) key.interestOps(SelectionKey.OP_READ);
+	} catch (IOException e) {
+	    debug("I/O Exception: Ending connection. " + e.getMessage());
+	    failed = true;
+	} finally {
+	    lock.unlock();
 	}
-	out.flush();
+	if (failed) close();
     }
-  
+
     /**
-     * Get and process the input on the input stream
+     * Read what the client sent (into the given buffer) and process every
+     * complete line.  Called by the selector when the socket is readable,
+     * or in a loop by serve (blocking until the client sends something).
      **/
-    private void processInput()	throws IOException {
-	if (!in.ready()) return;  // No input ready to process
-	
-	// We'll process only ONE action per frame - the rest are just QUEUED
-	// Of course, we could take all requests or just a few requests.
-	// This is to prevent some BOT from generating LOTS of action requests.
-	String message = in.readLine();
-
-	if (message == null) {
-	    // End of transmission
+    void readable(ByteBuffer input) {
+	SocketChannel ch = channel;
+	if (ch == null) return;  // Closed by another thread
+	try {
+	    input.clear();
+	    int n = ch.read(input);
+	    if (n < 0) {
+		// End of transmission
+		close();
+		return;
+	    }
+	    input.flip();
+	    while (input.hasRemaining()) {
+		byte b = input.get();
+		if (b == '\n') {
+		    String message = new String(line, 0, lineLength, StandardCharsets.UTF_8);
+		    lineLength = 0;
+		    processInput(message);
+		    if (channel == null) return;  // Closed while processing
+		} else if (b != '\r') {
+		    if (lineLength == MAX_LINE) {
+			debug("Command too long: Ending connection.");
+			close();
+			return;
+		    }
+		    if (lineLength == line.length) line = Arrays.copyOf(line, Math.min(2 * line.length, MAX_LINE));
+		    line[lineLength++] = b;
+		}
+	    }
+	} catch (IOException e) {
+	    debug("I/O Exception: Ending connection. " + e.getMessage());
 	    close();
-	} else {
-	    // A message was provided.  Process this input message
-	    processInput(message);
 	}
     }
 
     /**
      * Process the message provided.  Uses protocol described in ServerProtocol.txt
+     * (Only the thread reading the connection calls this, so it does not lock the connection:
+     * the handlers lock the server, tournaments and matches, which lock
+     * players and connections in turn.)
      **/
-    synchronized private void processInput(String message) {
+    private void processInput(String message) {
 	try {
 	    String[] pieces = message.split(":", 5);
 	    String command = pieces[0].toUpperCase();
@@ -262,7 +383,7 @@ public class ClientConnection implements Callable<Integer> {
     }
     
     /**
-     * Join a tournament with given ID (pieces[1])
+     * Join a tournament with given ID (pieces[2])
      **/
     private void joinTournament(String[] pieces) {
 	if (player == null) {
@@ -278,7 +399,7 @@ public class ClientConnection implements Callable<Integer> {
 	// Join a tournament
 	int id = -1;  // Negative IDs not allowed --- sentinel value.
 	if (pieces.length > 2) {
-	    id = Integer.parseInt(pieces[1]);
+	    id = Integer.parseInt(pieces[2]);  // @TOUR:JOIN:ID
 	}
 	
 	int tid = server.joinTournament(player, id);
@@ -0,0 +1,143 @@
+/*******************
+ * Christian A. Duncan
+ * CSC350: Intelligent Systems
+ * Spring 2017
+ *
+ * AI Game Server Project
+ * This project is designed to support multiple game platforms to test
+ * AI-based solutions.
+ * See README file for more details.
+ ********************/
+
+package cad.ai.server;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/***********************************************************
+ * The network side of the GameServer: one thread serving every client
+ * connection with a Selector over non-blocking SocketChannels.
+ *   - New connections are accepted and handed a ClientConnection.
+ *   - Incoming bytes are read into one (direct) buffer shared by all
+ *     connections and passed to the connection, which splits them into
+ *     lines and processes each command right away.
+ *   - Outgoing messages are written by whichever thread posts them (see
+ *     ClientConnection.postMessage); only when a client's socket is full
+ *     does the selector take over, writing the rest when it can.
+ *   So an idle client costs no thread and no buffer, and a message goes
+ *   out as soon as it is posted.
+ ***********************************************************/
+public class ConnectionSelector implements Runnable {
+    private final GameServer server;
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+    private final BufferPool pool = new BufferPool();
+    private final ByteBuffer input;    // Shared by all connections (only used by the selector thread)
+    private final ConcurrentLinkedQueue<ClientConnection> blocked;  // Connections with output the selector must finish
+    private volatile boolean quit = false;
+
+    public ConnectionSelector(GameServer server, int port) throws IOException {
+	this.server = server;
+	this.selector = Selector.open();
+	this.serverChannel = ServerSocketChannel.open();
+	serverChannel.socket().setReuseAddress(true);
+	serverChannel.bind(new InetSocketAddress(port), 1024);
+	serverChannel.configureBlocking(false);
+	serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+	this.input = ByteBuffer.allocateDirect(pool.getBufferSize());
+	this.blocked = new ConcurrentLinkedQueue<ClientConnection>();
+    }
+
+    /** The buffers connections borrow for their output **/
+    BufferPool getPool() { return pool; }
+
+    /** The port actually listened on **/
+    public int getPort() { return serverChannel.socket().getLocalPort(); }
+
+    /**
+     * A connection has output its socket would not take: have the
+     * selector write the rest when the socket is ready.  (Any thread)
+     **/
+    void writeLater(ClientConnection c) {
+	blocked.add(c);
+	selector.wakeup();
+    }
+
+    /** Stop serving (and close every connection) **/
+    public void terminate() {
+	quit = true;
+	selector.wakeup();
+    }
+
+    /**
+     * Serve the connections until terminated
+     **/
+    public void run() {
+	try {
+	    while (!quit) {
+		selector.select();
+
+		// Connections whose output is stuck now want to know when they can write
+		ClientConnection c;
+		while ((c = blocked.poll()) != null) c.watchWrites();
+
+		Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+		while (it.hasNext()) {
+		    SelectionKey key = it.next();
+		    it.remove();
+		    if (!key.isValid()) continue;
+		    if (key.isAcceptable()) accept();
+		    else {
+			c = (ClientConnection) key.attachment();
+			if (key.isReadable()) c.readable(input);
+			if (key.isValid() && key.isWritable()) c.writable();
+		    }
+		}
+	    }
+	} catch (IOException e) {
+	    System.err.println("ABORTING: Selector failed: " + e.getMessage());
+	} finally {
+	    for (SelectionKey key: selector.keys())
+		if (key.attachment() instanceof ClientConnection) ((ClientConnection) key.attachment()).close();
+	    try {
+		serverChannel.close();
+		selector.close();
+	    } catch (IOException e) { }
+	}
+    }
+
+    /**
+     * Accept every connection waiting
+     **/
+    private void accept() {
+	SocketChannel ch;
+	try {
+	    while ((ch = serverChannel.accept()) != null) {
+		try {
+		    ch.configureBlocking(false);
+		    ch.socket().setTcpNoDelay(true);   // Messages are small - send them now
+		    SelectionKey key = ch.register(selector, SelectionKey.OP_READ);
+		    ClientConnection c = new ClientConnection(ch, key, this, server);
+		    key.attach(c);
+		    if (!server.addConnection(c)) {
+			c.postMessageLn("@ERROR:Maximum number of clients reached.");
+			c.close();
+		    }
+		} catch (IOException e) {
+		    System.err.println("I/O Error: Terminating connection.");
+		    System.err.println("  Message: " + e.getMessage());
+		    ch.close();
+		}
+	    }
+	} catch (IOException e) {
+	    System.err.println("I/O Error accepting a connection: " + e.getMessage());
+	}
+    }
+}
@@ -11,16 +11,16 @@
 
 package cad.ai.server;
 
-import java.net.ServerSocket;
-import java.net.Socket;
-import java.net.SocketTimeoutException;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.concurrent.FutureTask;
-import java.util.concurrent.Executors;
 import java.util.concurrent.ExecutorService;
 import java.util.Iterator;
+import cad.ai.game.NimRule;
 
 /***********************************************************
  * The GameServer represents the main server for the entire 
@@ -32,23 +32,27 @@ public class GameServer {
     public static final int DEFAULT_MAX_CON = 30; // Default max number of connections for this server.
     public int maxConnections;                  // The maximum number of connections that the server will allow.
     public int port;                            // The port that this server listens on.
+    public ServerMode mode;                     // How connections, matches and tournaments are run
     private HashMap<Integer,Player> player;     // All the players connected to system
     private HashMap<Integer,RRTournament> tour; // Tournaments connected to system
-    private ArrayList<ClientConnection> conn;   // All client connections (paired with players)
-    private ServerSocket serverSocket;   // The socket that is bound to and listening for the server.
-    private ExecutorService executor;    // Used to create new threads
+    private HashSet<ClientConnection> conn;     // All client connections (paired with players)
+    private ConnectionSelector selector;  // Listens for and serves the client connections
+    private ExecutorService executor;    // Used to create new threads (for tournaments, their matches and blocking connections)
     
     /**
      * Default Constructor.
      *    Creates a connection and player list.
      */
-    public GameServer(int port, int mc) {
+    public GameServer(int port, int mc) { this(port, mc, ServerMode.NIO); }
+
+    public GameServer(int port, int mc, ServerMode mode) {
 	this.port = port;
 	this.maxConnections = mc;
-	conn = new ArrayList<ClientConnection>();
+	this.mode = mode;
+	conn = new HashSet<ClientConnection>();
 	player = new HashMap<Integer,Player>();
 	tour = new HashMap<Integer,RRTournament>();
-	executor = Executors.newCachedThreadPool();
+	executor = mode.newExecutor();
     }
 
     /**
@@ -63,9 +67,20 @@ public class GameServer {
 	case "TTT": g = new TTTFactory(); break;
 	case "OTHELLO_MINI": g = new OthelloFactory(4); break;
 	case "OTHELLO": g = new OthelloFactory(8); break;
-	default: return null;  // No game recognized...
+	default:
+	    // A Nim variant: NIM_1_2_3 takes 1, 2 or 3 sticks at a time (see NimRule)
+	    // and a _MISERE ending (NIM_MISERE, NIM_1_2_3_MISERE) makes taking the last stick lose
+	    String nim = type.toUpperCase();
+	    if (!nim.startsWith("NIM_")) return null;  // No game recognized...
+	    boolean misere = nim.endsWith("_MISERE");
+	    if (misere) nim = nim.substring(0, nim.length() - "_MISERE".length());
+	    try {
+		g = new NimFactory(nim.equals("NIM") ? NimRule.ANY : NimRule.parse(nim.substring(4)), misere);
+	    } catch (IllegalArgumentException e) {
+		return null;
+	    }
 	}
-	RRTournament rr = new RRTournament(g, owner);
+	RRTournament rr = new RRTournament(g, owner, executor);
 	tour.put(rr.getID(), rr);
 
 	// Start the Tournament Thread (BUT NOT THE TOURNAMENT)
@@ -116,42 +131,38 @@ public class GameServer {
     }
     
     /**
-     * Register a new socket (client) connection.
-     * @param sock 
+     * Register a new (client) connection.
+     * @return false if the maximum number of connections has been reached
      */
-    private synchronized void addConnection(Socket sock) throws IOException {
-	ClientConnection c = new ClientConnection(sock, this);
-	if (conn.size() >= maxConnections)
-	    throw new IOException("Error: Maximum  number of clients (" + maxConnections + ") reached.");
-	
+    synchronized boolean addConnection(ClientConnection c) {
+	if (conn.size() >= maxConnections) {
+	    System.err.println("Error: Maximum  number of clients (" + maxConnections + ") reached.");
+	    return false;
+	}
 	conn.add(c);  // Add connection to list of sockets
-	FutureTask<Integer> task = new FutureTask<Integer>(c);
-	executor.execute(task);
-	// WARNING: Client Connections are never removed... even if they die.  TBD.
+	return true;
+    }
+
+    /**
+     * Forget a connection that has closed.
+     */
+    synchronized void removeConnection(ClientConnection c) {
+	conn.remove(c);
     }
 
     /**
      * This is the main body of the server.  It will start up a (server) socket to listen for connections.
-     * When any connections arrive, it adds them to a client list and registers them into an active tournament.
+     * When any connections arrive, it adds them to a client list and serves them until the server is
+     * stopped: all on one thread (see ConnectionSelector) or each on its own (blocking) thread.
      */
-    private void run() {
+    void run() {
 	System.out.println("The AI Game Server: Hello.  Is there anybody out there?");
 	try {
-	    // Create a server socket bound to the given port
-	    serverSocket = new ServerSocket(port);
-	    serverSocket.setSoTimeout(1000);  // So accept does not block forever
-	    while (true) {
-		try {
-		    // Once a request is received, accept, and get the I/O streams.
-		    Socket socket = serverSocket.accept();
-		    addConnection(socket);   // Register and start the connection
-		} catch (SocketTimeoutException e) {
-		    // No connections yet... ok.
-		    // Just keep listening forever
-		} catch (IOException e) {
-		    System.err.println("I/O Error: Terminating connection.");
-		    System.err.println("  Message: " + e.getMessage());
-		}
+	    if (mode == ServerMode.NIO) {
+		selector = new ConnectionSelector(this, port);
+		selector.run();
+	    } else {
+		serveBlocking();
 	    }
 	} catch (Exception e) {
 	    System.err.println("ABORTING: " + e.getMessage());
@@ -160,6 +171,35 @@ public class GameServer {
 	}
     }
 
+    /**
+     * Accept connections (blocking) and serve each on a thread of its own
+     */
+    private void serveBlocking() throws IOException {
+	ServerSocketChannel serverChannel = ServerSocketChannel.open();
+	serverChannel.socket().setReuseAddress(true);
+	serverChannel.bind(new InetSocketAddress(port), 1024);
+	BufferPool pool = new BufferPool();
+	while (true) {
+	    SocketChannel ch = serverChannel.accept();
+	    try {
+		ch.socket().setTcpNoDelay(true);   // Messages are small - send them now
+		final ClientConnection c = new ClientConnection(ch, pool, this);
+		if (!addConnection(c)) {
+		    c.postMessageLn("@ERROR:Maximum number of clients reached.");
+		    c.close();
+		    continue;
+		}
+		executor.execute(new Runnable() {
+			public void run() { c.serve(); }
+		    });
+	    } catch (IOException e) {
+		System.err.println("I/O Error: Terminating connection.");
+		System.err.println("  Message: " + e.getMessage());
+		ch.close();
+	    }
+	}
+    }
+
     /**
      * The main body just parses any parameters passed and creates 
      * and runs a new Game Server with the proper initial settings.
@@ -169,6 +209,7 @@ public class GameServer {
 	// Defaults to use
 	int port = DEFAULT_PORT;
 	int mc = DEFAULT_MAX_CON;
+	ServerMode mode = ServerMode.NIO;
 
 	// Parse the arguments
 	for (String arg: args) {
@@ -178,6 +219,7 @@ public class GameServer {
 		case "--help": printUsage(null); break;
 		case "--port": port = Integer.parseInt(params[1]); break;
 		case "--maxcon": mc = Integer.parseInt(params[1]); break;
+		case "--mode": mode = ServerMode.valueOf(params[1].toUpperCase()); break;
 		default:
 		    printUsage("Unrecognized parameter: " + arg);
 		}
@@ -185,8 +227,14 @@ public class GameServer {
 		printUsage("Error processing parameter: " + arg);
 	    }
 	}	    
+	if (!mode.isAvailable()) printUsage("The " + mode + " mode needs Java 21 or later.");
 
-	GameServer s = new GameServer(port, mc);
+	GameServer s = null;
+	try {
+	    s = new GameServer(port, mc, mode);
+	} catch (UnsupportedOperationException e) {
+	    printUsage(e.getMessage());
+	}
 	s.run();
     }
 
@@ -199,6 +247,9 @@ public class GameServer {
 	System.err.println("         --help           Print this help message.");
 	System.err.println("         --port=integer   The port to listen on.");
 	System.err.println("         --maxcon=integer The maximum number of connections to support.");
+	System.err.println("         --mode=nio/virtual  Serve connections from one selector thread, or each");
+	System.err.println("                          connection, match and tournament on a virtual thread");
+	System.err.println("                          (needs Java 21) [default=nio].");
 	if (message != null) System.err.println("       " + message);
 	System.exit(1);
     }       
@@ -0,0 +1,272 @@
+/*******************
+ * Christian A. Duncan
+ * CSC350: Intelligent Systems
+ * Spring 2017
+ *
+ * AI Game Server Project
+ * This project is designed to support multiple game platforms to test
+ * AI-based solutions.
+ * See README file for more details.
+ ********************/
+
+package cad.ai.server;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/***********************************************************
+ * A load test for the GameServer: how many matches at once can one
+ * server host in a given ServerMode?
+ *   A server is started in this process, then many TicTacToe
+ *   tournaments are created and filled with bots (each tournament an
+ *   owner plus "players" bots, so players/2 matches run at once in
+ *   each).  All the tournaments are started together and the test
+ *   reports how long they take, the most matches in progress at once,
+ *   and the most (platform) threads the process used.
+ *   The bots play random moves, all driven by one thread with a
+ *   Selector, so nearly all the threads counted are the server's.
+ *   The virtual mode needs Java 21 (the test refuses to run it otherwise).
+ *
+ *     java cad.ai.server.LoadTest --mode=nio --tournaments=500
+ *     java cad.ai.server.LoadTest --mode=virtual --tournaments=500
+ ***********************************************************/
+public class LoadTest {
+    private final ServerMode mode;
+    private final int tournaments, players;
+    private final long timeout;
+    private final Random ran = new Random();
+    private int playing = 0, mostPlaying = 0;  // Bots in a match (now and at most)
+    private long results = 0;                  // Results received (two per match)
+
+    /** One connection to the server (an owner or a bot) **/
+    private class Bot {
+	final SocketChannel ch;
+	final ByteBuffer in = ByteBuffer.allocate(4096);
+	final StringBuilder line = new StringBuilder();
+	int role = -1;   // 0=Home, 1=Away in the current match
+
+	Bot(int port) throws IOException {
+	    ch = SocketChannel.open(new InetSocketAddress("localhost", port));
+	    ch.socket().setTcpNoDelay(true);
+	    in.flip();   // Nothing read yet
+	}
+
+	void send(String message) throws IOException {
+	    ByteBuffer b = ByteBuffer.wrap((message + "\n").getBytes(StandardCharsets.UTF_8));
+	    while (b.hasRemaining()) ch.write(b);
+	}
+
+	/** The next complete line already read (null if none) **/
+	String nextLine() {
+	    while (in.hasRemaining()) {
+		char c = (char) in.get();
+		if (c == '\n') {
+		    String l = line.toString();
+		    line.setLength(0);
+		    return l;
+		} else if (c != '\r') line.append(c);
+	    }
+	    return null;
+	}
+
+	/** Read from the socket (blocking or not) **/
+	boolean fill() throws IOException {
+	    in.compact();
+	    int n = ch.read(in);
+	    in.flip();
+	    return n >= 0;
+	}
+
+	/** Wait for the next line (setup only, while the channel blocks) **/
+	String readLine() throws IOException {
+	    String l;
+	    while ((l = nextLine()) == null)
+		if (!fill()) throw new IOException("Server closed the connection");
+	    return l;
+	}
+
+	/** React to a line from the server during the tournaments **/
+	void process(String l) throws IOException {
+	    if (l.startsWith("@GAME:START:")) {
+		role = (l.charAt(12) == 'H') ? 0 : 1;
+		mostPlaying = Math.max(mostPlaying, ++playing);
+	    } else if (l.startsWith("@GAME:STATE:")) {
+		String[] pieces = l.substring(12).split(",");
+		if (Integer.parseInt(pieces[0]) != role) return;
+		// A random empty slot
+		int slot = -1, empty = 0;
+		for (int i = 1; i < pieces.length; i++)
+		    if (pieces[i].equals(" ") && ran.nextInt(++empty) == 0) slot = i - 1;
+		if (slot >= 0) send("@GAME:MOVE:" + slot);
+	    } else if (l.startsWith("@GAME:RESULT:")) {
+		playing--;
+		results++;
+	    }
+	}
+    }
+
+    public LoadTest(ServerMode mode, int tournaments, int players, long timeout) {
+	this.mode = mode;
+	this.tournaments = tournaments;
+	this.players = players;
+	this.timeout = timeout;
+    }
+
+    /**
+     * Start a server, run the tournaments and report
+     * @return true if every match finished in time
+     **/
+    public boolean run(PrintStream report) throws Exception {
+	int port = freePort();
+	final GameServer server = new GameServer(port, tournaments * (players + 1) + 1, mode);
+	Thread t = new Thread(new Runnable() { public void run() { server.run(); } });
+	t.setDaemon(true);
+	t.start();
+
+	// Connect the owners and bots (blocking, one line at a time)
+	List<Bot> owners = new ArrayList<Bot>(), bots = new ArrayList<Bot>();
+	for (int i = 0; i < tournaments; i++) {
+	    Bot owner = connect(port);
+	    owner.send("@NEW PLAYER");
+	    owner.readLine();
+	    owner.send("@TOUR:CREATE:TTT");
+	    String tid = owner.readLine();
+	    if (!tid.startsWith("@TID:")) throw new IOException("Could not create a tournament: " + tid);
+	    owners.add(owner);
+	    for (int p = 0; p < players; p++) {
+		Bot b = connect(port);
+		b.send("@NEW PLAYER");
+		b.readLine();
+		b.send("@TOUR:JOIN:" + tid.substring(5));
+		String joined = b.readLine();
+		if (!joined.startsWith("@MESSAGE:")) throw new IOException("Could not join a tournament: " + joined);
+		bots.add(b);
+	    }
+	}
+
+	// Then play, serving every bot from this thread
+	Selector selector = Selector.open();
+	for (Bot b: bots) {
+	    b.ch.configureBlocking(false);
+	    b.ch.register(selector, SelectionKey.OP_READ, b);
+	}
+	ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+	threads.resetPeakThreadCount();
+	long matches = (long) tournaments * players * (players - 1);
+	long start = System.nanoTime(), deadline = start + timeout * 1000000000L;
+	for (Bot owner: owners) owner.send("@TOUR:START");
+	while (results < 2 * matches && System.nanoTime() < deadline) {
+	    selector.select(100);
+	    for (SelectionKey key: selector.selectedKeys()) {
+		Bot b = (Bot) key.attachment();
+		if (!b.fill()) throw new IOException("Server closed a connection");
+		String l;
+		while ((l = b.nextLine()) != null) b.process(l);
+	    }
+	    selector.selectedKeys().clear();
+	}
+	double seconds = (System.nanoTime() - start) / 1e9;
+	for (Bot owner: owners) owner.send("@TOUR:END");
+
+	Runtime rt = Runtime.getRuntime();
+	report.printf("Mode %s (Java %s): %d connections, %d tournaments of %d players%n", mode,
+		      System.getProperty("java.version"), owners.size() + bots.size(), tournaments, players);
+	report.printf("  %d of %d matches in %.2f s (%.0f matches/s)%n", results / 2, matches, seconds, results / 2 / seconds);
+	report.printf("  Most matches at once: %d%n", mostPlaying / 2);
+	report.printf("  Most platform threads: %d, heap used: %d MB%n", threads.getPeakThreadCount(),
+		      (rt.totalMemory() - rt.freeMemory()) >> 20);
+	return results >= 2 * matches;
+    }
+
+    /**
+     * Connect to the server (retrying while it starts up)
+     **/
+    private Bot connect(int port) throws Exception {
+	for (int tries = 0; ; tries++) {
+	    try {
+		return new Bot(port);
+	    } catch (IOException e) {
+		if (tries == 50) throw e;
+		Thread.sleep(100);
+	    }
+	}
+    }
+
+    /** A port nobody is listening on **/
+    private static int freePort() throws IOException {
+	ServerSocket s = new ServerSocket(0);
+	try {
+	    return s.getLocalPort();
+	} finally {
+	    s.close();
+	}
+    }
+
+    public static void main(String[] args) {
+	// Defaults to use
+	ServerMode mode = ServerMode.NIO;
+	int tournaments = 100;
+	int players = 4;
+	long timeout = 300;
+
+	// Parse the arguments
+	for (String arg: args) {
+	    try {
+		String[] params = arg.split("=",2);
+		switch (params[0]) {
+		case "--help": printUsage(null); break;
+		case "--mode": mode = ServerMode.valueOf(params[1].toUpperCase()); break;
+		case "--tournaments": tournaments = Integer.parseInt(params[1]); break;
+		case "--players": players = Integer.parseInt(params[1]); break;
+		case "--timeout": timeout = Long.parseLong(params[1]); break;
+		default:
+		    printUsage("Unrecognized parameter: " + arg);
+		}
+	    } catch (Exception e) {
+		printUsage("Error processing parameter: " + arg);
+	    }
+	}
+	if (tournaments < 1 || players < 2) printUsage("Need at least one tournament of two players");
+	if (!mode.isAvailable()) printUsage("The " + mode + " mode needs Java 21 or later.");
+
+	// The server's debugging output would swamp the report
+	PrintStream report = System.out;
+	System.setOut(new PrintStream(new OutputStream() { public void write(int b) { } }));
+	try {
+	    boolean done = new LoadTest(mode, tournaments, players, timeout).run(report);
+	    if (!done) report.println("  Timed out before every match finished.");
+	    System.exit(done ? 0 : 1);
+	} catch (Exception e) {
+	    System.err.println("Error running the load test: " + e);
+	    System.exit(1);
+	}
+    }
+
+    /**
+     * Print Usage message and exit
+     **/
+    public static void printUsage(String message) {
+	System.err.println("Usage: java cad.ai.server.LoadTest [params]");
+	System.err.println("       Where params are:");
+	System.err.println("         --help              Print this help message.");
+	System.err.println("         --mode=nio/virtual  How the server runs (see GameServer; virtual needs Java 21) [default=nio].");
+	System.err.println("         --tournaments=X     Number of TicTacToe tournaments at once [default=100].");
+	System.err.println("         --players=X         Bots in each tournament [default=4].");
+	System.err.println("         --timeout=X         Give up after X seconds [default=300].");
+	if (message != null) System.err.println("       " + message);
+	System.exit(1);
+    }
+}
@@ -13,8 +13,8 @@ package cad.ai.server;
 
 import java.util.ArrayList;
 import java.util.concurrent.Callable;
-import java.util.ArrayDeque;
-import java.util.Deque;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
 import cad.ai.game.*;
 
 /***********************************************************
@@ -23,6 +23,10 @@ import cad.ai.game.*;
  * will play the game.  The game to play is provided at construction
  * time.
  * Yes, we could make these based on multiple players - but not needed... yet.
+ * The match sleeps until a player's move arrives, processes it and sends
+ * the new state straight away, so a game runs as fast as its players move.
+ * An interrupted match stops where it is, without a result (it stays
+ * IN_PROGRESS), so shutting its executor down does not leave it waiting.
  ***********************************************************/
 public class Match implements Callable<Integer> {
     public static enum State { NOT_STARTED, IN_PROGRESS, TIE, HOME_WIN, AWAY_WIN };
@@ -36,7 +40,7 @@ public class Match implements Callable<Integer> {
     private Player away; // Player two
     private Game game;   // Game to play
     private State state = State.NOT_STARTED;    // State of the match
-    private Deque<Message> messages;             // Messages from Players to the Game
+    private BlockingQueue<Message> messages;     // Messages from Players to the Game
     private int errorCount = 0; // # consecutive errors (inv. moves)
     
     public Match(Player h, Player a, Game g) {
@@ -45,7 +49,7 @@ public class Match implements Callable<Integer> {
 	this.game = g;
 	this.state = State.NOT_STARTED;
 	this.errorCount = 0;
-	this.messages = new ArrayDeque<Message>();
+	this.messages = new LinkedBlockingQueue<Message>();
     }
 
     public Integer call() {
@@ -53,15 +57,19 @@ public class Match implements Callable<Integer> {
 	home.postMessage("@GAME:START:H:"+away.getName());
 	away.postMessage("@GAME:START:A:"+home.getName());
 	
+	// Then wait for moves: each is processed (and the new state sent) as soon as it arrives
+	broadcastState(game.getState(true));
 	while (!game.isDone()) {
-	    String state = game.getState(false);
-	    if (state != null) {
-		// The state has changed since last call
-		home.postMessage("@GAME:STATE:" + state);
-		away.postMessage("@GAME:STATE:" + state);
+	    try {
+		processMessage(messages.take());
+	    } catch (InterruptedException e) {
+		// Being shut down: stop here, record no result, and pass the interrupt on
+		debug("Match stopped before the game finished.  No result recorded.");
+		home.clearMatch();
+		away.clearMatch();
+		Thread.currentThread().interrupt();
+		return new Integer(0);
 	    }
-	    processMessages();
-	    try { Thread.sleep(100); } catch (Exception e) { }  // Don't hog resources...
 	}
 
 	// Determine winner, and set state
@@ -79,7 +87,8 @@ public class Match implements Callable<Integer> {
 	    state = State.TIE; r = 'T';
 	}
 
-	// Inform the players
+	// Inform the players (the final position first)
+	broadcastState(game.getState(false));
 	home.postMessage("@GAME:RESULT:" + r);
 	away.postMessage("@GAME:RESULT:" + r);
 	
@@ -94,37 +103,42 @@ public class Match implements Callable<Integer> {
     public Player getHome() { return home; }
     public Player getAway() { return away; }
 
-    // Post a message from a Player to the Game.
-    public synchronized void postMessage(Player originator, String message) {
-	messages.addLast(new Message(originator, message));   // Store the message in the messages Queue.
+    // Post a message from a Player to the Game (waking the match up).
+    public void postMessage(Player originator, String message) {
+	messages.add(new Message(originator, message));   // Store the message in the messages Queue.
     }
 
-    // Process the messages that were received from Players.
-    public synchronized void processMessages() {
-	while (!messages.isEmpty()) {
-	    Message m = messages.removeFirst();
-	    if (m.p != home && m.p != away) {
-		// Some other player sent it???
-		m.p.postMessage("@GAME:ERROR:[Programming error] This player is not part of this game.");
+    // Process a message from a Player, sending the new state to both players if it changed.
+    private void processMessage(Message m) {
+	if (m.p != home && m.p != away) {
+	    // Some other player sent it???
+	    m.p.postMessage("@GAME:ERROR:[Programming error] This player is not part of this game.");
+	    return;
+	}
+	String response = game.processMove(m.p == home ? 0 : 1, m.message);
+	m.p.postMessage("@GAME:" + response);
+	if (response.startsWith("ERROR")) {
+	    // There was an error with the move, have there been too many?
+	    if (errorCount++ > 5) {
+		// Player forfeits
+		game.resign(m.p == home ? 0 : 1);
 	    } else {
-		String response = game.processMove(m.p == home ? 0 : 1, m.message);
-		m.p.postMessage("@GAME:" + response);
-		if (response.startsWith("ERROR")) {
-		    // There was an error with the move, have there been too many?
-		    if (errorCount++ > 5) {
-			// Player forfeits
-			game.resign(m.p == home ? 0 : 1);
-		    } else {
-			// resend game state (as a reminder)
-			m.p.postMessage("@GAME:STATE:" + game.getState(true));
-		    }
-		} else {
-		    errorCount = 0;  // Reset it.
-		}
+		// resend game state (as a reminder)
+		m.p.postMessage("@GAME:STATE:" + game.getState(true));
 	    }
+	} else {
+	    errorCount = 0;  // Reset it.
+	    broadcastState(game.getState(false));
 	}
     }
 
+    // Send the state of the game to both players (null means it has not changed).
+    private void broadcastState(String state) {
+	if (state == null) return;
+	home.postMessage("@GAME:STATE:" + state);
+	away.postMessage("@GAME:STATE:" + state);
+    }
+
     /**
      * Returns a "unique" header string - for debugging mainly.
      **/
@@ -14,8 +14,15 @@ package cad.ai.server;
 import cad.ai.game.*;
 
 /***********************************************************
- * An instance of a GameFactory.  A very simple NimGame.
+ * An instance of a GameFactory.  A very simple NimGame
+ * (or a variant of it, taking only what its NimRule allows),
+ * in normal or misere play.
  ***********************************************************/
 public class NimFactory implements GameFactory {
-    public Game newGame() { return new NimGame(); }
+    NimRule rule;
+    boolean misere;
+    public NimFactory() { this(NimRule.ANY); }
+    public NimFactory(NimRule rule) { this(rule, false); }
+    public NimFactory(NimRule rule, boolean misere) { this.rule = rule; this.misere = misere; }
+    public Game newGame() { return new NimGame(-1, null, null, true, rule, misere); }
 }
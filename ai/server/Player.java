@@ -18,7 +18,7 @@ package cad.ai.server;
 public class Player {
     private int id;  // Useful if player needs to reconnect.
     private String name = null;
-    private ClientConnection conn = null; 
+    private volatile ClientConnection conn = null; 
     private int wins = 0;   // Wins for THIS tournament.
     private int losses = 0; // Losses for THIS tournament.
     private int ties = 0;   // Ties for THIS tournament.
@@ -60,9 +60,11 @@ public class Player {
     
     // Post a message (with new line) to the Client Connection associated with this Player
     // Returns true if sent and false if Connection non-existent.
-    synchronized boolean postMessage(String message) {
-	if (conn == null) return false;
-	conn.postMessageLn(message);
+    // (Not synchronized: sending may block, and the connection does its own locking.)
+    boolean postMessage(String message) {
+	ClientConnection c = conn;
+	if (c == null) return false;
+	c.postMessageLn(message);
 	return true;
     }
     
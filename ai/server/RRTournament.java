@@ -12,10 +12,11 @@
 package cad.ai.server;
 
 import java.util.ArrayList;
-import java.util.concurrent.FutureTask;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Callable;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
 
 /***********************************************************
  * A basic round-robin tournament
@@ -28,20 +29,28 @@ import java.util.concurrent.Callable;
  * of the tournament.  So, match selection will be done by availability
  * of the two opposing players.  Whenever a match can be played, it will
  * be played - as long as the tournament is active.
+ * The tournament thread sleeps (on a queue) until something changes:
+ * it is started, a player joins, a match ends or it is terminated.
  ***********************************************************/
 public class RRTournament implements Callable<Integer> {
     private GameFactory gameFactory;   // Used to create new games
     private ArrayList<Player> player;  // Players in this tournament
     private ArrayList<Match> match;    // List of Matches (to play)
     private boolean active;            // Is the tournament commencing.
-    private boolean quit;              // If true, terminate the tournament completely
+    private volatile boolean quit;     // If true, terminate the tournament completely
     private Player owner;              // The player that "owns" this tournament.
     private int id;                    // The id of this tournament
     private ExecutorService executor;    // Used to create new threads (for the various Matches)
+    private BlockingQueue<Boolean> wakeUps = new LinkedBlockingQueue<Boolean>();  // Something changed
 
     private static int nextID = 0;     // Next ID for Tournament
     
-    public RRTournament(GameFactory g, Player owner) {
+    public RRTournament(GameFactory g, Player owner) { this(g, owner, Executors.newCachedThreadPool()); }
+
+    /**
+     * A tournament playing its matches with the given executor (see ServerMode)
+     **/
+    public RRTournament(GameFactory g, Player owner, ExecutorService executor) {
 	player = new ArrayList<Player>();
 	match = new ArrayList<Match>();
 	active = false;
@@ -50,7 +59,7 @@ public class RRTournament implements Callable<Integer> {
 	this.owner = owner;
 	owner.setTour(this);
 	this.id = getNextID();
-	executor = Executors.newCachedThreadPool();
+	this.executor = executor;
     }
 
     /**
@@ -71,17 +80,23 @@ public class RRTournament implements Callable<Integer> {
 
 	p.setTour(this);  // Link this tournament to the player
 	player.add(p);    // Add the player to the list
+	wakeUp();
 	return true;
     }
     
     /*** Accessor and mutator methods ***/
     public boolean isActive() { return active; }
-    public synchronized void setActive(boolean active) { this.active = active; }
-    public synchronized void terminate() {
-	this.quit = true;
+    public synchronized void setActive(boolean active) { this.active = active; wakeUp(); }
+    public void terminate() {
+	ArrayList<Player> players;
+	synchronized (this) {
+	    this.quit = true;
+	    players = new ArrayList<Player>(player);
+	}
+	wakeUp();
 
-	// Inform all the players...
-	for (Player p: player) p.postMessage("@TOUR:END");
+	// Inform all the players... (outside the lock: posting may wait on a socket)
+	for (Player p: players) p.postMessage("@TOUR:END");
     }
     
     public int getID() { return this.id; }
@@ -90,14 +105,25 @@ public class RRTournament implements Callable<Integer> {
     public Integer call() {
 	while (!quit) {
 	    try {
-		if (isActive()) startAvailableMatches();
-		Thread.sleep(1000);  // So it doesn't run constantly...
-	    } catch (InterruptedException e) { }
+		wakeUps.take();   // Wait for something to change...
+		wakeUps.clear();  // (once is enough however many things did)
+		if (isActive() && !quit) startAvailableMatches();
+	    } catch (InterruptedException e) {
+		Thread.currentThread().interrupt();  // Being shut down
+		break;
+	    }
 	}
 
 	return new Integer(0);
     }
 
+    /**
+     * Let the tournament thread know it may be able to start matches
+     **/
+    private void wakeUp() {
+	wakeUps.offer(Boolean.TRUE);
+    }
+
     /**
      * Look through all matches and determine if any are ready to be played.
      * This happens when two players are both currently not playing in another match.
@@ -115,8 +141,15 @@ public class RRTournament implements Callable<Integer> {
 		    if (away.setMatch(m)) {
 			// Away is also available... start'er up
 			debug("Starting match between " + home.getID() + " and " + away.getID());
-			FutureTask<Integer> task = new FutureTask<Integer>(m);
-			executor.execute(task);
+			executor.execute(new Runnable() {
+				public void run() {
+				    try {
+					m.call();
+				    } finally {
+					wakeUp();  // Both players are free again
+				    }
+				}
+			    });
 		    } else {
 			home.clearMatch();  // Free the home player for another match
 		    }
@@ -0,0 +1,69 @@
+/*******************
+ * Christian A. Duncan
+ * CSC350: Intelligent Systems
+ * Spring 2017
+ *
+ * AI Game Server Project
+ * This project is designed to support multiple game platforms to test
+ * AI-based solutions.
+ * See README file for more details.
+ ********************/
+
+package cad.ai.server;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/***********************************************************
+ * How the GameServer runs its connections, matches and tournaments
+ * (chosen at startup with --mode).
+ *   NIO:     one selector thread serves every connection (see
+ *            ConnectionSelector); matches and tournaments run on a
+ *            pool of platform threads.
+ *   VIRTUAL: every connection, match and tournament is a virtual thread
+ *            of its own, blocking on its socket or queue - cheap enough
+ *            to have thousands.  Virtual threads need Java 21: on an
+ *            older Java this mode is not available (see isAvailable).
+ ***********************************************************/
+public enum ServerMode {
+    NIO, VIRTUAL;
+
+    /**
+     * Can this mode run on this Java?  (VIRTUAL needs Java 21 or later:
+     * Java 19 and 20 have the factory method, but only as a preview
+     * feature that throws unless the JVM is run with --enable-preview)
+     **/
+    public boolean isAvailable() {
+	return this != VIRTUAL || (Runtime.version().feature() >= 21 && virtualFactory() != null);
+    }
+
+    /**
+     * An executor running each task on a thread of this mode
+     * @throws UnsupportedOperationException if the mode is not available
+     **/
+    public ExecutorService newExecutor() {
+	if (this == NIO) return Executors.newCachedThreadPool();
+	if (!isAvailable())
+	    throw new UnsupportedOperationException("Virtual threads need Java 21 or later (running " +
+						    System.getProperty("java.version") + ")");
+	try {
+	    return (ExecutorService) virtualFactory().invoke(null);
+	} catch (ReflectiveOperationException e) {
+	    throw new UnsupportedOperationException("Cannot create virtual threads: " + e.getMessage(), e);
+	}
+    }
+
+    /**
+     * Executors.newVirtualThreadPerTaskExecutor, or null before Java 19.  Looked
+     * up at run time so the server still builds (and runs in NIO mode) on
+     * Java versions before 21.
+     **/
+    private static Method virtualFactory() {
+	try {
+	    return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+	} catch (NoSuchMethodException e) {
+	    return null;
+	}
+    }
+}